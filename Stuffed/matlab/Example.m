@@ -118,17 +118,23 @@ clear;
 	    labelling       = 1.0;  % All data labelled. 
 	    testSetBalance  = 0.5;
         
+        % Load the file once, then produce the samples for every run in a
+        % single pass over the data.
+        sampler.load(data_file, classIndex);
+        output = sampler.sampleReplicatesToARFF(trainSetPath, testSetPath, runs, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+        result = output(1);
+
+        fprintf('Result of sampling: %i \n',result);
+        
         for n = 1:runs  % For the specified number of samplings.
             
-            sampler.load(data_file, classIndex);
-            output = sampler.sampleToARFF(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
-            result = output(1);
-
-            fprintf('Result of sampling: %i run %i \n',result,n);
+            % The files sampled for this run.
+            runTrainSetPath = char(sampler.getReplicatePath(trainSetPath, n));
+            runTestSetPath  = char(sampler.getReplicatePath(testSetPath, n));
 
             % Now build the classifier
-            builder.setTrainingSet(trainSetPath);
-            builder.setTestSet(testSetPath);
+            builder.setTrainingSet(runTrainSetPath);
+            builder.setTestSet(runTestSetPath);
             builder.setAlgorithm(algorithm);
             builder.setOutputFile(logPath);
 
@@ -213,8 +219,11 @@ clear;
             fprintf('Kappa:\t\t%f\n', kappa)
             fprintf('G-Mean:\t\t%f\n', gmean)
             
-            % Clean up aftr each run.
-            delete(strcat( root , 'test/*.*'));
+            % Clean up aftr each run, including the files written alongside
+            % the test set (true class, label mask), which share its name.
+            delete(runTrainSetPath);
+            [runTestDir, runTestName] = fileparts(runTestSetPath);
+            delete(fullfile(runTestDir, strcat(runTestName, '.*')));
         
         end
 	    
@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.util.TreeMap;
 
 import cs.man.ac.uk.common.Base;
+import cs.man.ac.uk.sample.TrueClass;
 
 /**
  * Class containing helper methods for a classifier. These are primarily
@@ -170,55 +171,25 @@ public class BaseClassifier extends Base
 	}
 
 	/**
-	 * <p>Obtains labelled input patterns from the file specified, along with their
-	 * positions in the corresponding test data set. Each line of the file should have the
-	 * following format:</p>
-	 * 
-	 * [index position],[unique identifier],[attribute 1],...,[attribute N],[label]
-	 * 
-	 * <p>Such that,</p>
-	 * 
-	 * <ul>
-	 * <li>index position    = the position of the instance in the test data set. </li>
-	 * <li>unique identifier = a string that unique identifies the instance if available.</li>
-	 * <li>label             = the class label.</li>
-	 * </ul>
-	 * 
-	 * <p>For example, given an unlabelled two-class test data set as follows:</p>
+	 * <p>Obtains the positions of the truly positive instances in a test data set, from the
+	 * true class file written alongside it by the sampler. Each line of the file holds the
+	 * 1-based position of one positive instance in the test data set. For example, given an
+	 * unlabelled two-class test data set as follows:</p>
 	 * 
 	 * 1 , 2 , 3 , ?
 	 * 4 , 5 , 6 , ?
 	 * 7 , 8 , 9 , ?
 	 * 1 , 5 , 9 , ?
 	 * 
-	 * <p>Then the positive labelled data files would appear as follows:</p>
-	 * 
-	 *  1 , Example 1 , 1 , 2 , 3 , +
-	 *  3 , Example 3 , 7 , 8 , 9 , +
-	 *  
-	 * <p>Whilst the negative file would be:</p>
-	 * 
-	 * 2 , Example 2 , 4 , 4 , 6 , -
-	 * 4 , Example 4 , 1 , 5 , 9 , -
-	 * 
-	 * <p>This information is read in by this method, and stored in a hash map for
-	 * quick access. The hash map uses an integer key and string value. Each instance
-	 * is stored in the hash map using its index position as its key, and its
-	 * unique identifier plus attributes as the value. For example, the positive
-	 * examples from the file discussed above:</p>
+	 * <p>where the first and third instances are positive, the file would contain:</p>
 	 * 
-	 * 1 , Example 1 , 1 , 2 , 3 , +
-	 * 3 , Example 3 , 7 , 8 , 9 , +
+	 * 1
+	 * 3
 	 * 
-	 * <p>would be stored as</p>
-	 * 
-	 * KEY VALUE
-	 * [1],[Example 1 , 1 , 2 , 3 , +]
-	 * [3],[Example 3 , 7 , 8 , 9 , +]
-	 * 
-	 * <p>This means that if we know the index of an instance being classified,
-	 * we can check for its presence in the hash map and evaluate the predicted
-	 * class immediately.</p>
+	 * <p>The positions are stored in a bit set indexed by position, so whether the instance
+	 * being classified is positive can be checked in constant time, using one bit per test
+	 * instance. If the sampler also wrote the binary form of the file, it is read instead,
+	 * see {@link TrueClass#load(String)}.</p>
 	 * 
 	 * <p>The reason for this approach may not be clear. However if a data set is
 	 * extremely large, and you need to keep track of the false negatives or false 
@@ -226,43 +197,10 @@ public class BaseClassifier extends Base
 	 * not be possible to evaluate performance on unlabelled data.</p>
 	 * 
 	 * @param truePosDataPath the path to the file containing positives.
-	 * @return a hash map containing the labelled patterns, such that the hash 
-	 *         key of each instance, is the index of its position in the test
-	 *         data set (please see above explanation).
+	 * @return the positive instances, empty if the file does not exist.
 	 */
-	public TreeMap<Integer,String> getPositiveMetaData(String truePosDataPath)
+	public TrueClass getPositiveMetaData(String truePosDataPath)
 	{
-		// Stores the labelled patterns
-		TreeMap<Integer,String> patterns = new TreeMap<Integer,String>();
-
-		//Firstly try to create the file
-		File file = new File(truePosDataPath);
-
-		//if the file exists
-		if(file.exists())
-		{
-			String line = ""; 
-			BufferedReader in = null;
-			int count =0;
-			try
-			{
-				in = new BufferedReader(new FileReader(file));
-
-				try
-				{   
-					while ((line = in.readLine()) != null)
-					{
-						count++;
-						int key = Integer.parseInt(line.replace("\n", ""));
-						patterns.put(key,Integer.toString(count));
-					}
-					return patterns;
-				}
-				catch(IOException e){return patterns;}
-				finally{in.close();}
-			}
-			catch (Exception e) { return patterns; }
-		}
-		else{ return patterns; }
+		return TrueClass.load(truePosDataPath);
 	}
 }
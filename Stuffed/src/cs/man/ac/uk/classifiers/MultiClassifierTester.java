@@ -0,0 +1,578 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	MultiClassifierTester.java
+ * Package: cs.man.ac.uk.classifiers
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.classifiers;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import moa.classifiers.AbstractClassifier;
+import moa.core.InstancesHeader;
+import moa.streams.ArffFileStream;
+import moa.streams.InstanceStream;
+import weka.classifiers.Classifier;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import cs.man.ac.uk.common.LongBitSet;
+import cs.man.ac.uk.moawrappers.CompressedArffFileStream;
+import cs.man.ac.uk.sample.TrueClass;
+import cs.man.ac.uk.stats.ClassifierStatistics;
+
+/**
+ * The class MultiClassifierTester trains and tests several classifiers on the same
+ * training and test sets, reading and parsing each set only once. Each instance parsed
+ * is handed to every classifier in turn, or, if threaded, to a worker thread per
+ * classifier via a bounded queue, so the classifiers run concurrently while the parser
+ * is never more than a few instances ahead of the slowest of them.
+ *
+ * MOA classifiers are evaluated as by the StreamAlgorithmTester, trained on each training
+ * instance, then tested (and optionally trained) on each test instance. Weka classifiers
+ * are evaluated as by the StandardAlgorithmTester, built once from the whole training set,
+ * which is then held in memory, then tested without learning. A confusion matrix is
+ * returned per classifier, in the order the classifiers were added.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class MultiClassifierTester extends BaseClassifier
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The number of instances each worker thread may fall behind the parser.
+	 */
+	public static final int QUEUE_SIZE = 1024;
+
+	/**
+	 * Marks the end of a pass in the queue of a worker thread.
+	 */
+	private static final Instance END = new DenseInstance(0);
+
+	/**
+	 * The classifiers, in the order they were added.
+	 */
+	private ArrayList<Member> members = new ArrayList<Member>();
+
+	/**
+	 * Flag that when true, runs each classifier on its own worker thread.
+	 */
+	private boolean threaded = false;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Default constructor.
+	 * @param pth the log file path.
+	 * @param v boolean logging flag.
+	 */
+	public MultiClassifierTester(String pth,boolean v){ super(pth,v); }
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Adds a MOA classifier, evaluated as by the StreamAlgorithmTester.
+	 * @param nme the name of the classifier, used for file logging.
+	 * @param cls the classifier to test.
+	 */
+	public void add(String nme,final AbstractClassifier cls)
+	{
+		members.add(new Member(nme)
+		{
+			@Override
+			void prepare(InstancesHeader header)
+			{
+				cls.setModelContext(header);
+				cls.prepareForUse();
+			}
+
+			@Override
+			void train(Instance inst){ cls.trainOnInstance(inst); }
+
+			@Override
+			double classify(Instance inst){ return Utils.maxIndex(cls.getVotesForInstance(inst)); }
+
+			@Override
+			void update(Instance inst){ cls.trainOnInstance(inst); }
+		});
+	}
+
+	/**
+	 * Adds a Weka classifier, evaluated as by the StandardAlgorithmTester.
+	 * @param nme the name of the classifier, used for file logging.
+	 * @param cls the classifier to test.
+	 */
+	public void add(String nme,final Classifier cls)
+	{
+		members.add(new Member(nme)
+		{
+			@Override
+			boolean isBatch(){ return true; }
+
+			@Override
+			void build(Instances data) throws Exception { cls.buildClassifier(data); }
+
+			@Override
+			double classify(Instance inst) throws Exception { return cls.classifyInstance(inst); }
+		});
+	}
+
+	/**
+	 * Trains every classifier on a training set, parsing the set once. If any Weka
+	 * classifiers have been added, the training set is also collected in memory, and
+	 * they are built from it once it has been read.
+	 * @param trainingSet the path to the training set.
+	 * @return true if every classifier trained successfully, else false.
+	 */
+	public boolean train(String trainingSet)
+	{
+		log.dualOut("Training set: " + trainingSet,1);
+
+		try
+		{
+			ArffFileStream stream = CompressedArffFileStream.open(trainingSet, -1);
+			stream.prepareForUse();
+
+			long startTime = System.nanoTime();
+
+			// The training set is only held in memory if a classifier is built from all of it.
+			boolean batch = false;
+
+			for(Member m : members)
+				batch |= m.isBatch();
+
+			Instances data = batch ? new Instances(stream.getHeader(), 0) : null;
+
+			long instances = pass(stream, data, null, false);
+
+			for(Member m : members)
+			{
+				if(m.error == null && m.isBatch())
+				{
+					try { m.build(data); }
+					catch(Throwable t){ m.error = t; }
+				}
+
+				if(m.error != null)
+					log.erroruf("Could not train "+m.name+" classifier Exception building model", m.error);
+			}
+
+			long endTime = System.nanoTime();
+			long nanoseconds = endTime - startTime;
+			double seconds = (double) nanoseconds / 1000000000.0;
+
+			log.dualOut("Training "+members.size()+" classifiers on "+instances+" instances completed in "+nanoseconds+" (ns) or "+seconds+" (s)",1);
+
+			return failed() == 0;
+		}
+		catch (Exception e)
+		{
+			log.erroruf("Could not train classifiers Exception reading training data", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Tests every classifier on a test set, parsing the set once. Unlabelled test
+	 * instances are evaluated using the true class file written by the sampler.
+	 * @param testSet the path to the test set.
+	 * @param truePosClass the path to the true class file, or null if there is none.
+	 * @param learn if true the MOA classifiers are trained on each instance after it is
+	 *        tested (prequential evaluation), else they are only tested.
+	 * @return a confusion matrix per classifier, in the order they were added, empty
+	 *         for a classifier that failed.
+	 */
+	public int[][][] test(String testSet,String truePosClass,boolean learn)
+	{
+		int[][][] matrices = new int[members.size()][][];
+
+		for(int i = 0; i < matrices.length; i++)
+			matrices[i] = new int[][] {{0,0},{0,0}}; // Empty matrix until tested.
+
+		/**
+		 * The positively labelled data.
+		 */
+		TrueClass labelledPositives;
+
+		if(truePosClass!= null)
+			labelledPositives = this.getPositiveMetaData(truePosClass);
+		else
+			labelledPositives = new TrueClass(0, new LongBitSet());
+
+		log.dualOut("Test set: " + testSet,1);
+
+		try
+		{
+			ArffFileStream stream = CompressedArffFileStream.open(testSet, -1);
+			stream.prepareForUse();
+
+			for(Member m : members)
+			{
+				m.stats = new ClassifierStatistics();
+				m.learn = learn;
+			}
+
+			long startTime = System.nanoTime();
+			long instances = pass(stream, null, labelledPositives, true);
+			long endTime = System.nanoTime();
+			long nanoseconds = endTime - startTime;
+			double seconds = (double) nanoseconds / 1000000000.0;
+
+			log.dualOut("Testing "+members.size()+" classifiers on "+instances+" instances completed in "+nanoseconds+" (ns) or "+seconds+" (s)",1);
+
+			for(int i = 0; i < matrices.length; i++)
+			{
+				Member m = members.get(i);
+
+				if(m.error != null)
+					log.erroruf("Could not test " + m.name + " classifier due to an error", m.error);
+				else
+					matrices[i] = m.stats.toConfusionMatrix();
+			}
+		}
+		catch (Exception e)
+		{
+			log.erroruf("Could not test classifiers due to an error reading test data",e);
+		}
+
+		return matrices;
+	}
+
+	/**
+	 * Reads every instance in a stream once, handing each to every classifier that has
+	 * not yet failed. A classifier that throws an exception is recorded as failed, and
+	 * is passed no further instances, but does not stop the others.
+	 * @param stream the stream to read, ready for use.
+	 * @param data if not null, every instance read is also added to it.
+	 * @param labelledPositives the positive examples in the test set, when testing.
+	 * @param testing if true each instance is tested, else it is trained on.
+	 * @return the number of instances read.
+	 * @throws Exception if the stream can't be read, or a worker thread is interrupted.
+	 */
+	private long pass(InstanceStream stream,Instances data,final TrueClass labelledPositives,final boolean testing) throws Exception
+	{
+		InstancesHeader header = stream.getHeader();
+
+		// Classifiers built from the whole training set take no part in the training pass.
+		ArrayList<Member> active = new ArrayList<Member>();
+
+		for(Member m : members)
+		{
+			if(m.error == null && (testing || !m.isBatch()))
+			{
+				try
+				{
+					m.prepare(header);
+					active.add(m);
+				}
+				catch(Throwable t){ m.error = t; }
+			}
+		}
+
+		long instances = 0;
+
+		if(!threaded)
+		{
+			while(stream.hasMoreInstances())
+			{
+				Instance inst = stream.nextInstance();
+				instances++;
+
+				for(Member m : active)
+					m.process(inst, instances, testing, labelledPositives);
+
+				if(data != null)
+					data.add(inst);
+			}
+
+			return instances;
+		}
+
+		// One worker thread per classifier, each with its own bounded queue.
+		Thread[] workers = new Thread[active.size()];
+
+		for(int i = 0; i < workers.length; i++)
+		{
+			final Member m = active.get(i);
+			m.queue = new ArrayBlockingQueue<Instance>(QUEUE_SIZE);
+
+			workers[i] = new Thread(new Runnable()
+			{
+				@Override
+				public void run(){ m.drain(testing, labelledPositives); }
+			}, "MultiClassifierTester " + m.name);
+
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+
+		try
+		{
+			while(stream.hasMoreInstances())
+			{
+				Instance inst = stream.nextInstance();
+				instances++;
+
+				// Each worker is given its own copy, as classifiers may alter the instances they are given.
+				for(Member m : active)
+					m.queue.put((Instance)inst.copy());
+
+				if(data != null)
+					data.add(inst);
+			}
+		}
+		finally
+		{
+			for(Member m : active)
+				m.queue.put(END);
+
+			for(Thread t : workers)
+				t.join();
+
+			for(Member m : active)
+				m.queue = null;
+		}
+
+		return instances;
+	}
+
+	/**
+	 * @return the number of classifiers that have failed.
+	 */
+	private int failed()
+	{
+		int count = 0;
+
+		for(Member m : members)
+			if(m.error != null)
+				count++;
+
+		return count;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param threaded if true, runs each classifier on its own worker thread, else the
+	 *        classifiers are run in turn on the thread parsing the data.
+	 */
+	public void setThreaded(boolean threaded){ this.threaded = threaded; }
+
+	/**
+	 * @return the names of the classifiers, in the order they were added.
+	 */
+	public String[] getNames()
+	{
+		String[] names = new String[members.size()];
+
+		for(int i = 0; i < names.length; i++)
+			names[i] = members.get(i).name;
+
+		return names;
+	}
+
+	//*****************************************
+	//*****************************************
+	//             Member
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * A classifier being evaluated, along with the outcomes of its evaluation.
+	 */
+	private static abstract class Member
+	{
+		/**
+		 * The name of the classifier.
+		 */
+		final String name;
+
+		/**
+		 * The classification outcomes on the test set.
+		 */
+		ClassifierStatistics stats = new ClassifierStatistics();
+
+		/**
+		 * Flag that when true, trains the classifier on each test instance once tested.
+		 */
+		boolean learn = false;
+
+		/**
+		 * The first error encountered by the classifier, null if there is none.
+		 */
+		volatile Throwable error = null;
+
+		/**
+		 * The instances waiting to be processed, when the classifier has a worker thread.
+		 */
+		ArrayBlockingQueue<Instance> queue = null;
+
+		/**
+		 * Creates a new member.
+		 * @param name the name of the classifier.
+		 */
+		Member(String name){ this.name = name; }
+
+		/**
+		 * @return true if the classifier is built from the whole training set at once, else false.
+		 */
+		boolean isBatch(){ return false; }
+
+		/**
+		 * Prepares the classifier to process the instances in a stream.
+		 * @param header the header of the stream.
+		 * @throws Exception if the classifier can't be prepared.
+		 */
+		void prepare(InstancesHeader header) throws Exception {}
+
+		/**
+		 * Trains the classifier on a training instance.
+		 * @param inst the instance.
+		 * @throws Exception if the classifier fails.
+		 */
+		void train(Instance inst) throws Exception {}
+
+		/**
+		 * Builds the classifier from the whole training set.
+		 * @param data the training set.
+		 * @throws Exception if the classifier fails.
+		 */
+		void build(Instances data) throws Exception {}
+
+		/**
+		 * @param inst the instance to classify.
+		 * @return the predicted class index.
+		 * @throws Exception if the classifier fails.
+		 */
+		abstract double classify(Instance inst) throws Exception;
+
+		/**
+		 * Trains the classifier on a test instance once it has been tested.
+		 * @param inst the instance.
+		 * @throws Exception if the classifier fails.
+		 */
+		void update(Instance inst) throws Exception {}
+
+		/**
+		 * Run by a worker thread, processes the instances in the queue until the end marker.
+		 * Once the classifier has failed, the queue is still drained to the end marker, so
+		 * the parser is never left blocked on a full queue.
+		 * @param testing if true each instance is tested, else it is trained on.
+		 * @param labelledPositives the positive examples in the test set, when testing.
+		 */
+		void drain(boolean testing,TrueClass labelledPositives)
+		{
+			long instanceNumber = 0;
+
+			while(true)
+			{
+				Instance inst;
+
+				try { inst = queue.take(); }
+				catch (InterruptedException e)
+				{
+					error = e;
+					continue;
+				}
+
+				if(inst == END)
+					return;
+
+				process(inst, ++instanceNumber, testing, labelledPositives);
+			}
+		}
+
+		/**
+		 * Trains or tests the classifier on an instance, unless it has already failed.
+		 * @param inst the instance.
+		 * @param instanceNumber the position of the instance in the stream, starting from 1.
+		 * @param testing if true the instance is tested, else it is trained on.
+		 * @param labelledPositives the positive examples in the test set, when testing.
+		 */
+		void process(Instance inst,long instanceNumber,boolean testing,TrueClass labelledPositives)
+		{
+			if(error != null)
+				return;
+
+			try
+			{
+				if(!testing)
+					train(inst);
+				else
+				{
+					evaluate(inst, instanceNumber, labelledPositives);
+
+					if(learn)
+						update(inst);
+				}
+			}
+			catch (Throwable t) { error = t; } // Includes errors, such as running out of memory.
+		}
+
+		/**
+		 * Tests the classifier on an instance, and records the outcome.
+		 * @param inst the instance.
+		 * @param instanceNumber the position of the instance in the test set, starting from 1.
+		 * @param labelledPositives the positive examples in the test set.
+		 * @throws Exception if the classifier fails.
+		 */
+		void evaluate(Instance inst,long instanceNumber,TrueClass labelledPositives) throws Exception
+		{
+			double classification = classify(inst);
+
+			// The class index, NaN if the instance is unlabelled.
+			double instanceClass = inst.classValue();
+
+			// Unlabelled instances are positive only if on the list of positives.
+			int actual = Double.isNaN(instanceClass) ? (labelledPositives.isPositive(instanceNumber) ? 1 : 0) : (int)instanceClass;
+
+			if(classification==1 && actual==0)// Predicted positive, actually negative
+				stats.incrementFP();
+			else if(classification==1 && actual==1)// Predicted positive, actually positive
+				stats.incrementTP();
+			else if(classification==0 && actual==1)// Predicted negative, actually positive
+				stats.incrementFN();
+			else if(classification==0 && actual==0)// Predicted negative, actually negative
+				stats.incrementTN();
+		}
+	}
+}
@@ -29,19 +29,21 @@ package cs.man.ac.uk.classifiers.standard;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.TreeMap;
 
 import weka.classifiers.Classifier;
 import weka.classifiers.trees.J48;
 import weka.core.Instances;
 import cs.man.ac.uk.common.Common;
+import cs.man.ac.uk.common.LongBitSet;
+import cs.man.ac.uk.io.Reader;
 import cs.man.ac.uk.io.Writer;
+import cs.man.ac.uk.io.WriterHandle;
 import cs.man.ac.uk.moawrappers.I_WekaTest;
 import cs.man.ac.uk.moawrappers.WekaClassifier;
+import cs.man.ac.uk.sample.TrueClass;
 import cs.man.ac.uk.stats.ClassifierStatistics;
 
 /**
@@ -111,18 +113,32 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 		// Store training set file path.
 		this.trainingSetFilePath=trainingSet;
 
-		log.dualOut("Training "+name,1);
 		log.dualOut("Training set: " + this.trainingSetFilePath,1);
 
-		long startTime = System.nanoTime();// Record time prior to training.
-
 		try
 		{
-			BufferedReader reader = new BufferedReader( new FileReader(this.trainingSetFilePath));
+			BufferedReader reader = Reader.openReader(this.trainingSetFilePath);
 			Instances data = new Instances(reader);
 
 			data.setClassIndex(data.numAttributes() - 1);// Uses last column of data as class index.
 
+			return train(data);
+		}
+		catch (IOException e) { log.erroruf("Could not train "+name+" classifier IOException on training data file", e); return false; }
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#train(weka.core.Instances)
+	 */
+	@Override
+	public boolean train(Instances data)
+	{	
+		log.dualOut("Training "+name,1);
+
+		long startTime = System.nanoTime();// Record time prior to training.
+
+		try
+		{
 			log.dualOut("Training instances: " + data.numInstances(),1);
 			learner.buildClassifier(data);
 
@@ -135,14 +151,12 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 			log.dualOut("Training "+name+" completed in "+nanoseconds+" (ns) or "+seconds+" (s)",1);
 			return true;
 		}
-		catch (IOException e) { log.erroruf("Could not train "+name+" classifier IOException on training data file", e); return false; }
 		catch (Exception e) { log.erroruf("Could not train "+name+" classifier Exception building model", e); return false;}
 	}
 
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(java.lang.String, boolean)
 	 */
-	@SuppressWarnings("unused")
 	@Override
 	public int[][] testStatic(String testSet,String outputPath, boolean recordMissclassifications,String truePosClass)
 	{
@@ -152,18 +166,38 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 		/**
 		 * The positively labelled data.
 		 */
-		TreeMap<Integer,String> labelledPositives;
-
-		/**
-		 * Negatively labelled data.
-		 */
-		TreeMap<Integer,String> labelledNegatives;
+		TrueClass labelledPositives;
 
 		if(truePosClass!= null)
 			labelledPositives = this.getPositiveMetaData(truePosClass);
 		else
-			labelledPositives = new TreeMap<Integer,String>();
+			labelledPositives = new TrueClass(0, new LongBitSet());
+
+		try
+		{
+			// Prepare data for testing
+			BufferedReader reader = Reader.openReader(this.testSetFilePath);
+			Instances data = new Instances(reader);
+			data.setClassIndex(data.numAttributes() - 1); // Last column of data contains the class variable.
+
+			log.dualOut("Test set: " + this.testSetFilePath, 1);
+
+			return testStatic(data, outputPath, recordMissclassifications, labelledPositives);
+		}
+		catch (Exception e) 
+		{ 
+			log.erroruf("Could not test " + name + " classifier due to an error",e);
+			return new int[][] {{0,0},{0,0}}; // Return empty matrix.
+		}
+	}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(weka.core.Instances, java.lang.String, boolean, cs.man.ac.uk.sample.TrueClass)
+	 */
+	@SuppressWarnings("unused")
+	@Override
+	public int[][] testStatic(Instances data,String outputPath, boolean recordMissclassifications,TrueClass labelledPositives)
+	{
 		log.dualOut("Testing "+name,1);
 
 		try
@@ -179,14 +213,8 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 			//Used to store and append output information.
 			StringBuilder misclassifiedLabelledInstances = new StringBuilder();
 
-			// Prepare data for testing
-			BufferedReader reader = new BufferedReader( new FileReader(this.testSetFilePath));
-			Instances data = new Instances(reader);
-			data.setClassIndex(data.numAttributes() - 1); // Last column of data contains the class variable.
-
 			log.dualOut(name + " Classifier is ready.",1);
 			log.dualOut(name + " Testing on all instances available.",1);
-			log.dualOut("Test set: " + this.testSetFilePath, 1);
 			log.dualOut("Test instances: " + data.numInstances(), 1);
 
 			long startTime = System.nanoTime(); // Record time before classification begins.
@@ -197,13 +225,13 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 				instanceNumber+=1;
 
 				double classification = learner.classifyInstance(data.instance(i));
-				String instanceClass= Double.toString(data.instance(i).classValue());
+				double instanceClass = data.instance(i).classValue(); // The class index, NaN if unlabelled.
 
-				if(instanceClass.contains("NaN"))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
+				if(Double.isNaN(instanceClass))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
 				{
 					// If the current instance is on the list of POSITIVELY
 					// labelled examples.
-					if(labelledPositives.containsKey(instanceNumber))
+					if(labelledPositives.isPositive(instanceNumber))
 					{
 						if(classification==1)
 						{
@@ -233,23 +261,25 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 				else
 				{
 
-					// LABELLED TEST DATA - WEKA API knows the correct class.				
-					if(classification==1 && instanceClass.startsWith("0"))// Predicted positive, actually negative
+					// LABELLED TEST DATA - WEKA API knows the correct class.
+					int actual = (int)instanceClass;
+
+					if(classification==1 && actual==0)// Predicted positive, actually negative
 					{	
 						stats.incrementFP();
 						misclassifiedLabelledInstances.append(getFeatures(data.instance(i),data.numAttributes()-1)+"0,FP\n");
 					}
-					else if(classification==1 && instanceClass.startsWith("1"))// Predicted positive, actually positive
+					else if(classification==1 && actual==1)// Predicted positive, actually positive
 					{
 						correctPositiveClassifications+=1;
 						stats.incrementTP();
 					}
-					else if(classification==0 && instanceClass.startsWith("1"))// Predicted negative, actually positive
+					else if(classification==0 && actual==1)// Predicted negative, actually positive
 					{	
 						stats.incrementFN();
 						misclassifiedLabelledInstances.append(getFeatures(data.instance(i),data.numAttributes()-1)+"1,FN\n");
 					}
-					else if(classification==0 && instanceClass.startsWith("0"))// Predicted negative, actually negative
+					else if(classification==0 && actual==0)// Predicted negative, actually negative
 					{
 						correctNegativeClassifications+=1;
 						stats.incrementTN();
@@ -297,126 +327,10 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(java.lang.String, boolean)
 	 */
-	@SuppressWarnings("unused")
 	@Override
 	public int[][] testStatic(String testSet,String outputPath,String truePosClass)
 	{
-		// Store training set file path.
-		this.testSetFilePath=testSet;
-
-		/**
-		 * The positively labelled data.
-		 */
-		TreeMap<Integer,String> labelledPositives;
-
-		/**
-		 * Negatively labelled data.
-		 */
-		TreeMap<Integer,String> labelledNegatives;
-
-		if(truePosClass!= null)
-			labelledPositives = this.getPositiveMetaData(truePosClass);
-		else
-			labelledPositives = new TreeMap<Integer,String>();
-
-		log.dualOut("Testing " + name,1);
-
-		try
-		{
-			// Test meta information and important variables.
-			int correctPositiveClassifications = 0;
-			int correctNegativeClassifications = 0;
-			int instanceNumber=0;
-
-			ClassifierStatistics stats = new ClassifierStatistics();
-
-			// Prepare data for testing
-			BufferedReader reader = new BufferedReader( new FileReader(this.testSetFilePath));
-			Instances data = new Instances(reader);
-			data.setClassIndex(data.numAttributes() - 1);
-
-			log.dualOut(name + " Classifier is ready.",1);
-			log.dualOut(name + " Testing on all instances available.",1);
-			log.dualOut("Test set: " + this.testSetFilePath,1);
-			log.dualOut("Test instances: " + data.numInstances(),1);
-
-			long startTime = System.nanoTime();
-
-			// label instances
-			for (int i = 0; i < data.numInstances(); i++) 
-			{
-				instanceNumber+=1;
-
-				// Classify the next data item.
-				double classification = learner.classifyInstance(data.instance(i));
-				String instanceClass= Double.toString(data.instance(i).classValue());
-
-				if(instanceClass.contains("NaN"))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
-				{
-					// If the current instance is on the list of POSITIVELY
-					// labelled examples.
-					if(labelledPositives.containsKey(instanceNumber))
-					{
-						if(classification==1)
-						{
-							correctPositiveClassifications+=1;
-							stats.incrementTP();
-						}
-						else if(classification==0)
-						{
-							stats.incrementFN();
-						}
-					}
-					else // THEN THIS DATA IS ALMOST CERTAINLY NEGATIVE.
-					{
-						if(classification==1)
-							stats.incrementFP();
-						else if(classification==0)
-						{
-							correctNegativeClassifications+=1;
-							stats.incrementTN();
-						}
-					}
-				}
-				else
-				{
-
-					// LABELLED TEST DATA - WEKA API knows the correct class.				
-					if(classification==1 && instanceClass.startsWith("0"))// Predicted positive, actually negative
-					{	
-						stats.incrementFP();
-					}
-					else if(classification==1 && instanceClass.startsWith("1"))// Predicted positive, actually positive
-					{
-						correctPositiveClassifications+=1;
-						stats.incrementTP();
-					}
-					else if(classification==0 && instanceClass.startsWith("1"))// Predicted negative, actually positive
-					{	
-						stats.incrementFN();
-					}
-					else if(classification==0 && instanceClass.startsWith("0"))// Predicted negative, actually negative
-					{
-						correctNegativeClassifications+=1;
-						stats.incrementTN();
-					}	
-				}
-			}
-
-			// Record time classification completed.
-			long endTime = System.nanoTime();
-			long duration = endTime - startTime;
-			double seconds = (double) duration / 1000000000.0;
-
-			log.dualOut("Testing "+name+" completed in "+duration+" (ns) or "+seconds+" (s)",1);
-
-			return stats.toConfusionMatrix();
-		}
-		catch (Exception e) 
-		{ 
-			log.erroruf("Could not test " +name+ " classifier due to an error",e); 
-			return new int[][] {{0,0},{0,0}}; // Return empty matrix.
-		}
+		return testStatic(testSet, outputPath, false, truePosClass);
 	}
 
 	/**
@@ -432,6 +346,9 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 
 		log.dualOut("Predicting using "+name,1);
 
+		// Used to store predictions.
+		WriterHandle predictions = null;
+
 		try
 		{
 			// Test meta information and important variables.
@@ -441,7 +358,7 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 			int instanceNumber=0;
 
 			// Prepare data for testing
-			BufferedReader reader = new BufferedReader( new FileReader(this.testSetFilePath));
+			BufferedReader reader = Reader.openReader(this.testSetFilePath);
 			Instances data = new Instances(reader);
 			data.setClassIndex(data.numAttributes() - 1);
 
@@ -449,11 +366,9 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 			log.dualOut(name + " Predicting on all instances available.",1);
 			log.dualOut("Prediction set instances: " + data.numInstances(),1);
 
-			// Used to store predictions.
-			StringBuilder predictions = new StringBuilder();
-
 			// Produce an ARFF file header for output predictions.
 			ProducePredictionsARFFHeader(predictionsPath,data.numAttributes());
+			predictions = Writer.open(predictionsPath);
 
 			long startTime = System.nanoTime();
 
@@ -477,18 +392,10 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 					predictions.append(getFeatures(data.instance(i),data.numAttributes()-1)+"0\n");
 					negativeClassifications++;
 				}
-
-				// Write buffer to file.
-				if(predictions.length()>10000)
-				{
-					Writer.append(predictionsPath, predictions.toString());
-					predictions.setLength(0);
-				}
 			}
 
 			// Empty buffer.
-			if(predictions.length()>0)
-				Writer.append(outputPath, predictions.toString());
+			predictions.flush();
 
 			// Report details.
 			long endTime = System.nanoTime();
@@ -505,6 +412,7 @@ public class StandardAlgorithmTester  extends WekaClassifier implements I_WekaTe
 			log.erroruf("Could not make predictions using " +name+ " classifier due to an error",e);
 			return false; 
 		}
+		finally{ Writer.close(predictions); }
 	}
 
 	/* (non-Javadoc)
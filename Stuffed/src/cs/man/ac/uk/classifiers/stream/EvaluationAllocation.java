@@ -0,0 +1,243 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	EvaluationAllocation.java
+ * Package: cs.man.ac.uk.classifiers.stream
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.classifiers.stream;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import moa.classifiers.AbstractClassifier;
+import moa.core.Measurement;
+import moa.streams.CachedInstancesStream;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import cs.man.ac.uk.common.LongBitSet;
+import cs.man.ac.uk.sample.TrueClass;
+
+/**
+ * The class EvaluationAllocation measures the heap allocated per test instance by the
+ * evaluation loop of the StreamAlgorithmTester, which decodes each instance's class as
+ * a primitive and so should allocate nothing per instance. It uses a classifier that
+ * returns preallocated votes, so that only the allocation of the loop itself is counted,
+ * and evaluates two test sets, one twice the size of the other. The difference in the
+ * bytes allocated by the current thread, as reported by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, divided by the
+ * difference in size, is the allocation per instance, as any fixed cost of a test (such
+ * as logging) cancels out. Run via the "allocation" target in build.xml; the process
+ * exits with status 1 if the allocation per instance exceeds the threshold given.
+ *
+ * <p>Usage: EvaluationAllocation [instances] [maximum bytes per instance]</p>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class EvaluationAllocation
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The number of instances in the smaller test set, by default.
+	 */
+	private static final int DEFAULT_INSTANCES = 100000;
+
+	/**
+	 * The number of times each test set is evaluated before measuring, so the
+	 * evaluation loop is compiled as it would be in a long run.
+	 */
+	private static final int WARM_UP = 10;
+
+	/**
+	 * The number of measurements taken, the smallest of which is reported.
+	 */
+	private static final int MEASUREMENTS = 5;
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Measures and reports the allocation per test instance.
+	 * @param args the number of instances in the smaller test set, and the maximum number
+	 *        of bytes that may be allocated per instance, both optional.
+	 * @throws Exception if the measurement can't be made.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int instances = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INSTANCES;
+		double threshold = args.length > 1 ? Double.parseDouble(args[1]) : 0.5;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+
+		File log = File.createTempFile("allocation", ".log");
+		log.deleteOnExit();
+
+		StreamAlgorithmTester tester = new StreamAlgorithmTester(log.getPath(), "Allocation", false, new FixedVotes());
+
+		Instances small = createTestSet(instances);
+		Instances large = createTestSet(instances * 2);
+		TrueClass smallPositives = createTrueClass(instances);
+		TrueClass largePositives = createTrueClass(instances * 2);
+
+		for(int i = 0; i < WARM_UP; i++)
+		{
+			tester.testStatic(new CachedInstancesStream(small), log.getPath(), false, smallPositives);
+			tester.testStatic(new CachedInstancesStream(large), log.getPath(), false, largePositives);
+		}
+
+		double perInstance = Double.MAX_VALUE;
+		int[][] matrix = null;
+
+		for(int i = 0; i < MEASUREMENTS; i++)
+		{
+			long start = threads.getThreadAllocatedBytes(thread);
+			tester.testStatic(new CachedInstancesStream(small), log.getPath(), false, smallPositives);
+			long middle = threads.getThreadAllocatedBytes(thread);
+			matrix = tester.testStatic(new CachedInstancesStream(large), log.getPath(), false, largePositives);
+			long end = threads.getThreadAllocatedBytes(thread);
+
+			perInstance = Math.min(perInstance, (double)((end - middle) - (middle - start)) / instances);
+		}
+
+		System.out.println("Confusion matrix: " + Arrays.deepToString(matrix));
+		System.out.println("Bytes allocated per test instance: " + perInstance + " (maximum " + threshold + ")");
+
+		if(perInstance > threshold)
+			System.exit(1);
+	}
+
+	/**
+	 * Creates a binary test set of two attributes and the class, in which every other
+	 * instance is unlabelled, so both ways the evaluation loop decodes a class are used.
+	 * @param size the number of instances.
+	 * @return the test set.
+	 */
+	private static Instances createTestSet(int size)
+	{
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		attributes.add(new Attribute("a"));
+		attributes.add(new Attribute("b"));
+		attributes.add(new Attribute("class", Arrays.asList("0", "1")));
+
+		Instances data = new Instances("allocation", attributes, size);
+		data.setClassIndex(2);
+
+		for(int i = 0; i < size; i++)
+		{
+			double[] values = { (i % 3) / 2.0, i % 5, (i % 7) < 3 ? 1 : 0 };
+
+			if(i % 2 == 1)
+				values[2] = weka.core.Utils.missingValue();
+
+			data.add(new DenseInstance(1.0, values));
+		}
+
+		return data;
+	}
+
+	/**
+	 * Creates the true class of the unlabelled instances of a test set made by
+	 * {@link #createTestSet(int)}.
+	 * @param size the number of instances.
+	 * @return the true class.
+	 */
+	private static TrueClass createTrueClass(int size)
+	{
+		LongBitSet positives = new LongBitSet(size);
+
+		for(int i = 0; i < size; i++)
+			if(i % 2 == 1 && (i % 7) < 3)
+				positives.set(i); // Bit i is the instance at position i+1.
+
+		return new TrueClass(size, positives);
+	}
+
+	//*****************************************
+	//*****************************************
+	//             FixedVotes
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * A classifier that predicts from the first attribute, returning one of two
+	 * preallocated arrays of votes, so that it allocates nothing per instance.
+	 */
+	private static class FixedVotes extends AbstractClassifier
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The votes for each class.
+		 */
+		private final double[] negative = {1, 0}, positive = {0, 1};
+
+		/* (non-Javadoc)
+		 * @see moa.classifiers.Classifier#getVotesForInstance(weka.core.Instance)
+		 */
+		@Override
+		public double[] getVotesForInstance(Instance inst){ return inst.value(0) > 0.5 ? positive : negative; }
+
+		/* (non-Javadoc)
+		 * @see moa.classifiers.Classifier#isRandomizable()
+		 */
+		@Override
+		public boolean isRandomizable(){ return false; }
+
+		/* (non-Javadoc)
+		 * @see moa.classifiers.AbstractClassifier#resetLearningImpl()
+		 */
+		@Override
+		public void resetLearningImpl(){}
+
+		/* (non-Javadoc)
+		 * @see moa.classifiers.AbstractClassifier#trainOnInstanceImpl(weka.core.Instance)
+		 */
+		@Override
+		public void trainOnInstanceImpl(Instance inst){}
+
+		/* (non-Javadoc)
+		 * @see moa.classifiers.AbstractClassifier#getModelMeasurementsImpl()
+		 */
+		@Override
+		protected Measurement[] getModelMeasurementsImpl(){ return new Measurement[0]; }
+
+		/* (non-Javadoc)
+		 * @see moa.classifiers.AbstractClassifier#getModelDescription(java.lang.StringBuilder, int)
+		 */
+		@Override
+		public void getModelDescription(StringBuilder out,int indent){}
+	}
+}
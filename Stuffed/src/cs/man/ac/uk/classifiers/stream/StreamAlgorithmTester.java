@@ -26,24 +26,27 @@
  */
 package cs.man.ac.uk.classifiers.stream;
 
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Random;
-import java.util.TreeMap;
 
 import moa.classifiers.AbstractClassifier;
-import moa.streams.ArffFileStream;
+import moa.streams.CachedInstancesStream;
+import moa.streams.InstanceStream;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Utils;
 import cs.man.ac.uk.common.Common;
+import cs.man.ac.uk.common.LongBitSet;
 import cs.man.ac.uk.io.Writer;
+import cs.man.ac.uk.io.WriterHandle;
+import cs.man.ac.uk.moawrappers.CompressedArffFileStream;
 import cs.man.ac.uk.moawrappers.I_WekaTest;
 import cs.man.ac.uk.moawrappers.MOAClassifier;
+import cs.man.ac.uk.sample.SampledInstances;
+import cs.man.ac.uk.sample.TrueClass;
 import cs.man.ac.uk.stats.ClassifierStatistics;
 
 /**
@@ -116,9 +119,37 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 
 			// Since the file is expected to be large, open using a stream reader,
 			// which reads in each instance in the file incrementally.
-			this.trainingStream = new ArffFileStream (this.trainingSetFilePath, -1);
+			this.trainingStream = CompressedArffFileStream.open(this.trainingSetFilePath, -1);
 			this.trainingStream.prepareForUse();
 
+			return train(this.trainingStream);
+		}
+		catch (Exception e) 
+		{ 
+			log.erroruf("Could not train "+name+" classifier Exception building model", e);
+			return false;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#train(weka.core.Instances)
+	 */
+	@Override
+	public boolean train(Instances data)
+	{
+		return train(new CachedInstancesStream(data));
+	}
+
+	/**
+	 * Trains the classifier on every instance in a stream, such as the training set
+	 * stream of a sample held in memory, see {@link SampledInstances#getTrainingStream()}.
+	 * @param stream the stream of training instances, ready for use.
+	 * @return true if trained successfully, else false.
+	 */
+	public boolean train(InstanceStream stream)
+	{
+		try
+		{
 			log.dualOut("Training " + name,1);
 			long startTime = System.nanoTime();
 
@@ -126,12 +157,12 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 			double numberSamples = 0;
 			double numberSamplesCorrect = 0;
 
-			learner.setModelContext (trainingStream.getHeader());
+			learner.setModelContext (stream.getHeader());
 			learner.prepareForUse();
 
-			while ( trainingStream.hasMoreInstances() )
+			while ( stream.hasMoreInstances() )
 			{
-				Instance trainInst = trainingStream.nextInstance(); 
+				Instance trainInst = stream.nextInstance(); 
 
 				if(learner.correctlyClassifies(trainInst))
 					numberSamplesCorrect++;
@@ -169,7 +200,6 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(java.lang.String, java.lang.String, boolean)
 	 */
-	@SuppressWarnings("unused")
 	@Override
 	public int[][] testStatic(String testSet,String outputPath, boolean recordMissclassifications,String truePosClass)
 	{
@@ -180,128 +210,64 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 			/**
 			 * The positively labelled data.
 			 */
-			TreeMap<Integer,String> labelledPositives;
-
-			/**
-			 * Negatively labelled data.
-			 */
-			TreeMap<Integer,String> labelledNegatives;
+			TrueClass labelledPositives;
 
 			if(truePosClass!= null)
 				labelledPositives = this.getPositiveMetaData(truePosClass);
 			else
-				labelledPositives = new TreeMap<Integer,String>();
+				labelledPositives = new TrueClass(0, new LongBitSet());
 			
-			this.testStream = new ArffFileStream (this.testSetFilePath, -1);
+			this.testStream = CompressedArffFileStream.open(this.testSetFilePath, -1);
 			this.testStream.prepareForUse();
 
-			log.dualOut("Testing " + name,1);
-
-			// Test meta information and important variables.
-			int correctPositiveClassifications = 0;
-			int correctNegativeClassifications = 0;
-			int instanceNumber=0;
-
-			ClassifierStatistics stats = new ClassifierStatistics();
-
-			//Used to store and append output information.
-			StringBuilder misclassifiedLabelledInstances = new StringBuilder();
-
-			// Prepare data for testing
-			BufferedReader reader = new BufferedReader( new FileReader(this.testSetFilePath));
-			Instances data = new Instances(reader);
-			data.setClassIndex(data.numAttributes() - 1);
-
-			log.dualOut(name + " Classifier is ready.",1);
-			log.dualOut(name + " Testing on all instances available.",1);
+			// The test set is only streamed, so it is counted rather than parsed onto the heap.
 			log.dualOut("Test set: " + this.testSetFilePath,1);
-			log.dualOut("Test instances: " + data.numInstances(),1);
-			log.dualOut("Training examples already seen: " + learner.trainingWeightSeenByModel(),1);
-
-			learner.setModelContext (testStream.getHeader());
-			learner.prepareForUse();
+			log.dualOut("Test instances: " + CompressedArffFileStream.countInstances(this.testSetFilePath),1);
 
-			long startTime = System.nanoTime();
-			int correct = 0;
-			while ( testStream.hasMoreInstances() )
-			{
-				Instance testInst = testStream.nextInstance(); 
-				instanceNumber+=1;
-
-				String instanceClass= Double.toString(testInst.classValue());
+			return testStatic(this.testStream, outputPath, recordMissclassifications, labelledPositives);
+		}
+		catch (Exception e) 
+		{ 
+			log.erroruf("Could not test " + name + " classifier due to an error",e);
+			return new int[][] {{0,0},{0,0}}; // Return empty matrix.
+		}
+	}
 
-				if(learner.correctlyClassifies(testInst))
-					correct++;
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(weka.core.Instances, java.lang.String, boolean, cs.man.ac.uk.sample.TrueClass)
+	 */
+	@Override
+	public int[][] testStatic(Instances data,String outputPath, boolean recordMissclassifications,TrueClass labelledPositives)
+	{
+		log.dualOut("Test instances: " + data.numInstances(),1);
 
-				double[] votes = learner.getVotesForInstance(testInst);
-				int classification = Utils.maxIndex(votes);
+		return testStatic(new CachedInstancesStream(data), outputPath, recordMissclassifications, labelledPositives);
+	}
 
-				if(instanceClass.contains("NaN"))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
-				{
-					// If the current instance is on the list of POSITIVELY
-					// labelled examples.
-					if(labelledPositives.containsKey(instanceNumber))
-					{
-						if(classification==1)
-						{
-							correctPositiveClassifications+=1;
-							stats.incrementTP();
-						}
-						else if(classification==0)
-						{
-							stats.incrementFN();
-							misclassifiedLabelledInstances.append(getFeatures(testInst,data.numAttributes()-1)+"1,FN\n");
-						}
-					}
-					else // THEN THIS DATA IS ALMOST CERTAINLY NEGATIVE.
-					{
-						if(classification==1)
-						{
-							stats.incrementFP();
-							misclassifiedLabelledInstances.append(getFeatures(testInst,data.numAttributes()-1)+"0,FP\n");
-						}
-						else if(classification==0)
-						{
-							correctNegativeClassifications+=1;
-							stats.incrementTN();
-						}
-					}
-				}
-				else
-				{
+	/**
+	 * Tests the classifier on every instance in a stream, but does not learn on the test
+	 * examples (static data set equivalent).
+	 * @param stream the stream of test instances, ready for use.
+	 * @param outputPath the path to write results to.
+	 * @param recordMissclassifications a flag that when true, tells the classifier
+	 *        to record all the mistakes made on data for which there are labels.
+	 * @param labelledPositives the positive examples in the test set.
+	 * @return confusion matrix describing binary classification outcomes.
+	 */
+	public int[][] testStatic(InstanceStream stream,String outputPath, boolean recordMissclassifications,TrueClass labelledPositives)
+	{
+		try
+		{
+			log.dualOut("Testing " + name,1);
 
-					// LABELLED TEST DATA - MOA knows the correct class.				
-					if(classification==1 && instanceClass.startsWith("0"))// Predicted positive, actually negative
-					{	
-						stats.incrementFP();
-						misclassifiedLabelledInstances.append(getFeatures(testInst,data.numAttributes()-1)+"0,FP\n");
-					}
-					else if(classification==1 && instanceClass.startsWith("1"))// Predicted positive, actually positive
-					{
-						correctPositiveClassifications+=1;
-						stats.incrementTP();
-					}
-					else if(classification==0 && instanceClass.startsWith("1"))// Predicted negative, actually positive
-					{	
-						stats.incrementFN();
-						misclassifiedLabelledInstances.append(getFeatures(testInst,data.numAttributes()-1)+"1,FN\n");
-					}
-					else if(classification==0 && instanceClass.startsWith("0"))// Predicted negative, actually negative
-					{
-						correctNegativeClassifications+=1;
-						stats.incrementTN();
-					}	
-				}
-			}
+			// The number of attributes, including the class.
+			int attributes = stream.getHeader().numAttributes();
 
-			double accuracy = 100.0 * (double) correct / (double) instanceNumber; 
-			log.dualOut(name+ " tested on " + instanceNumber + " instances & has "+accuracy+"% accuracy.",1);
+			//Used to store and append output information, only if it is to be recorded.
+			StringBuilder misclassifiedLabelledInstances = recordMissclassifications ? new StringBuilder() : null;
 
-			long endTime = System.nanoTime();
-			long duration = endTime - startTime;
-			double seconds = (double) duration / 1000000000.0;
+			ClassifierStatistics stats = evaluate(stream, false, labelledPositives, misclassifiedLabelledInstances);
 
-			log.dualOut("Testing " + name + " completed in "+duration+" (ns) or "+seconds+" (s)",1);
 			log.dualOut(name + " Performance",1);
 
 			if(recordMissclassifications)
@@ -322,7 +288,7 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 					// in ARFF format.
 					String timestamp = Common.getCondensedTime("_")+"_"+Common.getDateWithSeperator("_");
 					String missclassifiedARRFPath = outputPath.replace(extension, "_Missclassified_" + timestamp + ".arff");
-					missclassificationsToARFF(missclassifiedARRFPath, misclassifiedLabelledInstances.toString(), data.numAttributes());
+					missclassificationsToARFF(missclassifiedARRFPath, misclassifiedLabelledInstances.toString(), attributes);
 				}
 			}
 
@@ -335,143 +301,145 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 		}
 	}
 
-
-	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(java.lang.String, java.lang.String)
+	/**
+	 * The evaluation loop shared by the static and stream tests. The classifier's votes
+	 * are computed once per instance, and the accuracy, the confusion matrix and any
+	 * record of misclassifications are all derived from that one prediction, rather than
+	 * predicting again via {@link AbstractClassifier#correctlyClassifies(Instance)}.
+	 * 
+	 * @param stream the stream of test instances, ready for use.
+	 * @param learn if true the classifier is trained on each instance after it is tested
+	 *        (prequential evaluation), else it is only tested.
+	 * @param labelledPositives the positive examples in the test set.
+	 * @param misclassified if not null, the features of each misclassified instance are appended to it.
+	 * @return the classification outcomes.
+	 * @throws Exception if the stream can't be read or the classifier fails.
 	 */
 	@SuppressWarnings("unused")
-	@Override
-	public int[][] testStatic(String testSet,String outputPath,String truePosClass)
+	private ClassifierStatistics evaluate(InstanceStream stream,boolean learn,TrueClass labelledPositives,StringBuilder misclassified) throws Exception
 	{
-		try
-		{
-			this.testSetFilePath = testSet;
-
-			/**
-			 * The positively labelled data.
-			 */
-			TreeMap<Integer,String> labelledPositives;
-
-			/**
-			 * Negatively labelled data.
-			 */
-			TreeMap<Integer,String> labelledNegatives;
-
-			if(truePosClass!= null)
-				labelledPositives = this.getPositiveMetaData(truePosClass);
-			else
-				labelledPositives = new TreeMap<Integer,String>();
-
-			this.testStream = new ArffFileStream (this.testSetFilePath, -1);
-			this.testStream.prepareForUse();
+		// Test meta information and important variables.
+		int correctPositiveClassifications = 0;
+		int correctNegativeClassifications = 0;
+		int instanceNumber=0;
 
-			log.dualOut("Testing " + name,1);
+		ClassifierStatistics stats = new ClassifierStatistics();
 
-			// Test meta information and important variables.
-			int correctPositiveClassifications = 0;
-			int correctNegativeClassifications = 0;
-			int instanceNumber=0;
+		// The number of attributes, including the class.
+		int attributes = stream.getHeader().numAttributes();
 
-			ClassifierStatistics stats = new ClassifierStatistics();
+		log.dualOut(name + " Classifier is ready.",1);
+		log.dualOut(name + " Testing on all instances available.",1);
+		log.dualOut("Training examples already seen: " + learner.trainingWeightSeenByModel(),1);
 
-			// Prepare data for testing
-			BufferedReader reader = new BufferedReader( new FileReader(this.testSetFilePath));
-			Instances data = new Instances(reader);
-			data.setClassIndex(data.numAttributes() - 1);
+		learner.setModelContext (stream.getHeader());
+		learner.prepareForUse();
 
-			log.dualOut(name + " Classifier is ready.",1);
-			log.dualOut(name + " Testing on all instances available.",1);
-			log.dualOut("Test set: " + this.testSetFilePath,1);
-			log.dualOut("Test instances: " + data.numInstances(),1);
-			log.dualOut("Training examples already seen: " + learner.trainingWeightSeenByModel(),1);
+		long startTime = System.nanoTime();
+		int correct = 0;
+		while ( stream.hasMoreInstances() )
+		{
+			Instance testInst = stream.nextInstance(); 
+			instanceNumber+=1;
 
-			learner.setModelContext (testStream.getHeader());
-			learner.prepareForUse();
+			// The class index, NaN if the instance is unlabelled.
+			double instanceClass = testInst.classValue();
 
-			long startTime = System.nanoTime();
+			// The only prediction made for this instance.
+			double[] votes = learner.getVotesForInstance(testInst);
+			int classification = Utils.maxIndex(votes);
 
-			int correct = 0;
+			// As correctlyClassifies() does, so an unlabelled (NaN) class is taken as class 0.
+			if(classification == (int)instanceClass)
+				correct++;
 
-			while ( testStream.hasMoreInstances() )
+			if(Double.isNaN(instanceClass))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
 			{
-				Instance testInst = testStream.nextInstance(); 
-				instanceNumber+=1;
-
-				String instanceClass= Double.toString(testInst.classValue());
-
-				if(learner.correctlyClassifies(testInst))
-					correct++;
-
-				double[] votes = learner.getVotesForInstance(testInst);
-				int classification = Utils.maxIndex(votes);
-
-				if(instanceClass.contains("NaN"))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
+				// If the current instance is on the list of POSITIVELY
+				// labelled examples.
+				if(labelledPositives.isPositive(instanceNumber))
 				{
-					// If the current instance is on the list of POSITIVELY
-					// labelled examples.
-					if(labelledPositives.containsKey(instanceNumber))
+					if(classification==1)
 					{
-						if(classification==1)
-						{
-							correctPositiveClassifications+=1;
-							stats.incrementTP();
-						}
-						else if(classification==0)
-						{
-							stats.incrementFN();
-						}
+						correctPositiveClassifications+=1;
+						stats.incrementTP();
 					}
-					else // THEN THIS DATA IS ALMOST CERTAINLY NEGATIVE.
+					else if(classification==0)
 					{
-						if(classification==1)
-							stats.incrementFP();
-						else if(classification==0)
-						{
-							correctNegativeClassifications+=1;
-							stats.incrementTN();
-						}
+						stats.incrementFN();
+						if(misclassified != null)
+							misclassified.append(getFeatures(testInst,attributes-1)+"1,FN\n");
 					}
 				}
-				else
+				else // THEN THIS DATA IS ALMOST CERTAINLY NEGATIVE.
 				{
-					// LABELLED TEST DATA - MOA knows the correct class.				
-					if(classification==1 && instanceClass.startsWith("0"))// Predicted positive, actually negative
-					{	
-						stats.incrementFP();
-					}
-					else if(classification==1 && instanceClass.startsWith("1"))// Predicted positive, actually positive
+					if(classification==1)
 					{
-						correctPositiveClassifications+=1;
-						stats.incrementTP();
-					}
-					else if(classification==0 && instanceClass.startsWith("1"))// Predicted negative, actually positive
-					{	
-						stats.incrementFN();
+						stats.incrementFP();
+						if(misclassified != null)
+							misclassified.append(getFeatures(testInst,attributes-1)+"0,FP\n");
 					}
-					else if(classification==0 && instanceClass.startsWith("0"))// Predicted negative, actually negative
+					else if(classification==0)
 					{
 						correctNegativeClassifications+=1;
 						stats.incrementTN();
-					}	
+					}
+				}
+			}
+			else
+			{
+				// LABELLED TEST DATA - MOA knows the correct class.
+				int actual = (int)instanceClass;
+
+				if(classification==1 && actual==0)// Predicted positive, actually negative
+				{	
+					stats.incrementFP();
+					if(misclassified != null)
+						misclassified.append(getFeatures(testInst,attributes-1)+"0,FP\n");
+				}
+				else if(classification==1 && actual==1)// Predicted positive, actually positive
+				{
+					correctPositiveClassifications+=1;
+					stats.incrementTP();
 				}
+				else if(classification==0 && actual==1)// Predicted negative, actually positive
+				{	
+					stats.incrementFN();
+					if(misclassified != null)
+						misclassified.append(getFeatures(testInst,attributes-1)+"1,FN\n");
+				}
+				else if(classification==0 && actual==0)// Predicted negative, actually negative
+				{
+					correctNegativeClassifications+=1;
+					stats.incrementTN();
+				}	
 			}
 
-			double accuracy = 100.0 * (double) correct / (double) instanceNumber; 
-			log.dualOut(name+ " tested on " + instanceNumber + " instances & has "+accuracy+"% accuracy.",1);
+			// Train on the instance once tested, if possible.
+			if(learn)
+				learner.trainOnInstance(testInst);
+		}
 
-			long endTime = System.nanoTime();
-			long duration = endTime - startTime;
-			double seconds = (double) duration / 1000000000.0;
+		double accuracy = 100.0 * (double) correct / (double) instanceNumber; 
+		log.dualOut(name+ " tested on " + instanceNumber + " instances & has "+accuracy+"% accuracy.",1);
 
-			log.dualOut("Testing " + name + " completed in "+duration+" (ns) or "+seconds+" (s)",1);
+		long endTime = System.nanoTime();
+		long duration = endTime - startTime;
+		double seconds = (double) duration / 1000000000.0;
 
-			return stats.toConfusionMatrix();
-		}
-		catch (Exception e) 
-		{ 
-			log.erroruf("Could not test " +name+ " classifier due to an error",e); 
-			return new int[][] {{0,0},{0,0}}; // Return empty matrix.
-		}
+		log.dualOut("Testing " + name + " completed in "+duration+" (ns) or "+seconds+" (s)",1);
+
+		return stats;
+	}
+
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.moawrappers.I_WekaTest#testStatic(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public int[][] testStatic(String testSet,String outputPath,String truePosClass)
+	{
+		return testStatic(testSet, outputPath, false, truePosClass);
 	}
 
 
@@ -487,7 +455,6 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 	 * @param truePosClass the positive meta data.
 	 * @return a confusion matrix describing classifier performance.
 	 */
-	@SuppressWarnings("unused")
 	public int[][] testStream(String testSet,String outputPath,String truePosClass)
 	{
 		try
@@ -497,128 +464,46 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 			/**
 			 * The positively labelled data.
 			 */
-			TreeMap<Integer,String> labelledPositives;
-
-			/**
-			 * Negatively labelled data.
-			 */
-			TreeMap<Integer,String> labelledNegatives;
+			TrueClass labelledPositives;
 
 			if(truePosClass!= null)
 				labelledPositives = this.getPositiveMetaData(truePosClass);
 			else
-				labelledPositives = new TreeMap<Integer,String>();
+				labelledPositives = new TrueClass(0, new LongBitSet());
 
-			this.testStream = new ArffFileStream (this.testSetFilePath, -1);
+			this.testStream = CompressedArffFileStream.open(this.testSetFilePath, -1);
 			this.testStream.prepareForUse();
 
-			log.dualOut("Testing " + name,1);
-
-			// Test meta information and important variables.
-			int correctPositiveClassifications = 0;
-			int correctNegativeClassifications = 0;
-			int instanceNumber=0;
-
-			ClassifierStatistics stats = new ClassifierStatistics();
-
-			//Used to store and append output information.
-			StringBuilder misclassifiedLabelledInstances = new StringBuilder();
-
-			// Prepare data for testing
-			BufferedReader reader = new BufferedReader( new FileReader(this.testSetFilePath));
-			Instances data = new Instances(reader);
-			data.setClassIndex(data.numAttributes() - 1);
-
-			log.dualOut(name + " Classifier is ready.",1);
-			log.dualOut(name + " Testing on all instances available.",1);
+			// The test set is only streamed, so it is counted rather than parsed onto the heap.
 			log.dualOut("Test set: " + this.testSetFilePath,1);
-			log.dualOut("Test instances: " + data.numInstances(),1);
-			log.dualOut("Training examples already seen: " + learner.trainingWeightSeenByModel(),1); 
-
-			learner.setModelContext (testStream.getHeader());
-			learner.prepareForUse();
-
-			long startTime = System.nanoTime();
-			int correct = 0;
-			while ( testStream.hasMoreInstances() )
-			{
-				Instance testInst = testStream.nextInstance(); 
-				instanceNumber+=1;
-
-				String instanceClass= Double.toString(testInst.classValue());
-
-				if(learner.correctlyClassifies(testInst))
-					correct++;
-
-				double[] votes = learner.getVotesForInstance(testInst);
-				int classification = Utils.maxIndex(votes);
-
-				if(instanceClass.contains("NaN"))// UNLABELLED TEST DATA - MOA does not know what the correct class is!
-				{
-					// If the current instance is on the list of POSITIVELY
-					// labelled examples.
-					if(labelledPositives.containsKey(instanceNumber))
-					{
-						if(classification==1)
-						{
-							correctPositiveClassifications+=1;
-							stats.incrementTP();
-						}
-						else if(classification==0)
-						{
-							stats.incrementFN();
-						}
-					}
-					else // THEN THIS DATA IS ALMOST CERTAINLY NEGATIVE.
-					{
-						if(classification==1)
-							stats.incrementFP();
-						else if(classification==0)
-						{
-							correctNegativeClassifications+=1;
-							stats.incrementTN();
-						}
-					}
-
-					// Train on unlabelled data if possible.
-					learner.trainOnInstance(testInst);
-				}
-				else
-				{
-					// LABELLED TEST DATA - MOA knows the correct class.				
-					if(classification==1 && instanceClass.startsWith("0"))// Predicted positive, actually negative
-					{	
-						stats.incrementFP();
-					}
-					else if(classification==1 && instanceClass.startsWith("1"))// Predicted positive, actually positive
-					{
-						correctPositiveClassifications+=1;
-						stats.incrementTP();
-					}
-					else if(classification==0 && instanceClass.startsWith("1"))// Predicted negative, actually positive
-					{	
-						stats.incrementFN();
-					}
-					else if(classification==0 && instanceClass.startsWith("0"))// Predicted negative, actually negative
-					{
-						correctNegativeClassifications+=1;
-						stats.incrementTN();
-					}	
-
-					learner.trainOnInstance(testInst);
-				}
-			}
-
-			double accuracy = 100.0 * (double) correct / (double) instanceNumber; 
-			log.dualOut(name+ " tested on " + instanceNumber + " instances & has "+accuracy+"% accuracy.",1);
+			log.dualOut("Test instances: " + CompressedArffFileStream.countInstances(this.testSetFilePath),1);
 
-			long endTime = System.nanoTime();
-			long duration = endTime - startTime;
-			double seconds = (double) duration / 1000000000.0;
+			return testStream(this.testStream, outputPath, labelledPositives);
+		}
+		catch (Exception e) 
+		{ 
+			log.erroruf("Could not test " +name+ " classifier due to an error",e); 
+			return new int[][] {{0,0},{0,0}}; // Return empty matrix.
+		}
+	}
 
-			log.dualOut("Testing " + name + " completed in "+duration+" (ns) or "+seconds+" (s)",1);
+	/**
+	 * Performs a stream test (binary classification) on every instance in a stream,
+	 * as described by {@link #testStream(String, String, String)}. The stream may be
+	 * the test set stream of a sample held in memory, see {@link SampledInstances#getTestStream()}.
+	 * 
+	 * @param stream the stream of test instances, ready for use.
+	 * @param outputPath the file to write logging statements to.
+	 * @param labelledPositives the positive examples in the test set.
+	 * @return a confusion matrix describing classifier performance.
+	 */
+	public int[][] testStream(InstanceStream stream,String outputPath,TrueClass labelledPositives)
+	{
+		try
+		{
+			log.dualOut("Testing " + name,1);
 
-			return stats.toConfusionMatrix();
+			return evaluate(stream, true, labelledPositives, null).toConfusionMatrix();
 		}
 		catch (Exception e) 
 		{ 
@@ -638,11 +523,14 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 		// Store training set file path.
 		this.testSetFilePath = newData;
 
-		this.testStream = new ArffFileStream (this.testSetFilePath, -1);
+		this.testStream = CompressedArffFileStream.open(this.testSetFilePath, -1);
 		this.testStream.prepareForUse();
 
 		log.dualOut("Predicting using " + name,1);
 
+		// Used to store predictions.
+		WriterHandle predictions = null;
+
 		try
 		{
 			// Test meta information and important variables.
@@ -651,11 +539,9 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 			@SuppressWarnings("unused")
 			int instanceNumber=0;
 
-			//Used to store and append output information.
-			StringBuilder predictions = new StringBuilder();
-
 			// Produce an ARFF file header for output predictions.
 			ProducePredictionsARFFHeader(predictionsPath,testStream.getHeader().numAttributes());
+			predictions = Writer.open(predictionsPath);
 
 			log.dualOut(name + " Classifier is ready.",1);
 			log.dualOut(name + " Predicting on all instances available.",1);
@@ -674,8 +560,6 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 				double[] votes = learner.getVotesForInstance(testInst);
 				int classification = Utils.maxIndex(votes);
 
-				String instanceClass = Double.toString(testInst.classValue());
-
 				if(classification==1)// Predicted positive.
 				{
 					predictions.append(getFeatures(testInst,testInst.numAttributes()-1)+"1\n");
@@ -688,20 +572,12 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 				}
 
 				// If label is available, train.
-				if(!instanceClass.contains("NaN"))
+				if(!Double.isNaN(testInst.classValue()))
 					learner.trainOnInstance(testInst);
-
-				// Write buffer to file.
-				if(predictions.length()>10000)
-				{
-					Writer.append(predictionsPath, predictions.toString());
-					predictions.setLength(0);
-				}
 			}
 
 			// Empty buffer.
-			if(predictions.length()>0)
-				Writer.append(outputPath, predictions.toString());
+			predictions.flush();
 
 			// Report details.
 			long endTime = System.nanoTime();
@@ -718,6 +594,7 @@ public class StreamAlgorithmTester  extends MOAClassifier implements I_WekaTest
 			log.erroruf("Could not make predictions using " +name+ " classifier due to an error",e);
 			return false;
 		}
+		finally{ Writer.close(predictions); }
 	}
 
 	/**
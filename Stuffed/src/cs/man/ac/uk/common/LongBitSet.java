@@ -0,0 +1,283 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	LongBitSet.java
+ * Package: cs.man.ac.uk.common
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.common;
+
+import java.util.Arrays;
+
+/**
+ * The class LongBitSet is a bit set indexed by long, so unlike {@link java.util.BitSet}
+ * it can hold more than 2^31 bits. The bits are stored in pages of 64 bit words, which
+ * are only allocated once a bit within them is set, so a sparse set stays small. The
+ * set grows as bits are set beyond its current size.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class LongBitSet
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The number of words in a page is 2^PAGE_BITS, i.e. 512KB per page.
+	 */
+	private static final int PAGE_BITS = 16;
+
+	/**
+	 * The number of words in a page.
+	 */
+	private static final int PAGE_WORDS = 1 << PAGE_BITS;
+
+	/**
+	 * Masks the position of a word within its page.
+	 */
+	private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+	/**
+	 * The pages of words, bit i being bit (i % 64) of word i / 64. A null page has no bits set.
+	 */
+	private long[][] pages;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Creates an empty bit set.
+	 */
+	public LongBitSet()
+	{
+		this(0);
+	}
+
+	/**
+	 * Creates an empty bit set, with room for the specified number of bits.
+	 * @param bits the number of bits expected.
+	 */
+	public LongBitSet(long bits)
+	{
+		this.pages = new long[(int)(((bits + 63) >>> 6) + PAGE_MASK >>> PAGE_BITS)][];
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param i the index of a bit.
+	 * @return true if the bit is set, else false.
+	 */
+	public boolean get(long i)
+	{
+		return (getWord(i >>> 6) & (1L << i)) != 0;
+	}
+
+	/**
+	 * Sets a bit.
+	 * @param i the index of the bit to set.
+	 */
+	public void set(long i)
+	{
+		long[] page = page(i >>> 6);
+		page[(int)((i >>> 6) & PAGE_MASK)] |= 1L << i;
+	}
+
+	/**
+	 * Sets the bits from one index up to but not including another.
+	 * @param from the index of the first bit to set.
+	 * @param to the index after the last bit to set.
+	 */
+	public void set(long from,long to)
+	{
+		for(long i = from; i < to; i++)
+		{
+			if((i & 63) == 0 && to - i >= 64)
+			{
+				setWord(i >>> 6, -1L);
+				i += 63;
+			}
+			else
+				set(i);
+		}
+	}
+
+	/**
+	 * Finds the next set bit.
+	 * @param from the index to start searching from, inclusive.
+	 * @return the index of the next set bit, or -1 if there is none.
+	 */
+	public long nextSetBit(long from)
+	{
+		long w = from >>> 6;
+		long words = getWordCount();
+
+		if(w >= words)
+			return -1;
+
+		long word = getWord(w) & (-1L << from);
+
+		while(true)
+		{
+			if(word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+
+			if(++w >= words)
+				return -1;
+
+			// Skip pages that were never allocated.
+			if(pages[(int)(w >>> PAGE_BITS)] == null)
+			{
+				w = (w | PAGE_MASK);
+				word = 0;
+				continue;
+			}
+
+			word = getWord(w);
+		}
+	}
+
+	/**
+	 * @return the number of set bits.
+	 */
+	public long cardinality()
+	{
+		long count = 0;
+
+		for(long[] page : pages)
+			if(page != null)
+				for(long word : page)
+					count += Long.bitCount(word);
+
+		return count;
+	}
+
+	/**
+	 * Sets every bit in another set, each moved along by an offset.
+	 * @param other the bits to set.
+	 * @param offset the value added to the index of each bit.
+	 */
+	public void or(LongBitSet other,long offset)
+	{
+		for(long i = other.nextSetBit(0); i >= 0; i = other.nextSetBit(i+1))
+			set(i + offset);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof LongBitSet))
+			return false;
+
+		LongBitSet other = (LongBitSet)o;
+		long words = Math.max(getWordCount(), other.getWordCount());
+
+		for(long w = 0; w < words; w++)
+			if(getWord(w) != other.getWord(w))
+				return false;
+
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode()
+	{
+		long h = 1234;
+
+		for(long w = getWordCount(); --w >= 0;)
+			h ^= getWord(w) * (w + 1);
+
+		return (int)((h >> 32) ^ h);
+	}
+
+	/**
+	 * @param w the index of a word, bit i being in word i / 64.
+	 * @return the word, or zero if it is beyond the end of the set.
+	 */
+	public long getWord(long w)
+	{
+		int p = (int)(w >>> PAGE_BITS);
+
+		if(p >= pages.length || pages[p] == null)
+			return 0;
+
+		return pages[p][(int)(w & PAGE_MASK)];
+	}
+
+	/**
+	 * Replaces a word.
+	 * @param w the index of the word, bit i being in word i / 64.
+	 * @param word the new value of the word.
+	 */
+	public void setWord(long w,long word)
+	{
+		if(word == 0 && getWord(w) == 0)
+			return;
+
+		page(w)[(int)(w & PAGE_MASK)] = word;
+	}
+
+	/**
+	 * Returns the page holding a word, allocating it and growing the set if required.
+	 * @param w the index of the word.
+	 * @return the page holding the word.
+	 */
+	private long[] page(long w)
+	{
+		int p = (int)(w >>> PAGE_BITS);
+
+		if(p >= pages.length)
+			pages = Arrays.copyOf(pages, Math.max(p + 1, pages.length * 2));
+
+		if(pages[p] == null)
+			pages[p] = new long[PAGE_WORDS];
+
+		return pages[p];
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of words the set has room for, bits beyond these are not set.
+	 */
+	public long getWordCount(){ return (long)pages.length << PAGE_BITS; }
+}
@@ -0,0 +1,188 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	LongHashMap.java
+ * Package: cs.man.ac.uk.common
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.common;
+
+/**
+ * The class LongHashMap maps primitive long keys to primitive long values, using open
+ * addressing with linear probing, so no key or value is ever boxed. It supports only
+ * the operations needed to track the few positions moved by a partial shuffle of a
+ * range far too large to hold in an array.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class LongHashMap
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The keys, in the slots they hash to.
+	 */
+	private long[] keys;
+
+	/**
+	 * The value stored for the key in the same slot.
+	 */
+	private long[] values;
+
+	/**
+	 * Flags that when true indicate the slot holds a key.
+	 */
+	private boolean[] used;
+
+	/**
+	 * The number of keys stored.
+	 */
+	private int size = 0;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Creates an empty map.
+	 * @param expected the number of keys expected, the map grows if more are stored.
+	 */
+	public LongHashMap(int expected)
+	{
+		int capacity = 16;
+
+		while(capacity < expected * 2L && capacity < (1 << 30))
+			capacity <<= 1;
+
+		allocate(capacity);
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param key the key to look up.
+	 * @param missing the value to return if the key is not in the map.
+	 * @return the value stored for the key, or missing if there is none.
+	 */
+	public long get(long key,long missing)
+	{
+		int slot = find(key);
+		return used[slot] ? values[slot] : missing;
+	}
+
+	/**
+	 * Stores a value for a key, replacing any value already stored for it.
+	 * @param key the key.
+	 * @param value the value.
+	 */
+	public void put(long key,long value)
+	{
+		int slot = find(key);
+
+		if(!used[slot])
+		{
+			if((size + 1) * 2L > keys.length)
+			{
+				grow();
+				slot = find(key);
+			}
+
+			used[slot] = true;
+			keys[slot] = key;
+			size++;
+		}
+
+		values[slot] = value;
+	}
+
+	/**
+	 * Finds the slot holding a key, or the empty slot where it would be stored.
+	 * @param key the key.
+	 * @return the slot.
+	 */
+	private int find(long key)
+	{
+		int mask = keys.length - 1;
+
+		// Spread the bits of the key, so consecutive keys do not cluster.
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int)(h ^ (h >>> 32)) & mask;
+
+		while(used[slot] && keys[slot] != key)
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	/**
+	 * Doubles the number of slots, moving every key to its new slot.
+	 */
+	private void grow()
+	{
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		allocate(keys.length * 2);
+
+		for(int i = 0; i < oldKeys.length; i++)
+			if(oldUsed[i])
+			{
+				int slot = find(oldKeys[i]);
+				used[slot] = true;
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+	}
+
+	/**
+	 * Allocates empty slots.
+	 * @param capacity the number of slots, a power of two.
+	 */
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		values = new long[capacity];
+		used = new boolean[capacity];
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of keys stored.
+	 */
+	public int size(){ return this.size; }
+}
@@ -30,13 +30,17 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
 
 import cs.man.ac.uk.common.Common;
 
 /**
- * This class is used to read files in different ways.
+ * This class is used to read files in different ways. Files whose names end in
+ * {@link #COMPRESSED_EXTENSION} are gzip compressed, and are decompressed as they
+ * are read by {@link #openStream(String)} and {@link #openReader(String)}.
  *
  * @author Rob Lyon
  *
@@ -44,6 +48,22 @@ import cs.man.ac.uk.common.Common;
  */
 public class Reader
 {
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension appended to the name of gzip compressed files, i.e. data.arff.gz.
+	 */
+	public static final String COMPRESSED_EXTENSION = ".gz";
+
+	/**
+	 * The size of the buffer used when decompressing (64KB).
+	 */
+	private static final int DECOMPRESSION_BUFFER_SIZE = 64 * 1024;
+
 	//*****************************************
 	//*****************************************
 	//                Methods
@@ -77,7 +97,7 @@ public class Reader
 			try
 			{
 				//open stream to file
-				in = new BufferedReader(new FileReader(file));
+				in = openReader(path);
 
 				try
 				{   
@@ -134,4 +154,63 @@ public class Reader
 		}
 		else{return true;}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Opens a file for reading, decompressing it if it is gzip compressed.
+	 * @param path the path to the file to open.
+	 * @return a stream of the (decompressed) contents of the file.
+	 * @throws IOException if the file cannot be opened, or is not a valid gzip file.
+	 */
+	public static InputStream openStream(String path) throws IOException
+	{
+		FileInputStream in = new FileInputStream(path);
+
+		if(!isCompressed(path))
+			return in;
+
+		try { return new GZIPInputStream(in, DECOMPRESSION_BUFFER_SIZE); }
+		catch(IOException e){ in.close(); throw e; }
+	}
+
+	/**
+	 * Opens a text file for reading line by line, decompressing it if it is gzip compressed.
+	 * @param path the path to the file to open.
+	 * @return a reader of the (decompressed) contents of the file.
+	 * @throws IOException if the file cannot be opened, or is not a valid gzip file.
+	 */
+	public static BufferedReader openReader(String path) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(openStream(path)));
+	}
+
+	/**
+	 * Tests if a file is gzip compressed, based on its name.
+	 * @param path the path to the file.
+	 * @return true if the path ends with {@link #COMPRESSED_EXTENSION}, else false.
+	 */
+	public static boolean isCompressed(String path)
+	{
+		return path.toLowerCase().endsWith(COMPRESSED_EXTENSION);
+	}
+
+	/**
+	 * Gets the extension of a file, including the compression extension if the file is
+	 * compressed, i.e. ".arff" for data.arff and ".arff.gz" for data.arff.gz.
+	 * @param path the path to the file.
+	 * @return the extension of the file, or an empty string if it has none.
+	 */
+	public static String getExtension(String path)
+	{
+		int end = path.length();
+
+		if(isCompressed(path))
+			end -= COMPRESSED_EXTENSION.length();
+
+		int dot = path.lastIndexOf('.', end - 1);
+
+		if(dot < 0 || dot < path.lastIndexOf(File.separatorChar))
+			return isCompressed(path) ? path.substring(end) : "";
+
+		return path.substring(dot);
+	}
+}
@@ -0,0 +1,309 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	ShardInputStream.java
+ * Package: cs.man.ac.uk.io
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The class ShardInputStream reads a sequence of files, or shards, as if they were one
+ * file. A new line is inserted after each shard, so the last line of one shard is never
+ * joined to the first line of the next. Compressed shards, see {@link Reader#isCompressed(String)},
+ * are decompressed as they are read.
+ *
+ * <p>Shards are read concurrently. Up to a fixed number of shards ahead of the one being
+ * consumed are read, and decompressed, by background threads into small queues of chunks,
+ * so reading the shards overlaps with whatever the consumer does with the data. The
+ * queues are bounded, so at most prefetch * {@link #CHUNKS} * {@link #CHUNK_SIZE} bytes are
+ * held in memory at once.</p>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class ShardInputStream extends InputStream
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The size of each chunk read from a shard in bytes (1MB).
+	 */
+	public static final int CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * The number of chunks read ahead of the consumer for each shard.
+	 */
+	public static final int CHUNKS = 4;
+
+	/**
+	 * Marks the end of a shard in its queue of chunks.
+	 */
+	private static final byte[] END = new byte[0];
+
+	/**
+	 * The paths to the shards, in the order they are read.
+	 */
+	private final String[] paths;
+
+	/**
+	 * The chunks read from each shard, waiting to be consumed.
+	 */
+	private final List<ArrayBlockingQueue<byte[]>> queues;
+
+	/**
+	 * The first error encountered reading each shard.
+	 */
+	private final IOException[] failures;
+
+	/**
+	 * The threads reading the shards.
+	 */
+	private final ExecutorService readers;
+
+	/**
+	 * The number of shards read concurrently.
+	 */
+	private final int prefetch;
+
+	/**
+	 * The index of the shard being consumed.
+	 */
+	private int shard = 0;
+
+	/**
+	 * The chunk being consumed.
+	 */
+	private byte[] chunk = END;
+
+	/**
+	 * The position of the next byte to consume in the chunk.
+	 */
+	private int pos = 0;
+
+	/**
+	 * Flag that when true indicates the stream has been closed.
+	 */
+	private volatile boolean closed = false;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Opens a sequence of shards for reading, and starts reading the first of them.
+	 * @param paths the paths to the shards, in the order they are to be read.
+	 * @param prefetch the number of shards read concurrently, at least one.
+	 */
+	public ShardInputStream(String[] paths,int prefetch)
+	{
+		this.paths = paths;
+		this.prefetch = Math.max(1, Math.min(prefetch, paths.length));
+		this.queues = new ArrayList<ArrayBlockingQueue<byte[]>>(Collections.<ArrayBlockingQueue<byte[]>>nCopies(paths.length, null));
+		this.failures = new IOException[paths.length];
+
+		this.readers = Executors.newFixedThreadPool(this.prefetch, new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "ShardInputStream");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		for(int i = 0; i < this.prefetch; i++)
+			start(i);
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Starts reading a shard in the background.
+	 * @param i the index of the shard to read.
+	 */
+	private void start(final int i)
+	{
+		if(i >= paths.length)
+			return;
+
+		queues.set(i, new ArrayBlockingQueue<byte[]>(CHUNKS + 1));
+
+		readers.execute(new Runnable()
+		{
+			@Override
+			public void run(){ readShard(i); }
+		});
+	}
+
+	/**
+	 * Run by a background thread, reads a shard into its queue in chunks, followed by
+	 * the end marker. Errors are recorded, and reported when the shard is consumed.
+	 * @param i the index of the shard to read.
+	 */
+	private void readShard(int i)
+	{
+		ArrayBlockingQueue<byte[]> queue = queues.get(i);
+
+		try
+		{
+			InputStream in = null;
+
+			try
+			{
+				in = Reader.openStream(paths[i]);
+				byte[] buffer = new byte[CHUNK_SIZE];
+				int filled = 0;
+				int read = 0;
+
+				while(!closed && read >= 0)
+				{
+					read = in.read(buffer, filled, buffer.length - filled);
+
+					if(read > 0)
+						filled += read;
+
+					if(filled == buffer.length || (read < 0 && filled > 0))
+					{
+						queue.put(filled == buffer.length ? buffer : Arrays.copyOf(buffer, filled));
+						buffer = new byte[CHUNK_SIZE];
+						filled = 0;
+					}
+				}
+			}
+			catch(IOException e){ failures[i] = e; }
+			finally
+			{
+				if(in != null)
+					try { in.close(); } catch (IOException e) {}
+			}
+
+			queue.put(END);
+		}
+		catch (InterruptedException e) {}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException
+	{
+		byte[] b = new byte[1];
+		return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b,int off,int len) throws IOException
+	{
+		if(closed)
+			throw new IOException("Stream closed");
+
+		if(len == 0)
+			return 0;
+
+		while(pos >= chunk.length)
+		{
+			if(shard >= paths.length)
+				return -1;
+
+			try { chunk = queues.get(shard).take(); }
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted reading "+paths[shard]);
+			}
+
+			pos = 0;
+
+			if(chunk == END)
+			{
+				if(failures[shard] != null)
+					throw failures[shard];
+
+				// The shard is finished, start reading the next one not yet started.
+				queues.set(shard, null);
+				start(shard + prefetch);
+				shard++;
+
+				b[off] = '\n';
+				return 1;
+			}
+		}
+
+		int count = Math.min(len, chunk.length - pos);
+		System.arraycopy(chunk, pos, b, off, count);
+		pos += count;
+		return count;
+	}
+
+	/**
+	 * Stops reading the shards and releases the chunks read ahead.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		readers.shutdownNow();
+
+		for(int i = 0; i < queues.size(); i++)
+			queues.set(i, null);
+
+		chunk = END;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of shards in the sequence.
+	 */
+	public int getShards(){ return this.paths.length; }
+}
@@ -27,13 +27,26 @@
 package cs.man.ac.uk.io;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
 
 import cs.man.ac.uk.common.Common;
 
 /**
- * This class contains methods used for writing to files.
+ * This class contains methods used for writing to files. Files written to repeatedly
+ * should be opened using {@link #open(String)}, which returns a {@link WriterHandle}
+ * that keeps the file open and buffers output until it is closed. Whilst a handle is
+ * open, calls to {@link #append(String, String)} for the same path are also written
+ * via the handle, so output remains in the order it was appended.
+ *
+ * <P>Files whose names end in {@link Reader#COMPRESSED_EXTENSION} are gzip compressed
+ * as they are written. Appending to a compressed file adds a new gzip member to the end
+ * of it, which is decompressed along with the rest of the file when it is read.</p>
  *
  * @author Rob Lyon
  *
@@ -41,6 +54,22 @@ import cs.man.ac.uk.common.Common;
  */
 public class Writer
 {
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The handles currently open, keyed by path.
+	 */
+	private static final HashMap<String,WriterHandle> handles = new HashMap<String,WriterHandle>();
+
+	/**
+	 * The size of the buffer used when compressing (64KB).
+	 */
+	static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
 	//*****************************************
 	//*****************************************
 	//              Write to file
@@ -63,7 +92,7 @@ public class Writer
 		{
 			try 
 			{
-				BufferedWriter out = new BufferedWriter(new FileWriter(path));//Non-append
+				BufferedWriter out = new BufferedWriter(new OutputStreamWriter(openStream(path, false)));//Non-append
 				out.write(text);
 				out.close();
 				return true;
@@ -82,6 +111,10 @@ public class Writer
 	 */
 	public static boolean append(String path, String text)
 	{
+		WriterHandle handle = getHandle(path);
+		if(handle != null)// Already open, so buffer the text.
+			return handle.append(text);
+
 		if(!Common.fileExist(path))//Check file exists
 			Common.fileCreate(path);//if not create it
 
@@ -89,7 +122,7 @@ public class Writer
 		{
 			try 
 			{
-				BufferedWriter out = new BufferedWriter(new FileWriter(path, true));//append
+				BufferedWriter out = new BufferedWriter(new OutputStreamWriter(openStream(path, true)));//append
 				out.write(text);
 				out.close();
 				return true;
@@ -99,6 +132,151 @@ public class Writer
 		else{ return false; }
 	}
 	
+	/**
+	 * Opens a file for writing, compressing the data written if the file name ends in
+	 * {@link Reader#COMPRESSED_EXTENSION}.
+	 * @param path the path to the file to open.
+	 * @param append if true data is appended to the end of any existing file, else the file is overwritten.
+	 * @return the stream to write to.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static OutputStream openStream(String path, boolean append) throws IOException
+	{
+		FileOutputStream out = new FileOutputStream(path, append);
+
+		if(!Reader.isCompressed(path))
+			return out;
+
+		try { return new GZIPOutputStream(out, COMPRESSION_BUFFER_SIZE); }
+		catch(IOException e){ out.close(); throw e; }
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Handles
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Opens a file for buffered appending, creating it if it does not exist. If the
+	 * file is already open, the existing handle is returned, so only one channel is
+	 * ever open per path. Each call to this method should be matched by a call to
+	 * {@link #close(WriterHandle)}.
+	 * @param path the path to the file to open.
+	 * @return the handle to the open file, or null if it could not be opened.
+	 */
+	public static WriterHandle open(String path)
+	{
+		return open(path, true, WriterHandle.DEFAULT_BUFFER_SIZE, 0);
+	}
+
+	/**
+	 * Opens a file for buffered writing, creating it if it does not exist. If the
+	 * file is already open, the existing handle is returned and the remaining parameters
+	 * are ignored. Each call to this method should be matched by a call to
+	 * {@link #close(WriterHandle)}.
+	 * @param path the path to the file to open.
+	 * @param append if true data is appended to the end of any existing file, else the file is overwritten.
+	 * @param bufferSize the size of the output buffer in bytes.
+	 * @param flushInterval the number of appends after which the buffer is flushed, if zero the buffer is flushed only when full.
+	 * @return the handle to the open file, or null if it could not be opened.
+	 */
+	public static WriterHandle open(String path, boolean append, int bufferSize, int flushInterval)
+	{
+		return open(path, append, bufferSize, flushInterval, 1);
+	}
+
+	/**
+	 * Opens a file for buffered writing, creating it if it does not exist, as in
+	 * {@link #open(String, boolean, int, int)}. If more than one buffer is requested the
+	 * file is written by a thread of its own, so the caller can carry on filling one
+	 * buffer while the others are written, see {@link WriterHandle}.
+	 * @param path the path to the file to open.
+	 * @param append if true data is appended to the end of any existing file, else the file is overwritten.
+	 * @param bufferSize the size of each output buffer in bytes.
+	 * @param flushInterval the number of appends after which the buffer is flushed, if zero the buffer is flushed only when full.
+	 * @param buffers the number of output buffers.
+	 * @return the handle to the open file, or null if it could not be opened.
+	 */
+	public static WriterHandle open(String path, boolean append, int bufferSize, int flushInterval, int buffers)
+	{
+		synchronized(handles)
+		{
+			WriterHandle handle = handles.get(path);
+
+			if(handle == null)
+			{
+				try { handle = new WriterHandle(path, append, bufferSize, flushInterval, buffers); }
+				catch (IOException e) {return null;}
+
+				handles.put(path, handle);
+			}
+
+			handle.references++;
+			return handle;
+		}
+	}
+
+	/**
+	 * Closes a handle obtained via {@link #open(String)}. The file itself is only
+	 * closed once every call to open it has been matched by a call to this method.
+	 * @param handle the handle to close, may be null.
+	 * @return true if the close operation was successful, else false.
+	 */
+	public static boolean close(WriterHandle handle)
+	{
+		if(handle == null)
+			return false;
+
+		synchronized(handles)
+		{
+			handle.references--;
+
+			if(handle.references > 0)
+				return handle.flush();
+
+			handles.remove(handle.getPath());
+			return handle.close();
+		}
+	}
+
+	/**
+	 * Closes every open handle, regardless of how many times it has been opened.
+	 * @return true if all handles were closed successfully, else false.
+	 */
+	public static boolean closeAll()
+	{
+		boolean result = true;
+
+		synchronized(handles)
+		{
+			Iterator<WriterHandle> it = handles.values().iterator();
+			while (it.hasNext())
+			{
+				WriterHandle handle = it.next();
+				handle.references = 0;
+				result &= handle.close();
+			}
+
+			handles.clear();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Obtains the handle currently open for a path.
+	 * @param path the path to the file.
+	 * @return the open handle, or null if the file is not open.
+	 */
+	public static WriterHandle getHandle(String path)
+	{
+		synchronized(handles)
+		{
+			return handles.get(path);
+		}
+	}
+
 	//*****************************************
 	//*****************************************
 	//              Clear File
@@ -0,0 +1,508 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	WriterHandle.java
+ * Package: cs.man.ac.uk.io
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.io;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The class WriterHandle represents an output file that remains open between writes.
+ * Text appended to the handle is collected in a large buffer, which is only written
+ * to the underlying file channel when it fills up, when the flush interval is reached,
+ * or when the handle is flushed or closed. Handles should be obtained via
+ * {@link Writer#open(String)}, so that only a single channel is ever open for each path.
+ * If the path ends in {@link Reader#COMPRESSED_EXTENSION}, the buffered data is gzip
+ * compressed as it is written.
+ *
+ * <p>A handle may also be opened with a ring of several buffers, in which case a writer
+ * thread belonging to the handle writes full buffers to the file while the caller carries
+ * on filling the next one. The caller only waits if every buffer in the ring is full, so
+ * producing the data and writing it overlap rather than taking turns.</p>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class WriterHandle
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The default size of the output buffer in bytes (1MB).
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * The path to the file being written.
+	 */
+	private final String path;
+
+	/**
+	 * The stream used to open the file channel.
+	 */
+	private FileOutputStream stream = null;
+
+	/**
+	 * The channel data is written to.
+	 */
+	private FileChannel channel = null;
+
+	/**
+	 * The stream compressed data is written to, or null if the file is not compressed.
+	 */
+	private OutputStream compressed = null;
+
+	/**
+	 * The buffer holding data not yet written to the channel.
+	 */
+	private ByteBuffer buffer = null;
+
+	/**
+	 * The number of appends after which the buffer is flushed, if zero
+	 * the buffer is flushed only when full.
+	 */
+	private final int flushInterval;
+
+	/**
+	 * The number of appends made since the buffer was last flushed.
+	 */
+	private int appends = 0;
+
+	/**
+	 * The empty buffers in the ring, ready to be filled, or null if data is written by the caller.
+	 */
+	private ArrayBlockingQueue<ByteBuffer> free = null;
+
+	/**
+	 * The full buffers in the ring, waiting to be written by the writer thread.
+	 */
+	private ArrayBlockingQueue<ByteBuffer> full = null;
+
+	/**
+	 * The thread writing full buffers to the file, or null if data is written by the caller.
+	 */
+	private Thread writer = null;
+
+	/**
+	 * The first error encountered by the writer thread, reported on the next drain.
+	 */
+	private volatile IOException failure = null;
+
+	/**
+	 * Placed in the queue of full buffers to stop the writer thread.
+	 */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	/**
+	 * The number of times this handle has been opened via {@link Writer#open(String)}
+	 * without being closed.
+	 */
+	int references = 0;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Opens the file at the specified path for writing, creating it if it does not exist.
+	 * @param path the path to the file to write to.
+	 * @param append if true data is appended to the end of any existing file, else the file is overwritten.
+	 * @param bufferSize the size of the output buffer in bytes.
+	 * @param flushInterval the number of appends after which the buffer is flushed, if zero the buffer is flushed only when full.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public WriterHandle(String path,boolean append,int bufferSize,int flushInterval) throws IOException
+	{
+		this(path, append, bufferSize, flushInterval, 1);
+	}
+
+	/**
+	 * Opens the file at the specified path for writing, creating it if it does not exist.
+	 * If more than one buffer is requested, the buffers form a ring and a writer thread is
+	 * started to write them to the file, otherwise data is written by the caller.
+	 * @param path the path to the file to write to.
+	 * @param append if true data is appended to the end of any existing file, else the file is overwritten.
+	 * @param bufferSize the size of each output buffer in bytes.
+	 * @param flushInterval the number of appends after which the buffer is flushed, if zero the buffer is flushed only when full.
+	 * @param buffers the number of output buffers.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public WriterHandle(String path,boolean append,int bufferSize,int flushInterval,int buffers) throws IOException
+	{
+		this.path = path;
+		this.flushInterval = flushInterval;
+		this.stream = new FileOutputStream(path, append);
+		this.channel = stream.getChannel();
+
+		if(Reader.isCompressed(path))
+		{
+			try { this.compressed = new GZIPOutputStream(stream, Writer.COMPRESSION_BUFFER_SIZE); }
+			catch(IOException e){ stream.close(); throw e; }
+		}
+
+		this.buffer = allocate(bufferSize);
+
+		if(buffers > 1)
+		{
+			this.free = new ArrayBlockingQueue<ByteBuffer>(buffers);
+			this.full = new ArrayBlockingQueue<ByteBuffer>(buffers);
+
+			for(int i = 1; i < buffers; i++)
+				this.free.add(allocate(bufferSize));
+
+			this.writer = new Thread(new Runnable()
+			{
+				@Override
+				public void run(){ writeBuffers(); }
+			}, "WriterHandle " + path);
+
+			this.writer.setDaemon(true);
+			this.writer.start();
+		}
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Appends a string literal to the file.
+	 * @param text the text to append.
+	 * @return true if the append operation was successful, else false.
+	 */
+	public boolean append(String text)
+	{
+		byte[] bytes = text.getBytes();
+		return append(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Appends bytes to the file.
+	 * @param bytes the array containing the bytes to append.
+	 * @param offset the position in the array of the first byte to append.
+	 * @param length the number of bytes to append.
+	 * @return true if the append operation was successful, else false.
+	 */
+	public synchronized boolean append(byte[] bytes,int offset,int length)
+	{
+		if(channel == null)
+			return false;
+
+		try
+		{
+			while(length > 0)
+			{
+				if(!buffer.hasRemaining())
+					drain();
+
+				int count = Math.min(length, buffer.remaining());
+				buffer.put(bytes, offset, count);
+				offset += count;
+				length -= count;
+			}
+
+			appends++;
+
+			if(flushInterval > 0 && appends >= flushInterval)
+				drain();
+
+			return true;
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Appends the remaining bytes in a buffer to the file, copying them straight
+	 * from the buffer. The position of the buffer is advanced to its limit.
+	 * @param bytes the buffer containing the bytes to append.
+	 * @return true if the append operation was successful, else false.
+	 */
+	public synchronized boolean append(ByteBuffer bytes)
+	{
+		if(channel == null)
+			return false;
+
+		try
+		{
+			while(bytes.hasRemaining())
+			{
+				if(!buffer.hasRemaining())
+					drain();
+
+				if(bytes.remaining() <= buffer.remaining())
+					buffer.put(bytes);
+				else
+				{
+					// Copy only as much as fits, by temporarily lowering the limit.
+					int limit = bytes.limit();
+					bytes.limit(bytes.position() + buffer.remaining());
+					buffer.put(bytes);
+					bytes.limit(limit);
+				}
+			}
+
+			appends++;
+
+			if(flushInterval > 0 && appends >= flushInterval)
+				drain();
+
+			return true;
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Writes any buffered data to the file.
+	 * @return true if the flush operation was successful, else false.
+	 */
+	public synchronized boolean flush()
+	{
+		if(channel == null)
+			return false;
+
+		try
+		{
+			drain();
+			await();
+			return true;
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Writes any buffered data to the file, and closes it. Once closed
+	 * the handle can no longer be written to.
+	 * @return true if the close operation was successful, else false.
+	 */
+	public synchronized boolean close()
+	{
+		if(channel == null)
+			return false;
+
+		try
+		{
+			drain();
+			await();
+			return true;
+		}
+		catch (IOException e) {return false;}
+		finally
+		{
+			stopWriter();
+
+			try
+			{
+				// Closing the compressor writes the gzip trailer, and closes the file.
+				if(compressed != null)
+					compressed.close();
+				else
+					stream.close();
+			}
+			catch (IOException e) {}
+			channel = null;
+			stream = null;
+			compressed = null;
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Writes the contents of the buffer to the channel, and clears the buffer.
+	 * @throws IOException if the data cannot be written.
+	 */
+	private void drain() throws IOException
+	{
+		buffer.flip();
+
+		if(writer == null)
+		{
+			write(buffer);
+			buffer.clear();
+		}
+		else
+		{
+			if(failure != null)
+				throw failure;
+
+			// Hand the buffer to the writer thread and carry on with an empty one.
+			try
+			{
+				full.put(buffer);
+				buffer = free.take();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted writing to " + path);
+			}
+		}
+
+		appends = 0;
+	}
+
+	/**
+	 * Waits until every full buffer has been written by the writer thread.
+	 * @throws IOException if the writer thread failed to write a buffer.
+	 */
+	private void await() throws IOException
+	{
+		if(writer == null)
+			return;
+
+		// All buffers but the one being filled are back in the empty queue once written.
+		ByteBuffer[] written = new ByteBuffer[free.remainingCapacity() + free.size() - 1];
+
+		try
+		{
+			for(int i = 0; i < written.length; i++)
+				written[i] = free.take();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted writing to " + path);
+		}
+		finally
+		{
+			for(int i = 0; i < written.length && written[i] != null; i++)
+				free.add(written[i]);
+		}
+
+		if(failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Stops the writer thread once it has written every full buffer.
+	 */
+	private void stopWriter()
+	{
+		if(writer == null)
+			return;
+
+		boolean interrupted = false;
+
+		while(true)
+		{
+			try { full.put(END); break; }
+			catch (InterruptedException e) { interrupted = true; }
+		}
+
+		while(writer.isAlive())
+		{
+			try { writer.join(); }
+			catch (InterruptedException e) { interrupted = true; }
+		}
+
+		if(interrupted)
+			Thread.currentThread().interrupt();
+
+		writer = null;
+		free = null;
+		full = null;
+	}
+
+	/**
+	 * Run by the writer thread, writes full buffers to the file in the order they were
+	 * filled, returning each to the empty queue, until {@link #END} is reached.
+	 */
+	private void writeBuffers()
+	{
+		// The queues are held locally, as the handle releases them when it is closed.
+		ArrayBlockingQueue<ByteBuffer> full = this.full;
+		ArrayBlockingQueue<ByteBuffer> free = this.free;
+
+		try
+		{
+			ByteBuffer next;
+
+			while((next = full.take()) != END)
+			{
+				// After a failure the remaining buffers are discarded, so the caller never blocks.
+				if(failure == null)
+				{
+					try { write(next); }
+					catch (IOException e) { failure = e; }
+				}
+
+				next.clear();
+				free.put(next);
+			}
+		}
+		catch (InterruptedException e) {}
+	}
+
+	/**
+	 * Writes the contents of a buffer, between its position and limit, to the file.
+	 * @param data the buffer to write.
+	 * @throws IOException if the data cannot be written.
+	 */
+	private void write(ByteBuffer data) throws IOException
+	{
+		if(compressed != null)
+			compressed.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+		else
+			while(data.hasRemaining())
+				channel.write(data);
+	}
+
+	/**
+	 * Allocates an output buffer. The compressor reads from an array, so buffers for
+	 * compressed files are allocated on the heap, and all others directly.
+	 * @param size the size of the buffer in bytes.
+	 * @return the buffer.
+	 */
+	private ByteBuffer allocate(int size)
+	{
+		if(compressed != null)
+			return ByteBuffer.allocate(size);
+		else
+			return ByteBuffer.allocateDirect(size);
+	}
+
+	/**
+	 * @return true if this handle is open for writing, else false.
+	 */
+	public synchronized boolean isOpen(){ return channel != null; }
+
+	/**
+	 * @return the path to the file being written.
+	 */
+	public String getPath(){ return path; }
+}
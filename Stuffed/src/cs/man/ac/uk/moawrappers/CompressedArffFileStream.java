@@ -0,0 +1,197 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	CompressedArffFileStream.java
+ * Package: cs.man.ac.uk.moawrappers
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.moawrappers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
+
+import cs.man.ac.uk.io.Reader;
+import cs.man.ac.uk.sample.PreprocessCache;
+import moa.core.InputStreamProgressMonitor;
+import moa.streams.ArffFileStream;
+import weka.core.Instances;
+
+/**
+ * The class CompressedArffFileStream is an ARFF file stream that reads gzip compressed
+ * ARFF files, decompressing them as instances are read. Progress is measured against
+ * the compressed size of the file. Streams should be created via {@link #open(String, int)},
+ * which returns a plain {@link ArffFileStream} for files that are not compressed.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class CompressedArffFileStream extends ArffFileStream
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	private static final long serialVersionUID = 1L;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param arffFileName the path to the compressed ARFF file.
+	 * @param classIndex the 1-based index of the class attribute, or -1 for the last attribute.
+	 */
+	public CompressedArffFileStream(String arffFileName,int classIndex)
+	{
+		super(arffFileName, classIndex);
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Opens a stream of the instances in an ARFF file, decompressing the file if it is
+	 * compressed, see {@link Reader#isCompressed(String)}.
+	 * @param path the path to the ARFF file.
+	 * @param classIndex the 1-based index of the class attribute, or -1 for the last attribute.
+	 * @return the stream of instances.
+	 */
+	public static ArffFileStream open(String path,int classIndex)
+	{
+		if(Reader.isCompressed(path))
+			return new CompressedArffFileStream(path, classIndex);
+		else
+			return new ArffFileStream(path, classIndex);
+	}
+
+	/**
+	 * Counts the instances in an ARFF file without parsing them, in constant memory, so
+	 * the size of a stream is known before it is read. If the file has been loaded by the
+	 * sampler, and not changed since, the count is taken from the results cached next to
+	 * it, see {@link PreprocessCache}. Otherwise the lines after the @DATA line that are
+	 * neither blank nor comments are counted, in one pass over the raw bytes.
+	 * @param path the path to the ARFF file, which may be compressed.
+	 * @return the number of instances, or -1 if the file could not be read.
+	 */
+	public static long countInstances(String path)
+	{
+		File file = new File(path);
+		PreprocessCache cache = PreprocessCache.read(path.replace(Reader.getExtension(path), PreprocessCache.EXTENSION));
+
+		if(cache != null && cache.describes(file))
+			return cache.getRows();
+
+		InputStream in = null;
+
+		try
+		{
+			in = Reader.openStream(path);
+
+			try
+			{
+				byte[] buffer = new byte[64 * 1024];
+				StringBuilder header = new StringBuilder();
+				boolean data = false;
+				long count = 0;
+				int first = -1; // The first character on the line that is not white space.
+				int read;
+
+				while((read = in.read(buffer)) > 0)
+				{
+					for(int i = 0; i < read; i++)
+					{
+						int b = buffer[i];
+
+						if(b == '\n' || b == '\r')
+						{
+							if(data && first != -1 && first != '%')
+								count++;
+							else if(!data && header.toString().trim().toUpperCase().startsWith("@DATA"))
+								data = true;
+
+							header.setLength(0);
+							first = -1;
+						}
+						else
+						{
+							if(first == -1 && b != ' ' && b != '\t')
+								first = b;
+
+							// Header lines are kept only until the first character shows they are not @DATA.
+							if(!data && (first == -1 || first == '@') && header.length() < 16)
+								header.append((char)b);
+						}
+					}
+				}
+
+				// The last line may not end with a line terminator.
+				if(data && first != -1 && first != '%')
+					count++;
+
+				return count;
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return -1;}
+	}
+
+	/* (non-Javadoc)
+	 * @see moa.streams.ArffFileStream#restart()
+	 */
+	@SuppressWarnings("deprecation") // As ArffFileStream.restart(), its instances read the rest of the file.
+	@Override
+	public void restart()
+	{
+		try
+		{
+			if (this.fileReader != null)
+				this.fileReader.close();
+
+			FileInputStream fileStream = new FileInputStream(this.arffFileOption.getFile());
+			this.fileProgressMonitor = new InputStreamProgressMonitor(fileStream);
+			this.fileReader = new BufferedReader(new InputStreamReader(new GZIPInputStream(this.fileProgressMonitor)));
+			this.instances = new Instances(this.fileReader, 1);
+
+			if (this.classIndexOption.getValue() < 0)
+				this.instances.setClassIndex(this.instances.numAttributes() - 1);
+			else if (this.classIndexOption.getValue() > 0)
+				this.instances.setClassIndex(this.classIndexOption.getValue() - 1);
+
+			this.numInstancesRead = 0;
+			this.lastInstanceRead = null;
+			this.hitEndOfFile = !readNextInstanceFromFile();
+		}
+		catch (IOException ioe) { throw new RuntimeException("CompressedArffFileStream restart failed.", ioe); }
+	}
+}
@@ -26,6 +26,9 @@
  */
 package cs.man.ac.uk.moawrappers;
 
+import weka.core.Instances;
+import cs.man.ac.uk.sample.TrueClass;
+
 /**
  * The class I_WekaTest defines an interface for testing WEKA classifiers.
  *
@@ -42,17 +45,39 @@ public interface I_WekaTest
 	 */
 	public boolean train(String path);
 
+	/**
+	 * Trains the classifier on instances already in memory, such as the training set of
+	 * a sample produced by {@link cs.man.ac.uk.sample.ISampler#sampleToInstances(int, int, double, double, double)}.
+	 * @param data the training set, with its class index set.
+	 * @return true if trained successfully, else false.
+	 */
+	public boolean train(Instances data);
+
 	/**
 	 * Tests the classifier, but does not learn on the test  examples (static data set equivalent).
 	 * @param testSet the path to the test set.
 	 * @param outputPath the path to write results to.
 	 * @param recrodMissclassifications a flag that when true, tells the classifier
 	 *        to record all the mistakes made on data for which there are labels.
-	 * @param truePosClass path to file containing line numbers of positive class examples.
+	 * @param truePosClass path to file containing line numbers of positive class examples,
+	 *        see {@link TrueClass#load(String)}.
 	 * @return confusion matrix describing binary classification outcomes.
 	 */
 	public int[][] testStatic(String testSet,String outputPath,boolean recrodMissclassifications,String truePosClass);
 
+	/**
+	 * Tests the classifier on instances already in memory, but does not learn on the test
+	 * examples (static data set equivalent).
+	 * @param data the test set, with its class index set.
+	 * @param outputPath the path to write results to.
+	 * @param recordMissclassifications a flag that when true, tells the classifier
+	 *        to record all the mistakes made on data for which there are labels.
+	 * @param labelledPositives the positive examples in the test set,
+	 *        see {@link cs.man.ac.uk.sample.SampledInstances#getTrueClass()}.
+	 * @return confusion matrix describing binary classification outcomes.
+	 */
+	public int[][] testStatic(Instances data,String outputPath,boolean recordMissclassifications,TrueClass labelledPositives);
+
 	/**
 	 * Tests the classifier, but does not learn on the test examples (static data set equivalent).
 	 * @param testSet the path to the test set.
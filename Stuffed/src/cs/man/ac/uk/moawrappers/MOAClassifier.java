@@ -82,8 +82,8 @@ public class MOAClassifier extends WekaClassifier implements I_MOAUtilities
 	{
 		if(Common.fileExist(this.trainingSetFilePath) && Common.fileExist(this.testSetFilePath))
 		{
-			this.trainingStream = new ArffFileStream (this.trainingSetFilePath, -1);
-			this.testStream = new ArffFileStream (this.testSetFilePath, -1);
+			this.trainingStream = CompressedArffFileStream.open(this.trainingSetFilePath, -1);
+			this.testStream = CompressedArffFileStream.open(this.testSetFilePath, -1);
 
 			if(this.trainingStream != null && this.testStream != null)
 			{
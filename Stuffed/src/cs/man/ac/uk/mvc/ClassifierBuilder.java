@@ -41,8 +41,10 @@ import weka.classifiers.functions.MultilayerPerceptron;
 import weka.classifiers.bayes.NaiveBayes;
 import weka.classifiers.functions.SMO;
 import cs.man.ac.uk.classifiers.Classifiers;
+import cs.man.ac.uk.classifiers.MultiClassifierTester;
 import cs.man.ac.uk.classifiers.standard.StandardAlgorithmTester;
 import cs.man.ac.uk.classifiers.stream.StreamAlgorithmTester;
+import cs.man.ac.uk.io.Reader;
 
 /**
  * This class is used to control the building of new classifiers.
@@ -164,6 +166,79 @@ public class ClassifierBuilder
 		}
 	}
 	
+	/**
+	 * Builds and tests each of the classifiers specified, reading the training and test
+	 * sets only once for all of them, rather than once per classifier as test() does.
+	 * Stream classifiers are tested as by test(), learning on the test set, while the
+	 * standard classifiers are not.
+	 * @param algorithms the classifiers to build and test.
+	 * @param threaded if true each classifier runs on its own thread, else they run in turn.
+	 * @return a confusion matrix per classifier, in the order specified, empty for an unknown classifier.
+	 */
+	public int[][][] test(int[] algorithms, boolean threaded)
+	{
+		MultiClassifierTester tester = new MultiClassifierTester(this.outputFile,this.verbose);
+		tester.setThreaded(threaded);
+
+		// The index of each classifier in the tester, -1 if it is unknown.
+		int[] members = new int[algorithms.length];
+		int added = 0;
+
+		for(int i = 0; i < algorithms.length; i++)
+			members[i] = add(tester, algorithms[i]) ? added++ : -1;
+
+		int[][][] confusionMatrices = new int[algorithms.length][][];
+
+		if(added > 0)
+		{
+			tester.train(trainingSet);
+
+			int[][][] tested = tester.test(testSet,testSet.replace(Reader.getExtension(testSet),".trueClass.csv"),true);
+
+			for(int i = 0; i < algorithms.length; i++)
+				if(members[i] >= 0)
+					confusionMatrices[i] = tested[members[i]];
+		}
+
+		// Unknown classifiers are given an empty matrix, as test() does.
+		for(int i = 0; i < algorithms.length; i++)
+			if(confusionMatrices[i] == null)
+				confusionMatrices[i] = new int[][] {{0,0},{0,0}};
+
+		return confusionMatrices;
+	}
+
+	/**
+	 * Adds the classifier specified to a tester.
+	 * @param tester the tester to add the classifier to.
+	 * @param algorithm the classifier to add.
+	 * @return true if the classifier was added, else false if it is unknown.
+	 */
+	private boolean add(MultiClassifierTester tester, int algorithm)
+	{
+		switch (algorithm)
+		{
+			case Classifiers.J48:
+				tester.add("J48",new J48()); return true;
+			case Classifiers.MLP:
+				tester.add("MLP",new MultilayerPerceptron()); return true;
+			case Classifiers.NB:
+				tester.add("NB",new NaiveBayes()); return true;
+			case Classifiers.SVM:
+				tester.add("SVM",new SMO()); return true;
+			case Classifiers.HTREE:
+				tester.add("HTREE",new HoeffdingTree()); return true;
+			case Classifiers.GHVFDT:
+				tester.add("GHVFDT",new GHVFDT()); return true;
+			case Classifiers.PNB:
+				tester.add("PNB",new PNB()); return true;
+			case Classifiers.OCVFDT:
+				tester.add("OCVFDT",new OCVFDT()); return true;
+			default:
+				return false;
+		}
+	}
+	
 	/**
 	 * Builds and tests the classifier specified by the algorithm variable.
 	 * Note if no unlabelled data is in the test set, then meta data can be set to null.
@@ -222,7 +297,7 @@ public class ClassifierBuilder
 	{
 		classifier.train(trainingSet);
 		
-		int[][] confusionMatrix = classifier.testStatic(testSet,this.outputFile,testSet.replace(".arff",".trueClass.csv"));
+		int[][] confusionMatrix = classifier.testStatic(testSet,this.outputFile,testSet.replace(Reader.getExtension(testSet),".trueClass.csv"));
 		
 		return confusionMatrix;
 	}
@@ -236,7 +311,7 @@ public class ClassifierBuilder
 	{
 		classifier.train(trainingSet);
 		
-		int[][] confusionMatrix = classifier.testStream(testSet,this.outputFile,testSet.replace(".arff",".trueClass.csv"));
+		int[][] confusionMatrix = classifier.testStream(testSet,this.outputFile,testSet.replace(Reader.getExtension(testSet),".trueClass.csv"));
 		
 		return confusionMatrix;
 	}
@@ -248,7 +323,7 @@ public class ClassifierBuilder
 	 */
 	private int[][] streamTest(StreamAlgorithmTester classifier)
 	{
-		int[][] confusionMatrix = classifier.testStream(testSet,this.outputFile,testSet.replace(".arff",".trueClass.csv"));
+		int[][] confusionMatrix = classifier.testStream(testSet,this.outputFile,testSet.replace(Reader.getExtension(testSet),".trueClass.csv"));
 		
 		return confusionMatrix;
 	}
@@ -106,13 +106,198 @@ public class ARFF extends BaseFile
 			return new Object[]{false,"Preprocessing not complete"};
 	}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleToInstances(int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleToInstances(int negTrainSamples, int posTrainSamples,
+			double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			SampledInstances result = editor.sampleToInstances(negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result != null)
+				return new Object[]{true,"SUCCESS",result};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#createFolds(int)
+	 */
+	@Override
+	public Object[] createFolds(int folds)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.createFolds(folds);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleFoldsToCSV(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToCSV(String trainSetPath, String testSetPath)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleFoldsToCSV(trainSetPath, testSetPath);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleFoldsToARFF(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToARFF(String trainSetPath, String testSetPath)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleFoldsToARFF(trainSetPath, testSetPath);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleFoldToInstances(int)
+	 */
+	@Override
+	public Object[] sampleFoldToInstances(int fold)
+	{
+		if(preprocessed)
+		{
+			SampledInstances result = editor.sampleFoldToInstances(fold);
+
+			if(result != null)
+				return new Object[]{true,"SUCCESS",result};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleStreamToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToCSV(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleStreamToCSV(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleStreamToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToARFF(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleStreamToARFF(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleReplicatesToCSV(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToCSV(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleReplicatesToCSV(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples, trainSetBalances, testSetBalances, labellings);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleReplicatesToARFF(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToARFF(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleReplicatesToARFF(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples, trainSetBalances, testSetBalances, labellings);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.BaseFile#preprocess()
 	 */
 	@Override
 	public boolean preprocess()
 	{
-		if(this.editor.preprocess())
+		return preprocess(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#preprocess(boolean)
+	 */
+	@Override
+	public boolean preprocess(boolean createMetaData)
+	{
+		if(this.editor.preprocess(createMetaData))
 		{
 			log("ARFF Editor setup correctly\n");
 			log("Line count:\t"+this.lineCount +"\n");
@@ -179,4 +364,16 @@ public class ARFF extends BaseFile
 		else
 			return false;
 	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#shuffleDataset(java.lang.String, long)
+	 */
+	@Override
+	public boolean shuffleDataset(String pth,long memoryBudget)
+	{ 
+		if(preprocessed)
+			return editor.shuffle(pth, memoryBudget);
+		else
+			return false;
+	}
 }
@@ -26,21 +26,33 @@
  */
 package cs.man.ac.uk.sample;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.Collections;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 import java.util.Map.Entry;
 
+import cs.man.ac.uk.common.LongBitSet;
 import cs.man.ac.uk.common.Strings;
 import cs.man.ac.uk.common.VariableCast;
+import cs.man.ac.uk.io.Reader;
 import cs.man.ac.uk.io.Writer;
+import cs.man.ac.uk.io.WriterHandle;
+import weka.core.Instances;
 
 /**
  * The class BaseEditor specifies the basic object, for a class hierarchy,
@@ -63,6 +75,67 @@ public class BaseEditor implements IEditor
 	 */
 	protected IFile pfile = null;
 
+	/**
+	 * The approximate number of bytes of heap used per byte of data, when the lines
+	 * of a file are held in memory as Strings.
+	 */
+	protected static final int STRING_OVERHEAD = 4;
+
+	/**
+	 * The maximum number of temporary bucket files an external shuffle writes to at once,
+	 * kept well below common limits on the number of open files.
+	 */
+	protected static final int MAX_BUCKETS = 256;
+
+	/**
+	 * The maximum number of times an external shuffle scatters a line to a bucket, before
+	 * giving up on bringing every bucket within the memory budget.
+	 */
+	protected static final int MAX_SCATTER_PASSES = 8;
+
+	/**
+	 * The size of the output buffer used for each temporary bucket file.
+	 */
+	protected static final int BUCKET_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The number of output buffers given to each training and test set file written while
+	 * sampling. Each file is written by a thread of its own, so while one buffer is being
+	 * written the sampling pass carries on filling the other.
+	 */
+	protected static final int OUTPUT_BUFFERS = 2;
+
+	/**
+	 * The number of times larger than its size on disk a compressed file is assumed to be
+	 * once decompressed, when estimating the memory needed to shuffle it.
+	 */
+	protected static final int COMPRESSION_RATIO = 10;
+
+	/**
+	 * The generator every random decision made by this editor is derived from. Each
+	 * shuffle or sample splits its own independent generator from this one, so given
+	 * the same seed the same sequence of calls produces the same output.
+	 */
+	private SplittableRandom random = new SplittableRandom();
+
+	/**
+	 * Flag that when true indicates the file is one shard of a set, see {@link ShardedFile},
+	 * so it may contain only one of the two classes.
+	 */
+	boolean shard = false;
+
+	/**
+	 * Flag indicating whether a row index should be built when pre-processing, so that
+	 * small samples can be read without streaming the whole file.
+	 */
+	private boolean createRowIndex = false;
+
+	/**
+	 * When a row index exists, rows are read individually rather than streamed if fewer
+	 * than one in this many rows are needed.
+	 */
+	protected static final int RANDOM_ACCESS_RATIO = 16;
+
 	//*****************************************
 	//*****************************************
 	//             Constructor
@@ -89,41 +162,268 @@ public class BaseEditor implements IEditor
 	 */
 	@Override
 	public boolean preprocess()
+	{
+		return preprocess(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#preprocess(boolean)
+	 */
+	@Override
+	public boolean preprocess(boolean createMetaData)
+	{
+		File file = new File(this.pfile.getPath());
+
+		if(!file.exists())
+			return false;
+
+		String cachePath = getPreprocessCachePath();
+		int requestedClassIndex = this.pfile.getClassIndex();
+
+		PreprocessCache cache = PreprocessCache.read(cachePath);
+
+		// A cached result can't be used if a row index is wanted but missing. Compressed
+		// files are never indexed, as rows can't be read from them at random.
+		boolean indexed = !createRowIndex || Reader.isCompressed(file.getPath()) || getRowIndex() != null;
+
+		if(!createMetaData && indexed && cache != null && cache.matches(file, requestedClassIndex))
+		{
+			cache.restore(this.pfile);
+			this.pfile.log("Restored pre-processing results from "+cachePath+"\n");
+			return true;
+		}
+
+		// Fingerprint the file before it is read, so changes made while it is read are noticed next time.
+		long size = file.length();
+		long modified = file.lastModified();
+		long checksum = PreprocessCache.checksum(file);
+
+		// If rows have only been appended since the file was last pre-processed, only they are read.
+		boolean extended = cache != null && !Reader.isCompressed(file.getPath()) && cache.isAppended(file, requestedClassIndex)
+				&& extend(cache, createMetaData, size, modified);
+
+		if(!extended)
+		{
+			// Meta data left by an earlier load is rebuilt in the same pass, so it can't go stale.
+			this.pfile.setClassIndex(requestedClassIndex);
+
+			if(!scan(createMetaData || hasMetaData()))
+				return false;
+		}
+
+		cache = new PreprocessCache(file, size, modified, checksum, requestedClassIndex, this.pfile);
+
+		if(!cache.write(cachePath))
+			this.pfile.log("Could not write pre-processing cache to "+cachePath+"\n");
+
+		return true;
+	}
+
+	/**
+	 * Pre-processes only the rows appended to the file being edited since the cached
+	 * results were captured, and adds them to those results. The appended rows are
+	 * counted in parallel by {@link PreprocessTask}, as in {@link #scan(boolean)}. The
+	 * binary meta data and the row index are extended in place, provided they describe
+	 * the rows already pre-processed. If the meta data or row index is wanted, or the
+	 * meta data exists, but can't be extended, the whole file must be pre-processed.
+	 * @param cache the results cached before the rows were appended.
+	 * @param createMetaData if true binary meta data is wanted for the file.
+	 * @param size the size of the file, up to which rows are read.
+	 * @param modified the time the file was last modified.
+	 * @return true if the results were extended, else false if the whole file must be pre-processed.
+	 */
+	protected boolean extend(PreprocessCache cache,boolean createMetaData,long size,long modified)
+	{
+		File file = new File(this.pfile.getPath());
+		long previousSize = cache.getSize();
+		long previousRows = cache.getRows();
+
+		boolean extendMetaData = MetaData.readRows(getMetaDataPath()) == previousRows;
+		boolean extendRowIndex = RowIndex.describes(getRowIndexPath(), previousSize, previousRows);
+
+		if((createMetaData || hasMetaData()) && !extendMetaData)
+			return false;
+
+		if(createRowIndex && !extendRowIndex)
+			return false;
+
+		cache.restore(this.pfile);
+
+		PreprocessTask.Counts counts = null;
+
+		try
+		{
+			FileInputStream in = new FileInputStream(file);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+				long[] boundaries = PreprocessTask.getChunkBoundaries(channel, previousSize, size, PreprocessTask.DEFAULT_CHUNK_SIZE);
+
+				ForkJoinPool pool = new ForkJoinPool();
+
+				try { counts = pool.invoke(new PreprocessTask(channel, boundaries, 0, boundaries.length-1, this.pfile.getClassIndex(), extendRowIndex, extendMetaData)); }
+				finally { pool.shutdown(); }
+			}
+			finally{in.close();}
+		}
+		catch(IOException e){ this.pfile.log("IO Exception:\n"+e.toString()); return false; }
+
+		// Malformed rows are reported when the whole file is pre-processed.
+		if(counts.malformed > 0 || (extendRowIndex && counts.offsetsDropped))
+			return false;
+
+		// The distribution is in label order, labels are in the order first seen in the file.
+		String[] labels = this.pfile.getClassLabels();
+		String[] sorted = labels.clone();
+		Arrays.sort(sorted);
+		long[] distribution = this.pfile.getClassDistribution();
+
+		Vector<String> classLabels = new Vector<String>(Arrays.asList(labels));
+		TreeMap<String, Long> classDistribution = new TreeMap<String, Long>();
+
+		for(int i = 0; i < sorted.length; i++)
+			classDistribution.put(sorted[i], distribution[i]);
+
+		for(int i = 0; i < counts.labels.size(); i++)
+		{
+			String clazz = new String(counts.labels.get(i));
+			Long count = classDistribution.get(clazz);
+
+			if(count == null)
+			{
+				classLabels.add(clazz);
+				count = 0L;
+			}
+
+			classDistribution.put(clazz, count + counts.distribution[i]);
+		}
+
+		long[] classDist = new long[classDistribution.size()];
+
+		int i = 0;
+		for(Long value : classDistribution.values())
+			classDist[i++] = value;
+
+		if(extendMetaData && !MetaData.append(getMetaDataPath(), counts.positives, counts.rows, classDist))
+			return false;
+
+		if(extendRowIndex && !RowIndex.append(getRowIndexPath(), counts.offsets, counts.offsetCount, previousSize, previousRows, size, modified))
+		{
+			this.pfile.log("Could not extend row index "+getRowIndexPath()+"\n");
+			return false;
+		}
+
+		this.pfile.setLineCount(this.pfile.getLineCount() + counts.lines);
+		this.pfile.setRows(previousRows + counts.rows);
+		this.pfile.setClassLabels(VariableCast.convertStringListToArray(classLabels));
+		this.pfile.setClassDistribution(classDist);
+
+		this.pfile.log("Pre-processed "+counts.rows+" rows appended to the file since it was last loaded.\n");
+		return true;
+	}
+
+	/**
+	 * @return true if meta data exists for the file being edited, in the binary format or
+	 *         the format written by older versions, else false.
+	 */
+	protected boolean hasMetaData()
+	{
+		if(new File(getMetaDataPath()).exists())
+			return true;
+
+		String extension = pfile.getExtension();
+
+		return new File(this.pfile.getPath().replace(extension, ".positive.meta")).exists()
+				&& new File(this.pfile.getPath().replace(extension, ".negative.meta")).exists();
+	}
+
+	/**
+	 * Reads the file being edited, to find the line count, rows, columns, relation,
+	 * attribute labels, class labels and class distribution, which are stored in the file.
+	 * The header is read sequentially, then the data rows are counted in parallel, see
+	 * {@link PreprocessTask}. If createMetaData is true, the positive rows are collected by
+	 * the same tasks, and written as binary meta data.
+	 * @param createMetaData if true binary meta data is written for the file.
+	 * @return true if the file was read successfully, and the meta data was written if wanted, else false.
+	 */
+	protected boolean scan(boolean createMetaData)
 	{		
-		int LINES = 0;
-		int rows = 0;
+		long LINES = 0;
+		long rows = 0;
 		int columns = 0;
 		int classIndex = -1;
+		long ignored = 0;
 		String relation = "";
 
 		Vector<String> attributes = new Vector<String>();
 		Vector<String> classLabels = new Vector<String>();
-		TreeMap<String, Integer> classDistribution = new TreeMap<String, Integer>();
+		TreeMap<String, Long> classDistribution = new TreeMap<String, Long>();
 
 
 		//Firstly try to read the file
 		File file = new File(this.pfile.getPath());
+		boolean compressed = Reader.isCompressed(file.getPath());
 
 		//if the file exists
 		if(file.exists())
 		{
-			// Variables used to store the line of the being read
-			// using the input stream, and an array list to store the input
-			// patterns into.
-			String line = "";
-
-			// Read the file and display it line by line. 
-			BufferedReader in = null;
+			InputStream in = null;
 
 			try
 			{
-				//open stream to file
-				in = new BufferedReader(new FileReader(file));
+				//open stream to file, decompressing it if required
+				in = Reader.openStream(file.getPath());
 
 				try
 				{   
-					while ((line = in.readLine()) != null)
-					{	
+					/*
+					 * The header is read sequentially up to the first row of data, as it
+					 * is small and its lines must be parsed in order. The first row tells
+					 * us how many columns there are and where the class label is.
+					 */
+					BufferedInputStream header = new BufferedInputStream(in);
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					String firstRow = null;
+					PreprocessTask.Counts counts = null;
+					long offset = 0;
+					long dataStart = 0;
+					int b = 0;
+
+					while (firstRow == null && b != -1)
+					{
+						b = header.read();
+
+						if(b != '\n' & b != '\r' & b != -1)
+						{
+							bytes.write(b);
+							offset++;
+							continue;
+						}
+						else if(b == -1 && bytes.size() == 0)
+							break;
+
+						long lineStart = dataStart;
+
+						// Consume the line terminator, treating \r\n as one terminator.
+						if(b != -1)
+						{
+							offset++;
+
+							if(b == '\r')
+							{
+								header.mark(1);
+								if(header.read() == '\n')
+									offset++;
+								else
+									header.reset();
+							}
+						}
+
+						String line = bytes.toString();
+						bytes.reset();
+						dataStart = offset;
+
 						if(line.startsWith("%") | line.startsWith(" "))// Ignore these		
 							LINES+=1;
 						else if(line.toUpperCase().startsWith("@RELATION"))
@@ -142,49 +442,100 @@ public class BaseEditor implements IEditor
 						}
 						else if(!Strings.isNullOrEmptyString(line)) // The data.
 						{
-							LINES+=1;
-							rows+=1;
+							firstRow = line;
+							dataStart = lineStart;
+						}
+						else { ignored+=1; }
+					}
 
-							String[] components = line.split(",");
+					if(firstRow != null)
+					{
+						String[] components = firstRow.split(",");
+						columns=components.length;// Assumes one column contains the class label.
+
+						// Check class index is valid.
+						if(this.pfile.getClassIndex()<0)
+						{
+							classIndex = components.length-1;
+							this.pfile.setClassIndex(classIndex);
+						}
+						else
+							classIndex = this.pfile.getClassIndex();
 
-							if(columns==0)
-								columns=components.length;// Assumes one column contains the class label.
+						if(compressed)
+						{
+							/*
+							 * A compressed file can't be mapped, so the rest of the file is
+							 * decompressed again from the start, and counted as it is read.
+							 */
+							InputStream data = Reader.openStream(file.getPath());
 
-							// Check class index is valid.
-							if(classIndex<0)
-								if(this.pfile.getClassIndex()<0)
+							try
+							{
+								long skipped = 0;
+								while(skipped < dataStart)
 								{
-									classIndex = components.length-1;
-									this.pfile.setClassIndex(classIndex);
+									long n = data.skip(dataStart - skipped);
+									if(n <= 0)
+										break;
+									skipped += n;
 								}
-								else
-									classIndex = this.pfile.getClassIndex();
-
-							String clazz = components[classIndex];
 
-							if(!classLabels.contains(clazz))
-							{
-								classLabels.add(components[classIndex]);
-								classDistribution.put(clazz, 1);
-							}
-							else 
-							{
-								classDistribution.put(clazz, classDistribution.get(clazz) + 1);
+								counts = new PreprocessTask(null, null, 0, 0, classIndex, false, createMetaData).scan(data);
 							}
+							finally{data.close();}
+						}
+						else
+						{
+							/*
+							 * The rest of the file is memory mapped in newline aligned chunks,
+							 * which are counted in parallel.
+							 */
+							FileChannel channel = ((FileInputStream)in).getChannel();
+							long[] boundaries = PreprocessTask.getChunkBoundaries(channel, dataStart, channel.size(), PreprocessTask.DEFAULT_CHUNK_SIZE);
+
+							ForkJoinPool pool = new ForkJoinPool();
+
+							try { counts = pool.invoke(new PreprocessTask(channel, boundaries, 0, boundaries.length-1, classIndex, createRowIndex, createMetaData)); }
+							finally { pool.shutdown(); }
+						}
 
+						if(counts.malformed > 0)
+						{
+							this.pfile.log("Rows without a class label at index "+classIndex+": "+counts.malformed+"\n");
+							return false;
+						}
+
+						if(createRowIndex && !compressed && counts.offsetsDropped)
+							this.pfile.log("Too many rows to build a row index, at most "+IndexSelector.MAX_INDEXES+" rows can be indexed.\n");
+						else if(createRowIndex && !compressed && !RowIndex.write(getRowIndexPath(), counts.offsets, counts.offsetCount, file.length(), file.lastModified()))
+							this.pfile.log("Could not write row index to "+getRowIndexPath()+"\n");
+
+						LINES += counts.lines;
+						rows = counts.rows;
+						ignored += counts.empty;
+
+						// Labels are in the order first seen in the file.
+						for(int i = 0; i < counts.labels.size(); i++)
+						{
+							String clazz = new String(counts.labels.get(i));
+							classLabels.add(clazz);
+							classDistribution.put(clazz, counts.distribution[i]);
 						}
-						else { this.pfile.log("Ignored line:\n"+line); }
 					}
 
-					int[] classDist=new int[classDistribution.size()];
+					if(ignored > 0)
+						this.pfile.log("Ignored empty lines: "+ignored+"\n");
 
-					Iterator<Entry<String, Integer>> it = classDistribution.entrySet().iterator();
+					long[] classDist=new long[classDistribution.size()];
+
+					Iterator<Entry<String, Long>> it = classDistribution.entrySet().iterator();
 
 					int i = 0;
 					while (it.hasNext()) 
 					{
-						Map.Entry<String,Integer> pairs = (Map.Entry<String,Integer>)it.next();
-						Integer value = pairs.getValue();
+						Map.Entry<String,Long> pairs = (Map.Entry<String,Long>)it.next();
+						Long value = pairs.getValue();
 						classDist[i]=value;
 						i++;
 					}
@@ -198,6 +549,19 @@ public class BaseEditor implements IEditor
 					this.pfile.setClassLabels(VariableCast.convertStringListToArray(classLabels));
 					this.pfile.setClassDistribution(classDist);
 
+					if(createMetaData)
+					{
+						// A shard may hold only one of the classes, or none if it is empty.
+						if(classLabels.size() > 2 || (!shard && (counts == null || classLabels.size() != 2)))
+						{
+							this.pfile.log("Meta data can only be created for files with two classes.\n");
+							return false;
+						}
+
+						MetaData meta = new MetaData(rows, counts == null ? new LongBitSet() : counts.positives, classDist);
+						return meta.write(getMetaDataPath());
+					}
+
 					return true;
 				}
 				catch(IOException e){ this.pfile.log("IO Exception:\n"+e.toString());return false;}
@@ -216,14 +580,47 @@ public class BaseEditor implements IEditor
 	{
 		String extension = this.pfile.getExtension();
 		String outputPath = this.pfile.getPath().replace(extension, ".shuffled."+extension);
-		Vector<String> lines = new Vector<String>();
+		return shuffle(outputPath);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#shuffle(java.lang.String)
+	 */
+	@Override
+	public boolean shuffle(String pth)
+	{
+		return shuffle(pth, Runtime.getRuntime().maxMemory() / 2);
+	}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#shuffle(java.lang.String, long)
+	 */
+	@Override
+	public boolean shuffle(String pth,long memoryBudget)
+	{
 		//Firstly try to read the file
 		File file = new File(this.pfile.getPath());
 
 		//if the file exists
 		if(file.exists())
 		{
+			/*
+			 * If the data will not fit in the memory budget, each line is written to a
+			 * randomly chosen temporary bucket file, each small enough to be shuffled
+			 * in memory. The buckets are then shuffled and concatenated. As every line
+			 * is equally likely to land in every bucket, and each bucket is shuffled
+			 * uniformly, the output is a uniformly random permutation. A bucket still
+			 * too large for the budget is scattered again, see shuffleBucket().
+			 */
+			long length = Reader.isCompressed(file.getPath()) ? file.length() * COMPRESSION_RATIO : file.length();
+			int buckets = getBucketCount(length, memoryBudget, 1);
+
+			SplittableRandom r = this.random.split();
+			ArrayList<String> lines = new ArrayList<String>();
+			String[] bucketPaths = new String[buckets > 1 ? buckets : 0];
+			WriterHandle[] bucketFiles = new WriterHandle[bucketPaths.length];
+			long[] bucketLines = new long[bucketPaths.length];
+
 			// Variables used to store the line of the being read
 			// using the input stream, and an array list to store the input
 			// patterns into.
@@ -231,150 +628,228 @@ public class BaseEditor implements IEditor
 
 			// Read the file and display it line by line. 
 			BufferedReader in = null;
+			WriterHandle out = null;
 
 			try
 			{
 				//open stream to file
-				in = new BufferedReader(new FileReader(file));
+				in = Reader.openReader(file.getPath());
+				out = Writer.open(pth);
 
 				try
 				{   
+					File dir = new File(pth).getAbsoluteFile().getParentFile();
+
+					for(int i = 0; i < bucketPaths.length; i++)
+					{
+						bucketPaths[i] = File.createTempFile("shuffle", ".bucket", dir).getPath();
+						bucketFiles[i] = Writer.open(bucketPaths[i], false, BUCKET_BUFFER_SIZE, 0);
+					}
+
+					if(buckets > 1)
+						this.pfile.log("Shuffling using "+buckets+" temporary buckets.\n");
+
 					while ((line = in.readLine()) != null)
 					{
 						if(line.startsWith("%") | line.startsWith(" "))// Ignore these		
-							Writer.append(outputPath,line+"\n");
+							out.append(line+"\n");
 						else if(line.startsWith("@RELATION")| line.startsWith("@relation"))
-							Writer.append(outputPath,line+"\n\n");
+							out.append(line+"\n\n");
 						else if(line.startsWith("@ATTRIBUTE") | line.startsWith("@attribute"))			
-							Writer.append(outputPath,line+"\n");
+							out.append(line+"\n");
 						else if(line.startsWith("@DATA")| line.startsWith("@data"))
-							Writer.append(outputPath,"\n"+line+"\n");
+							out.append("\n"+line+"\n");
 						else if(!Strings.isNullOrEmptyString(line)) // The data.
-							lines.add(line);
-
+						{
+							if(buckets > 1)
+							{
+								int b = r.nextInt(buckets);
+								bucketFiles[b].append(line+"\n");
+								bucketLines[b]++;
+							}
+							else
+								lines.add(line);
+						}
 						else continue;
 					}
 
-					Collections.shuffle(lines);
+					if(buckets == 1)
+					{
+						IndexSelector.shuffle(lines, r);
+
+						for(int i = 0; i< lines.size();i++)
+							out.append(lines.get(i)+"\n");
 
-					StringBuffer buffer = new StringBuffer();
-					int writeCounter = 0;
+						return out.flush();
+					}
 
-					for(int i = 0; i< lines.size();i++)
+					for(int i = 0; i < buckets; i++)
 					{
-						buffer.append(lines.elementAt(i)+"\n");
-						writeCounter++;
-
-						if(writeCounter% 50 == 0)
-						{
-							Writer.append(outputPath, buffer.toString());
-							buffer.setLength(0);
-							writeCounter=0;
-						}
+						Writer.close(bucketFiles[i]);
+						bucketFiles[i] = null;
 					}
 
-					if(writeCounter > 0)
-						Writer.append(outputPath, buffer.toString());
+					for(int i = 0; i < buckets; i++)
+						if(!shuffleBucket(bucketPaths[i], bucketLines[i], memoryBudget, dir, r, out, 1))
+							return false;
 
-					return true;
+					return out.flush();
+				}
+				catch(IOException e){this.pfile.log("IO Exception:\n"+e.toString()); return false;}
+				finally
+				{
+					in.close();
+					Writer.close(out);
+
+					// Remove any buckets left behind by an error.
+					for(int i = 0; i < bucketPaths.length; i++)
+						if(bucketPaths[i] != null)
+						{
+							Writer.close(bucketFiles[i]);
+							new File(bucketPaths[i]).delete();
+						}
 				}
-				catch(IOException e){return false;}
-				finally{in.close();}
 			}
 			catch (Exception e) { return false; }
 		}
 		else{ return false; }
 	}
+	
+	/**
+	 * Computes the number of buckets an external shuffle scatters data to, so that each
+	 * bucket can be shuffled within the memory budget, up to {@link #MAX_BUCKETS}.
+	 * @param length the number of bytes of data to scatter.
+	 * @param memoryBudget the approximate number of bytes of heap the shuffle may use.
+	 * @param minimum the minimum number of buckets.
+	 * @return the number of buckets, one if the data can be shuffled in memory.
+	 */
+	private static int getBucketCount(long length,long memoryBudget,int minimum)
+	{
+		long required = length * STRING_OVERHEAD;
+		long budget = Math.max(1, memoryBudget);
 
+		return (int)Math.min(MAX_BUCKETS, Math.max(minimum, (required + budget - 1) / budget));
+	}
 
-	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IEditor#shuffle(java.lang.String)
+	/**
+	 * Writes the lines of a temporary bucket file to the output in a uniformly random
+	 * order, then deletes the bucket. If the bucket fits in the memory budget it is
+	 * shuffled in memory. Otherwise its lines are scattered at random to smaller buckets,
+	 * which are shuffled in turn, so no more than {@link #MAX_BUCKETS} files are open at
+	 * once, however large the data is relative to the budget.
+	 * @param path the path to the bucket file.
+	 * @param lines the number of lines in the bucket.
+	 * @param memoryBudget the approximate number of bytes of heap the shuffle may use.
+	 * @param dir the directory to create smaller buckets in.
+	 * @param r the random number generator.
+	 * @param out the output to write the shuffled lines to.
+	 * @param pass the number of times the lines have been scattered so far.
+	 * @return true if written, else false if the bucket can't be brought within the memory budget.
+	 * @throws IOException if a bucket can't be read or written.
 	 */
-	@Override
-	public boolean shuffle(String pth)
+	private boolean shuffleBucket(String path,long lines,long memoryBudget,File dir,SplittableRandom r,WriterHandle out,int pass) throws IOException
 	{
-		Vector<String> lines = new Vector<String>();
-
-		//Firstly try to read the file
-		File file = new File(this.pfile.getPath());
+		File file = new File(path);
+		long length = file.length();
+		String line = "";
 
-		//if the file exists
-		if(file.exists())
+		if(getBucketCount(length, memoryBudget, 1) == 1)
 		{
-			// Variables used to store the line of the being read
-			// using the input stream, and an array list to store the input
-			// patterns into.
-			String line = "";
-
-			// Read the file and display it line by line. 
-			BufferedReader in = null;
+			// Read the bucket back and shuffle it in memory.
+			ArrayList<String> contents = new ArrayList<String>();
+			BufferedReader bucket = new BufferedReader(new FileReader(path));
 
 			try
 			{
-				//open stream to file
-				in = new BufferedReader(new FileReader(file));
+				while ((line = bucket.readLine()) != null)
+					contents.add(line);
+			}
+			finally{bucket.close();}
 
-				try
-				{   
-					while ((line = in.readLine()) != null)
-					{
-						if(line.startsWith("%") | line.startsWith(" "))// Ignore these		
-							Writer.append(pth,line+"\n");
-						else if(line.startsWith("@RELATION")| line.startsWith("@relation"))
-							Writer.append(pth,line+"\n\n");
-						else if(line.startsWith("@ATTRIBUTE") | line.startsWith("@attribute"))			
-							Writer.append(pth,line+"\n");
-						else if(line.startsWith("@DATA")| line.startsWith("@data"))
-							Writer.append(pth,"\n"+line+"\n");
-						else if(!Strings.isNullOrEmptyString(line)) // The data.
-							lines.add(line);
+			IndexSelector.shuffle(contents, r);
 
-						else continue;
-					}
+			for(int j = 0; j< contents.size();j++)
+				out.append(contents.get(j)+"\n");
 
-					Collections.shuffle(lines);
+			file.delete();
+			return true;
+		}
 
-					StringBuffer buffer = new StringBuffer();
-					int writeCounter = 0;
+		if(lines <= 1 || pass >= MAX_SCATTER_PASSES)
+		{
+			this.pfile.log("Could not shuffle within the memory budget of "+memoryBudget+" bytes, a bucket of "
+					+lines+" lines and "+length+" bytes could not be split further.\n");
+			return false;
+		}
 
-					for(int i = 0; i< lines.size();i++)
-					{
-						buffer.append(lines.elementAt(i)+"\n");
-						writeCounter++;
+		// Scatter the bucket to smaller buckets, at least two.
+		int buckets = getBucketCount(length, memoryBudget, 2);
+		String[] bucketPaths = new String[buckets];
+		WriterHandle[] bucketFiles = new WriterHandle[buckets];
+		long[] bucketLines = new long[buckets];
 
-						if(writeCounter% 50 == 0)
-						{
-							Writer.append(pth, buffer.toString());
-							buffer.setLength(0);
-							writeCounter=0;
-						}
-					}
+		BufferedReader in = null;
 
-					if(writeCounter > 0)
-						Writer.append(pth, buffer.toString());
+		try
+		{
+			in = new BufferedReader(new FileReader(path));
 
-					return true;
-				}
-				catch(IOException e){return false;}
-				finally{in.close();}
+			for(int i = 0; i < buckets; i++)
+			{
+				bucketPaths[i] = File.createTempFile("shuffle", ".bucket", dir).getPath();
+				bucketFiles[i] = Writer.open(bucketPaths[i], false, BUCKET_BUFFER_SIZE, 0);
 			}
-			catch (Exception e) { return false; }
+
+			while ((line = in.readLine()) != null)
+			{
+				int b = r.nextInt(buckets);
+				bucketFiles[b].append(line+"\n");
+				bucketLines[b]++;
+			}
+
+			in.close();
+			in = null;
+			file.delete();
+
+			for(int i = 0; i < buckets; i++)
+			{
+				Writer.close(bucketFiles[i]);
+				bucketFiles[i] = null;
+			}
+
+			for(int i = 0; i < buckets; i++)
+				if(!shuffleBucket(bucketPaths[i], bucketLines[i], memoryBudget, dir, r, out, pass + 1))
+					return false;
+
+			return true;
+		}
+		finally
+		{
+			if(in != null)
+				in.close();
+
+			// Remove any buckets left behind by an error.
+			for(int i = 0; i < buckets; i++)
+				if(bucketPaths[i] != null)
+				{
+					Writer.close(bucketFiles[i]);
+					new File(bucketPaths[i]).delete();
+				}
 		}
-		else{ return false; }
 	}
-	
+
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IEditor#createMetaDataBinary()
 	 */
 	@Override
 	public boolean createMetaDataBinary()
 	{
-		String extension = this.pfile.getExtension();
 		String path = this.pfile.getPath();
 		int classIndex = this.pfile.getClassIndex();
 
-		String positivePath = path.replace(extension, ".positive.meta");
-		String negativePath = path.replace(extension, ".negative.meta");
+		long[] dist = this.pfile.getClassDistribution();
+		LongBitSet positives = new LongBitSet(this.pfile.getRows());
+		long instance = 0;
 
 		//Firstly try to read the file
 		File file = new File(path);
@@ -393,37 +868,20 @@ public class BaseEditor implements IEditor
 			try
 			{
 				//open stream to file
-				in = new BufferedReader(new FileReader(file));
+				in = Reader.openReader(path);
 
 				try
 				{   
-					int instance = 0;
-
 					while ((line = in.readLine()) != null)
 					{
 						if(line.startsWith("%") | line.startsWith(" "))// Ignore these		
-						{
-							Writer.append(positivePath,line+"\n");
-							Writer.append(negativePath,line+"\n");
-						}
+							continue;
 						else if(line.toUpperCase().startsWith("@RELATION"))
-						{
-							Writer.append(positivePath,line+"\n");
-							Writer.append(negativePath,line+"\n");
-
-							Writer.append(positivePath,"@ATTRIBUTE index	NUMERIC\n");
-							Writer.append(negativePath,"@ATTRIBUTE index	NUMERIC\n");
-						}
+							continue;
 						else if(line.toUpperCase().startsWith("@ATTRIBUTE"))			
-						{
-							Writer.append(positivePath,line+"\n");
-							Writer.append(negativePath,line+"\n");
-						}
+							continue;
 						else if(line.toUpperCase().startsWith("@DATA"))
-						{
-							Writer.append(positivePath,line+"\n");
-							Writer.append(negativePath,line+"\n");
-						}
+							continue;
 						else if(!Strings.isNullOrEmptyString(line)) // The data.
 						{
 							String[] components = line.split(",");
@@ -432,24 +890,151 @@ public class BaseEditor implements IEditor
 							instance+=1;
 
 							if(clazz.endsWith("1"))
-								Writer.append(positivePath,instance+","+line+"\n");
-							else
-								Writer.append(negativePath,instance+","+line+"\n");
-
+								positives.set(instance-1);
 						}
 						else continue;
 					}
-
-					return true;
 				}
 				catch(IOException e){return false;}
 				finally{in.close();}
 			}
 			catch (Exception e) { return false; }
+
+			MetaData meta = new MetaData(instance, positives, dist == null ? new long[0] : dist);
+			return meta.write(getMetaDataPath());
 		}
 		else{ return false; }
 	}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#getMetaData()
+	 */
+	@Override
+	public MetaData getMetaData()
+	{
+		MetaData meta = MetaData.read(getMetaDataPath());
+
+		if(meta != null)
+			return meta;
+
+		// Fall back to meta data files written by older versions.
+		String extension = pfile.getExtension();
+		String positivePath = this.pfile.getPath().replace(extension, ".positive.meta");
+		String negativePath = this.pfile.getPath().replace(extension, ".negative.meta");
+
+		if(!new File(positivePath).exists() | !new File(negativePath).exists())
+		{
+			this.pfile.log("Meta data does not exist:"+getMetaDataPath()+"\n");
+			return null;
+		}
+
+		TreeMap<Integer,Integer> positives = getMetaData(positivePath);
+		TreeMap<Integer,Integer> negatives = getMetaData(negativePath);
+
+		if(positives == null | negatives == null)
+			return null;
+
+		LongBitSet bits = new LongBitSet();
+		long rows = 0;
+
+		for(Integer row : positives.values())
+		{
+			bits.set(row-1);
+			rows = Math.max(rows, row);
+		}
+
+		for(Integer row : negatives.values())
+			rows = Math.max(rows, row);
+
+		return new MetaData(rows, bits, this.pfile.getClassDistribution());
+	}
+
+	/**
+	 * Builds the path to the pre-processing cache file belonging to the file being edited,
+	 * i.e. for /data/file.arff this would be /data/file.preprocess.meta.
+	 * @return the path to the pre-processing cache file.
+	 */
+	protected String getPreprocessCachePath()
+	{
+		return this.pfile.getPath().replace(this.pfile.getExtension(), PreprocessCache.EXTENSION);
+	}
+
+	/**
+	 * Builds the path to the row index belonging to the file being edited,
+	 * i.e. for /data/file.arff this would be /data/file.rows.index.
+	 * @return the path to the row index.
+	 */
+	protected String getRowIndexPath()
+	{
+		return this.pfile.getPath().replace(this.pfile.getExtension(), RowIndex.EXTENSION);
+	}
+
+	/**
+	 * Reads the row index belonging to the file being edited.
+	 * @return the row index, or null if it does not exist or the file has changed since it was built.
+	 */
+	protected RowIndex getRowIndex()
+	{
+		RowIndex index = RowIndex.read(getRowIndexPath());
+
+		if(index == null || !index.matches(new File(this.pfile.getPath())))
+			return null;
+
+		return index;
+	}
+
+	/**
+	 * @return true if the data being edited exists, else false.
+	 */
+	protected boolean exists()
+	{
+		return new File(this.pfile.getPath()).exists();
+	}
+
+	/**
+	 * Opens a reader over every row of data being edited, in order.
+	 * @return the reader, positioned before the first row.
+	 * @throws IOException if the data cannot be opened.
+	 */
+	protected RowReader openRows() throws IOException
+	{
+		return new RowReader(this.pfile.getPath(), this.pfile.getClassIndex());
+	}
+
+	/**
+	 * Builds the path to the fold assignment belonging to the file being edited,
+	 * i.e. for /data/file.arff this would be /data/file.folds.meta.
+	 * @return the path to the fold assignment.
+	 */
+	protected String getFoldAssignmentPath()
+	{
+		return this.pfile.getPath().replace(this.pfile.getExtension(), FoldAssignment.EXTENSION);
+	}
+
+	/**
+	 * Reads the fold assignment belonging to the file being edited.
+	 * @return the fold assignment, or null if it does not exist or the file has changed since it was created.
+	 */
+	protected FoldAssignment getFoldAssignment()
+	{
+		FoldAssignment assignment = FoldAssignment.read(getFoldAssignmentPath());
+
+		if(assignment == null || !assignment.matches(new File(this.pfile.getPath())) || assignment.getRows() != this.pfile.getRows())
+			return null;
+
+		return assignment;
+	}
+
+	/**
+	 * Builds the path to the binary meta data file belonging to the file being edited,
+	 * i.e. for /data/file.arff this would be /data/file.index.meta.
+	 * @return the path to the binary meta data file.
+	 */
+	protected String getMetaDataPath()
+	{
+		return this.pfile.getPath().replace(this.pfile.getExtension(), MetaData.EXTENSION);
+	}
+
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IEditor#getMetaData(java.lang.String)
 	 */
@@ -514,6 +1099,15 @@ public class BaseEditor implements IEditor
 	 */
 	@Override
 	public boolean writeARFFHeader(String destination, String title, String rel, String description)
+	{
+		return Writer.append(destination, getARFFHeader(title, rel, description));
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#getARFFHeader(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public String getARFFHeader(String title, String rel, String description)
 	{
 		// The header... it is made up of three parts:
 		String header = "% Title : "+ title +"\n"+
@@ -528,11 +1122,8 @@ public class BaseEditor implements IEditor
 			attributes += attributeLabels[i]+"\n";
 
 		String data = "@DATA\n";
-		// Write out the header
-		Writer.append(destination, header);
-		Writer.append(destination, relation);
-		Writer.append(destination, attributes);
-		return Writer.append(destination, data);
+
+		return header + relation + attributes + data;
 	}
 
 	/* (non-Javadoc)
@@ -561,60 +1152,945 @@ public class BaseEditor implements IEditor
 	}
 
 	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IEditor#label(int, int, int, int, double)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public boolean sampleToCSV(String trainPath, String testPath, int negTrainSamples,
+			int posTrainSamples, double trainingSetBalance, double testSetBalance, double labelling)
+	{
+		return sample(trainPath, testPath, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling, false);
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public boolean sampleToARFF(String trainPath, String testPath, int negTrainSamples,
+			int posTrainSamples, double trainingSetBalance, double testSetBalance, double labelling)
+	{
+		return sample(trainPath, testPath, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling, true);
+	}
+
+	/**
+	 * Samples the file using the meta data created by {@link #createMetaDataBinary()}.
+	 * 
+	 * <P>The row indexes of the positive and negative instances are read from the meta
+	 * data files, for example given the ARFF file:</p>
+	 * 
+	 * % Title : Original Data Set.
+	 * @RELATION Original
+	 * @ATTRIBUTE a	NUMERIC
+	 * @ATTRIBUTE b	NUMERIC
+	 * @ATTRIBUTE c	NUMERIC
+	 * @ATTRIBUTE class		{0,1}
+	 * @DATA
+	 * 13 , 10 , 2 , 1
+	 * 24 , 12 , 2 , 0
+	 * 61 , 21 , 3 , 1
+	 * 18 , 12 , 2 , 0
+	 * 26 , 11 , 2 , 1
+	 * 
+	 * <P>the positive row indexes are {1,3,5} and the negative row indexes are {2,4}. The
+	 * positive indexes are then randomly split into those for the training set (P_train of
+	 * them), those for the test set (P_test of them) and those to omit, and likewise for the
+	 * negatives, using {@link IndexSelector#partition(long, long[], SplittableRandom)}. Each selection
+	 * is returned as a sorted array, so the file can then be read once, comparing the current
+	 * row index against the next index in each of the four arrays to decide where the row
+	 * should be written.</p>
+	 * 
+	 * @param trainPath the path to the training set file to create.
+	 * @param testPath the path to the test set file to create.
+	 * @param negTrainSamples the number of negative samples to include in the training set.
+	 * @param posTrainSamples the number of positive samples to include in the training set.
+	 * @param trainingSetBalance the class balance desired in the training set.
+	 * @param testSetBalance the class balance desired in the test set.
+	 * @param labelling the ratio of labelled data to aim for.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @return true if sampled successfully, else false.
+	 */
+	protected boolean sample(String trainPath, String testPath, int negTrainSamples,
+			int posTrainSamples, double trainingSetBalance, double testSetBalance, double labelling, boolean arff)
+	{
+		SamplePlan plan = new SamplePlan(this.pfile, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling);
+
+		return sample(new String[] { trainPath }, new String[] { testPath }, new SamplePlan[] { plan }, arff);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleReplicatesToCSV(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
 	 */
 	@Override
-	public boolean label(int labelled, int unlabelled, int INSTANCES_TO_LABEL,int INSTANCES_TO_NOT_LABEL, double labelling)
+	public boolean sampleReplicatesToCSV(String trainPath, String testPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainingSetBalances, double[] testSetBalances, double[] labellings)
 	{
-		Random r = new Random();
-		int result = 0;
+		return sampleReplicates(trainPath, testPath, replicates, negTrainSamples, posTrainSamples, trainingSetBalances, testSetBalances, labellings, false);
+	}
 
-		// keep looping until a decision is made.
-		while(result == 0)
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleReplicatesToARFF(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public boolean sampleReplicatesToARFF(String trainPath, String testPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainingSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		return sampleReplicates(trainPath, testPath, replicates, negTrainSamples, posTrainSamples, trainingSetBalances, testSetBalances, labellings, true);
+	}
+
+	/**
+	 * Creates a sampling plan for each replicate to be produced, and the paths of the
+	 * files each replicate should be written to, then samples every replicate during a
+	 * single pass over the file. Replicates are numbered from 1, setting by setting, so
+	 * that given 2 settings and 3 replicates, replicates 1 to 3 use the first setting and
+	 * replicates 4 to 6 the second.
+	 * 
+	 * @param trainPath the path to the training set file, the replicate number is inserted before the extension.
+	 * @param testPath the path to the test set file, the replicate number is inserted before the extension.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the number of negative samples to include in each training set.
+	 * @param posTrainSamples the number of positive samples to include in each training set.
+	 * @param trainingSetBalances the class balance desired in the training set, for each setting.
+	 * @param testSetBalances the class balance desired in the test set, for each setting.
+	 * @param labellings the ratio of labelled data to aim for, for each setting.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @return true if sampled successfully, else false.
+	 */
+	protected boolean sampleReplicates(String trainPath, String testPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainingSetBalances, double[] testSetBalances, double[] labellings, boolean arff)
+	{
+		if(replicates < 1)
 		{
-			double rand = r.nextDouble();
-			result = Double.compare(rand, labelling);
+			this.pfile.log("At least one replicate must be requested, cannot sample.\n");
+			return false;
 		}
 
-		if(Double.compare(labelling, 1) == 0)//Everything should be labelled in this case.
-			return true;
-		else if(Double.compare(labelling, 0.0) == 0)// Nothing should be labelled in this case.
+		if(trainingSetBalances == null || testSetBalances == null || labellings == null ||
+				trainingSetBalances.length == 0 || trainingSetBalances.length != testSetBalances.length ||
+				trainingSetBalances.length != labellings.length)
+		{
+			this.pfile.log("Replicate settings must be supplied as arrays of equal, non-zero length, cannot sample.\n");
+			return false;
+		}
+
+		int total = replicates * trainingSetBalances.length;
+
+		String[] trainPaths = new String[total];
+		String[] testPaths = new String[total];
+		SamplePlan[] plans = new SamplePlan[total];
+
+		for(int s = 0; s < trainingSetBalances.length; s++)
+			for(int n = 0; n < replicates; n++)
+			{
+				int k = s * replicates + n;
+				trainPaths[k] = getReplicatePath(trainPath, k+1);
+				testPaths[k] = getReplicatePath(testPath, k+1);
+				plans[k] = new SamplePlan(this.pfile, negTrainSamples, posTrainSamples, trainingSetBalances[s], testSetBalances[s], labellings[s]);
+			}
+
+		return sample(trainPaths, testPaths, plans, arff);
+	}
+
+	/**
+	 * Samples the file using the meta data created by {@link #createMetaDataBinary()},
+	 * producing one training set and one test set for every plan supplied. The index
+	 * selections for every plan are made before the file is read, each as four sorted
+	 * arrays as described in {@link #sample(String, String, int, int, double, double, double, boolean)}.
+	 * The file is then read just once, and each row is written to the output files of
+	 * every plan that selected it. Reading stops as soon as the last selected row has
+	 * been written.
+	 * 
+	 * @param trainPaths the paths to the training set files to create, one per plan.
+	 * @param testPaths the paths to the test set files to create, one per plan.
+	 * @param plans the sampling plans, each independently sampled.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @return true if all plans were sampled successfully, else false.
+	 */
+	protected boolean sample(String[] trainPaths, String[] testPaths, SamplePlan[] plans, boolean arff)
+	{
+		return sample(trainPaths, testPaths, plans, arff, null);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleToInstances(int, int, double, double, double)
+	 */
+	@Override
+	public SampledInstances sampleToInstances(int negTrainSamples, int posTrainSamples,
+			double trainingSetBalance, double testSetBalance, double labelling)
+	{
+		SamplePlan plan = new SamplePlan(this.pfile, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling);
+		SampledInstances[] samples = new SampledInstances[1];
+
+		if(sample(null, null, new SamplePlan[] { plan }, true, samples))
+			return samples[0];
+		else
+			return null;
+	}
+
+	/**
+	 * Samples the file as described by {@link #sample(String[], String[], SamplePlan[], boolean)},
+	 * either writing each sample to files or, if an array to hold them is supplied, parsing
+	 * the rows of each sample straight into memory. Samples held in memory contain exactly
+	 * the instances that would be read back from the ARFF files written for the same plan.
+	 * 
+	 * @param trainPaths the paths to the training set files to create, one per plan, not used if sampling into memory.
+	 * @param testPaths the paths to the test set files to create, one per plan, not used if sampling into memory.
+	 * @param plans the sampling plans, each independently sampled.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @param samples the array to store the samples in, one per plan, or null to write the samples to files.
+	 * @return true if all plans were sampled successfully, else false.
+	 */
+	protected boolean sample(String[] trainPaths, String[] testPaths, SamplePlan[] plans, boolean arff, SampledInstances[] samples)
+	{
+		int R = plans.length;
+
+		MetaData meta = getMetaData();
+
+		if(meta == null)
+		{
+			this.pfile.log("Could not obtain meta data, cannot sample.\n");
 			return false;
-		else 
+		}
+
+		this.pfile.log("Obtained Meta data\n");
+
+		// Sorted row indexes of the instances chosen for each set, per plan.
+		long[][] P_train_indexes = new long[R][]; // Positives in training set.
+		long[][] N_train_indexes = new long[R][]; // Negatives in training set.
+		long[][] P_test_indexes  = new long[R][]; // Positives in test set.
+		long[][] N_test_indexes  = new long[R][]; // Negatives in test set.
+
+		// Each plan has its own generator, split into independent streams for the
+		// positives, the negatives and the test set positions to label.
+		LabelMask[] masks = new LabelMask[R];
+
+		try
 		{
-			// Random > labelling ratio and there are still instances we shouldn't label.
-			if(result > 0 && unlabelled < INSTANCES_TO_NOT_LABEL)
-				return false;
-			// Random < labelling ratio and there are still instances to label.
-			else if(result < 0 && labelled < INSTANCES_TO_LABEL)
-				return true;
-			// Random > labelling ratio and there are too many unlabelled instances.
-			else if(result > 0 && unlabelled >= INSTANCES_TO_NOT_LABEL)
-				return true;
+			for(int k = 0; k < R; k++)
+			{
+				SplittableRandom r = this.random.split();
+
+				// Ranks are chosen among the positives and negatives, then found in the meta data.
+				long[][] chosen = IndexSelector.partition(meta.getPositiveCount(), new long[] { plans[k].P_train, plans[k].P_test }, r.split());
+				P_train_indexes[k] = meta.toRowIndexes(chosen[0], true);
+				P_test_indexes[k]  = meta.toRowIndexes(chosen[1], true);
+
+				chosen = IndexSelector.partition(meta.getNegativeCount(), new long[] { plans[k].N_train, plans[k].N_test }, r.split());
+				N_train_indexes[k] = meta.toRowIndexes(chosen[0], false);
+				N_test_indexes[k]  = meta.toRowIndexes(chosen[1], false);
+
+				masks[k] = LabelMask.create(plans[k].MAX_test, plans[k].INSTANCES_TO_LABEL, r.split());
+			}
+		}
+		catch(IllegalArgumentException e){this.pfile.log(e.getMessage()+"\n"); return false;}
+
+		this.pfile.log("Completed random sampling... now parsing file.\n");
+
+		return sample(trainPaths, testPaths, plans, P_train_indexes, N_train_indexes, P_test_indexes, N_test_indexes, masks, arff, samples);
+	}
+
+	/**
+	 * Reads the rows chosen for each plan from the file, and writes them to the output
+	 * files of every plan that chose them, or parses them into memory if an array to hold
+	 * the samples is supplied. Each plan is described by four sorted arrays of row indexes,
+	 * as described in {@link #sample(String, String, int, int, double, double, double, boolean)},
+	 * and the mask recording which test set instances are labelled. The file is read just
+	 * once, stopping as soon as the last chosen row has been read.
+	 * 
+	 * @param trainPaths the paths to the training set files to create, one per plan, not used if sampling into memory.
+	 * @param testPaths the paths to the test set files to create, one per plan, not used if sampling into memory.
+	 * @param plans the sampling plans, used to describe each training and test set.
+	 * @param P_train_indexes the sorted row indexes of the positives in each training set.
+	 * @param N_train_indexes the sorted row indexes of the negatives in each training set.
+	 * @param P_test_indexes the sorted row indexes of the positives in each test set.
+	 * @param N_test_indexes the sorted row indexes of the negatives in each test set.
+	 * @param masks the masks recording which instances in each test set are labelled.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @param samples the array to store the samples in, one per plan, or null to write the samples to files.
+	 * @return true if all plans were sampled successfully, else false.
+	 */
+	protected boolean sample(String[] trainPaths, String[] testPaths, SamplePlan[] plans, long[][] P_train_indexes, long[][] N_train_indexes,
+			long[][] P_test_indexes, long[][] N_test_indexes, LabelMask[] masks, boolean arff, SampledInstances[] samples)
+	{
+		int R = plans.length;
+
+		// The last row any plan needs, reading can stop once it has been written.
+		long lastIndex = 0;
+
+		for(int k = 0; k < R; k++)
+		{
+			lastIndex = Math.max(lastIndex, last(P_train_indexes[k]));
+			lastIndex = Math.max(lastIndex, last(P_test_indexes[k]));
+			lastIndex = Math.max(lastIndex, last(N_train_indexes[k]));
+			lastIndex = Math.max(lastIndex, last(N_test_indexes[k]));
+		}
+
+		/*
+		 * If only a small fraction of the rows are needed and a row index exists, the
+		 * chosen rows are read directly instead of streaming the whole file.
+		 */
+		RowIndex index = getRowIndex();
+		long[] selected = null;
+
+		if(index != null && index.getRows() == this.pfile.getRows())
+		{
+			selected = union(P_train_indexes, N_train_indexes, P_test_indexes, N_test_indexes);
+
+			if(selected != null && selected.length < index.getRows() / RANDOM_ACCESS_RATIO)
+				this.pfile.log("Reading "+selected.length+" rows via the row index.\n");
 			else
-				return false;
+				selected = null;
 		}
+
+		if(arff && samples == null)
+			for(int k = 0; k < R; k++)
+			{
+				writeARFFHeader(trainPaths[k],plans[k].getTrainingSetTitle(), plans[k].getTrainingSetRelation() ,"A training set.");
+				writeARFFHeader(testPaths[k],plans[k].getTestSetTitle(),plans[k].getTestSetRelation(),"A test set.");
+			}
+
+		// Position of the next unused index in each of the arrays above.
+		int[] pTrain = new int[R];
+		int[] nTrain = new int[R];
+		int[] pTest  = new int[R];
+		int[] nTest  = new int[R];
+
+		long[] labelled = new long[R];
+		long[] unlabelled = new long[R];
+
+		long[] testSetCount = new long[R];
+
+		long instanceIndex=0;
+
+		int classIndex = this.pfile.getClassIndex();
+
+		// Many files are open at once, so share the default buffer space between them.
+		int bufferSize = Math.max(64 * 1024, WriterHandle.DEFAULT_BUFFER_SIZE / R);
+
+		// If the data exists
+		if(exists())
+		{
+			RowReader in = null;
+			WriterHandle[] train = new WriterHandle[R];
+			WriterHandle[] test = new WriterHandle[R];
+			WriterHandle[] trueClass = new WriterHandle[R];
+			LongBitSet[] truePositives = new LongBitSet[R];
+
+			try
+			{
+				// Open stream to file
+				if(selected != null)
+					in = new RowReader(this.pfile.getPath(), classIndex, index, selected);
+				else
+					in = openRows();
+
+				try
+				{
+					for(int k = 0; samples != null && k < R; k++)
+					{
+						// Instances are indexed by int, so a sample held in memory must fit.
+						if(plans[k].MAX_train > IndexSelector.MAX_INDEXES || plans[k].MAX_test > IndexSelector.MAX_INDEXES)
+						{
+							this.pfile.log("Sample "+(k+1)+" is too large to hold in memory.\n");
+							return false;
+						}
+
+						Instances trainingSet = new Instances(new StringReader(getARFFHeader(plans[k].getTrainingSetTitle(), plans[k].getTrainingSetRelation(), "A training set.")));
+						Instances testSet = new Instances(new StringReader(getARFFHeader(plans[k].getTestSetTitle(), plans[k].getTestSetRelation(), "A test set.")));
+						trainingSet.setClassIndex(trainingSet.numAttributes()-1);
+						testSet.setClassIndex(testSet.numAttributes()-1);
+
+						samples[k] = new SampledInstances(new Instances(trainingSet, (int)plans[k].MAX_train),
+								new Instances(testSet, (int)plans[k].MAX_test), new int[P_test_indexes[k].length], masks[k]);
+					}
+
+					for(int k = 0; samples == null && k < R; k++)
+					{
+						train[k] = Writer.open(trainPaths[k], true, bufferSize, 0, OUTPUT_BUFFERS);
+						test[k] = Writer.open(testPaths[k], true, bufferSize, 0, OUTPUT_BUFFERS);
+						// Overwritten, as the binary true class file is, so both describe this sample only.
+						trueClass[k] = Writer.open(getTrueClassPath(testPaths[k]), false, bufferSize, 0);
+						truePositives[k] = new LongBitSet(plans[k].MAX_test);
+
+						if(train[k] == null | test[k] == null | trueClass[k] == null)
+						{
+							this.pfile.log("Could not open the output files for sample "+(k+1)+".\n");
+							return false;
+						}
+					}
+
+					// While there are more rows to read and we haven't finished adding training/test examples.
+					while (instanceIndex < lastIndex && in.next())
+					{
+						// The data.
+						instanceIndex=in.getRows();
+
+						// The class label is checked only when some plan selects this row.
+						boolean checked = false;
+
+						for(int k = 0; k < R; k++)
+						{
+							boolean inPTrain = pTrain[k] < P_train_indexes[k].length && P_train_indexes[k][pTrain[k]] == instanceIndex;
+							boolean inNTrain = nTrain[k] < N_train_indexes[k].length && N_train_indexes[k][nTrain[k]] == instanceIndex;
+							boolean inPTest  = pTest[k]  < P_test_indexes[k].length  && P_test_indexes[k][pTest[k]]   == instanceIndex;
+							boolean inNTest  = nTest[k]  < N_test_indexes[k].length  && N_test_indexes[k][nTest[k]]   == instanceIndex;
+
+							if(!(inPTrain | inNTrain | inPTest | inNTest))// Omitted from this sample.
+								continue;
+
+							if(!checked)
+							{
+								checked = true;
+
+								if((inPTrain | inPTest) && in.classContains((byte)'0'))
+									this.pfile.log("1. Have negative, expecting positive.");
+								else if((inNTrain | inNTest) && in.classContains((byte)'1'))
+									this.pfile.log("2. Have positive, expecting negative.");
+							}
+
+							// The row bytes are copied to the output, up to the last column,
+							// followed by the class label or '?'.
+
+							if(inPTrain | inNTrain) // Add to training set
+							{
+								if(inPTrain)
+									pTrain[k]+=1;
+								else
+									nTrain[k]+=1;
+
+								if(samples != null)
+									samples[k].getTrainingSet().add(in.toInstance(samples[k].getTrainingSet(), true));
+								else
+									in.writeRow(train[k]);
+							}
+							else // Add to test set
+							{
+								// The mask is indexed by position in the test set, from 0.
+								boolean isLabelled = masks[k].isLabelled(testSetCount[k]);
+
+								if(isLabelled)
+									labelled[k]+=1;
+								else
+									unlabelled[k]+=1;
+
+								if(samples != null)
+									samples[k].getTestSet().add(in.toInstance(samples[k].getTestSet(), isLabelled));
+								else if(isLabelled)
+									in.writeRow(test[k]);
+								else
+									in.writeUnlabelledRow(test[k]);
+
+								testSetCount[k]+=1;
+
+								if(inPTest)
+								{
+									//Finally add this meta data to a file, or the sample.
+									if(samples != null)
+										samples[k].getTruePositives()[pTest[k]] = (int)testSetCount[k];
+									else
+									{
+										trueClass[k].append(testSetCount[k]+"\n");
+										truePositives[k].set(testSetCount[k]-1);
+									}
+
+									pTest[k]+=1;
+								}
+								else
+									nTest[k]+=1;
+							}
+						}
+					}
+
+					boolean result = true;
+
+					for(int k = 0; k < R; k++)
+					{
+						if(R > 1)
+							this.pfile.log("Sample "+(k+1)+" of "+R+"\n");
+
+						this.pfile.log("Patterns written: "+ (pTrain[k]+nTrain[k]+testSetCount[k]) + "\n");
+						this.pfile.log("Labelled: "+ labelled[k]+ "\n");
+						this.pfile.log("Unlabelled: "+ unlabelled[k]+ "\n");
+						this.pfile.log("+ in training set: "+ pTrain[k]+ "\n");
+						this.pfile.log("- in training set: "+ nTrain[k]+ "\n");
+						this.pfile.log("+ in test set: "+ pTest[k]+ "\n");
+						this.pfile.log("- in test set: "+ nTest[k]+ "\n");
+						this.pfile.log("Training set patterns: "+ (pTrain[k]+nTrain[k])+ "\n");
+						this.pfile.log("Test set patterns: "+ testSetCount[k]+ "\n");
+
+						if(samples != null)
+							continue;
+
+						result &= train[k].flush() & test[k].flush() & trueClass[k].flush();
+						result &= masks[k].write(getLabelMaskPath(testPaths[k]));
+						result &= new TrueClass(testSetCount[k], truePositives[k]).write(getTrueClassMetaPath(testPaths[k]));
+					}
+
+					this.pfile.log("Completed Sampling\n");
+
+					return result;
+				}
+				catch(IOException e){this.pfile.log(e.toString());return false;}
+				finally
+				{
+					in.close();
+
+					for(int k = 0; k < R; k++)
+					{
+						Writer.close(train[k]);
+						Writer.close(test[k]);
+						Writer.close(trueClass[k]);
+					}
+				}
+			}
+			catch (Exception e) {this.pfile.log(e.toString()); return false; }
+		}
+		else{ return false; }
+	}
+
+	/**
+	 * @param indexes a sorted array of row indexes.
+	 * @return the last row index in the array, or zero if it is empty.
+	 */
+	private static long last(long[] indexes)
+	{
+		return indexes.length == 0 ? 0 : indexes[indexes.length-1];
+	}
+
+	/**
+	 * Merges the row indexes chosen for every plan into a single sorted array, with
+	 * each row appearing once.
+	 * @param sets the row indexes chosen for each set, per plan.
+	 * @return the sorted, distinct row indexes, or null if there are too many to hold in an array.
+	 */
+	private static long[] union(long[][]... sets)
+	{
+		long total = 0;
+		for(long[][] set : sets)
+			for(long[] indexes : set)
+				total += indexes.length;
+
+		if(total > IndexSelector.MAX_INDEXES)
+			return null;
+
+		long[] all = new long[(int)total];
+		int count = 0;
+
+		for(long[][] set : sets)
+			for(long[] indexes : set)
+			{
+				System.arraycopy(indexes, 0, all, count, indexes.length);
+				count += indexes.length;
+			}
+
+		Arrays.sort(all);
+
+		// Remove duplicates, rows may be chosen by more than one plan.
+		int distinct = 0;
+		for(int i = 0; i < all.length; i++)
+			if(distinct == 0 || all[i] != all[distinct-1])
+				all[distinct++] = all[i];
+
+		return Arrays.copyOf(all, distinct);
 	}
 
 	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IEditor#sampleToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 * @see cs.man.ac.uk.sample.IEditor#createFolds(int)
 	 */
 	@Override
-	public boolean sampleToCSV(String trainPath, String testPath, int negTrainSamples,
+	public boolean createFolds(int folds)
+	{
+		MetaData meta = getMetaData();
+
+		if(meta == null)
+		{
+			this.pfile.log("Could not obtain meta data, cannot create folds.\n");
+			return false;
+		}
+
+		try
+		{
+			FoldAssignment assignment = FoldAssignment.create(new File(this.pfile.getPath()), meta, folds, this.random.split());
+
+			this.pfile.log("Assigned "+assignment.getRows()+" rows to "+folds+" stratified folds.\n");
+
+			return assignment.write(getFoldAssignmentPath());
+		}
+		catch(IllegalArgumentException e){this.pfile.log(e.getMessage()+"\n"); return false;}
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleFoldsToCSV(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public boolean sampleFoldsToCSV(String trainPath, String testPath)
+	{
+		return sampleFolds(trainPath, testPath, false);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleFoldsToARFF(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public boolean sampleFoldsToARFF(String trainPath, String testPath)
+	{
+		return sampleFolds(trainPath, testPath, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleFoldToInstances(int)
+	 */
+	@Override
+	public SampledInstances sampleFoldToInstances(int fold)
+	{
+		FoldAssignment assignment = getFoldAssignment();
+
+		if(assignment == null)
+		{
+			this.pfile.log("No folds have been created for the file, cannot sample.\n");
+			return null;
+		}
+
+		if(fold < 1 || fold > assignment.getFolds())
+		{
+			this.pfile.log("Fold "+fold+" does not exist, there are "+assignment.getFolds()+" folds.\n");
+			return null;
+		}
+
+		SampledInstances[] samples = new SampledInstances[1];
+
+		if(sampleFolds(assignment, null, null, new int[] { fold }, true, samples))
+			return samples[0];
+		else
+			return null;
+	}
+
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)},
+	 * during a single pass over the file. The fold number is inserted before the extension
+	 * of each path, as described in {@link #getReplicatePath(String, int)}.
+	 * @param trainPath the path the training set file names are based on.
+	 * @param testPath the path the test set file names are based on.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @return true if every fold was written successfully, else false.
+	 */
+	protected boolean sampleFolds(String trainPath, String testPath, boolean arff)
+	{
+		FoldAssignment assignment = getFoldAssignment();
+
+		if(assignment == null)
+		{
+			this.pfile.log("No folds have been created for the file, cannot sample.\n");
+			return false;
+		}
+
+		int K = assignment.getFolds();
+
+		String[] trainPaths = new String[K];
+		String[] testPaths = new String[K];
+		int[] folds = new int[K];
+
+		for(int k = 0; k < K; k++)
+		{
+			trainPaths[k] = getReplicatePath(trainPath, k+1);
+			testPaths[k] = getReplicatePath(testPath, k+1);
+			folds[k] = k+1;
+		}
+
+		return sampleFolds(assignment, trainPaths, testPaths, folds, arff, null);
+	}
+
+	/**
+	 * Samples the training and test sets of the given folds during a single pass over the
+	 * file. The training set of a fold is made up of every assigned row outside of the fold,
+	 * and the test set of every row inside it, with every test instance labelled.
+	 * @param assignment the fold assignment of the rows in the file.
+	 * @param trainPaths the paths to the training set files to create, one per fold, not used if sampling into memory.
+	 * @param testPaths the paths to the test set files to create, one per fold, not used if sampling into memory.
+	 * @param folds the folds to sample, numbered from 1.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @param samples the array to store the samples in, one per fold, or null to write the samples to files.
+	 * @return true if all folds were sampled successfully, else false.
+	 */
+	private boolean sampleFolds(FoldAssignment assignment, String[] trainPaths, String[] testPaths, int[] folds, boolean arff, SampledInstances[] samples)
+	{
+		MetaData meta = getMetaData();
+
+		if(meta == null)
+		{
+			this.pfile.log("Could not obtain meta data, cannot sample.\n");
+			return false;
+		}
+
+		int R = folds.length;
+
+		SamplePlan[] plans = new SamplePlan[R];
+		long[][] P_train_indexes = new long[R][];
+		long[][] N_train_indexes = new long[R][];
+		long[][] P_test_indexes  = new long[R][];
+		long[][] N_test_indexes  = new long[R][];
+		LabelMask[] masks = new LabelMask[R];
+
+		try
+		{
+			for(int k = 0; k < R; k++)
+			{
+				long[][] sets = assignment.select(meta, folds[k]);
+				P_train_indexes[k] = sets[0];
+				N_train_indexes[k] = sets[1];
+				P_test_indexes[k]  = sets[2];
+				N_test_indexes[k]  = sets[3];
+
+				plans[k] = new SamplePlan(this.pfile, P_train_indexes[k].length, N_train_indexes[k].length,
+						P_test_indexes[k].length, N_test_indexes[k].length);
+
+				LongBitSet labelled = new LongBitSet(plans[k].MAX_test);
+				labelled.set(0, plans[k].MAX_test);
+				masks[k] = new LabelMask(plans[k].MAX_test, labelled);
+			}
+		}
+		catch(IllegalArgumentException e){this.pfile.log(e.getMessage()+"\n"); return false;}
+
+		this.pfile.log("Completed fold selection... now parsing file.\n");
+
+		return sample(trainPaths, testPaths, plans, P_train_indexes, N_train_indexes, P_test_indexes, N_test_indexes, masks, arff, samples);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleStreamToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public boolean sampleStreamToCSV(String trainPath, String testPath, int negTrainSamples,
 			int posTrainSamples, double trainingSetBalance, double testSetBalance, double labelling)
 	{
-		// TODO Auto-generated method stub
-		return false;
+		return sampleStream(trainPath, testPath, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling, false);
 	}
-	
+
 	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IEditor#sampleToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 * @see cs.man.ac.uk.sample.IEditor#sampleStreamToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
 	 */
 	@Override
-	public boolean sampleToARFF(String trainPath, String testPath, int negTrainSamples,
+	public boolean sampleStreamToARFF(String trainPath, String testPath, int negTrainSamples,
 			int posTrainSamples, double trainingSetBalance, double testSetBalance, double labelling)
 	{
-		// TODO Auto-generated method stub
-		return false;
+		return sampleStream(trainPath, testPath, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling, true);
+	}
+
+	/**
+	 * Samples the file in a single forward pass. The class distribution obtained during
+	 * pre-processing tells us how many instances of each class remain to be read. Each
+	 * instance read is then assigned to the training set, the test set or omitted, with
+	 * probabilities equal to the number of places left in each set divided by the number
+	 * of instances of the same class left in the file (i.e. stratified selection sampling).
+	 * This guarantees exactly P_train, N_train, P_test and N_test instances are chosen,
+	 * and that every possible split is equally likely. The test set positions to label are
+	 * chosen before the file is read, see {@link LabelMask}, so exactly INSTANCES_TO_LABEL
+	 * test instances retain their label.
+	 *
+	 * @param trainPath the path to the training set file to create.
+	 * @param testPath the path to the test set file to create.
+	 * @param negTrainSamples the number of negative samples to include in the training set.
+	 * @param posTrainSamples the number of positive samples to include in the training set.
+	 * @param trainingSetBalance the class balance desired in the training set.
+	 * @param testSetBalance the class balance desired in the test set.
+	 * @param labelling the ratio of labelled data to aim for.
+	 * @param arff if true ARFF headers are written to the output files.
+	 * @return true if sampled successfully, else false.
+	 */
+	protected boolean sampleStream(String trainPath, String testPath, int negTrainSamples,
+			int posTrainSamples, double trainingSetBalance, double testSetBalance, double labelling, boolean arff)
+	{
+		String trueClassPath = getTrueClassPath(testPath);
+
+		SamplePlan plan = new SamplePlan(this.pfile, negTrainSamples, posTrainSamples, trainingSetBalance, testSetBalance, labelling);
+
+		if(arff)
+		{
+			writeARFFHeader(trainPath,plan.getTrainingSetTitle(), plan.getTrainingSetRelation() ,"A training set.");
+			writeARFFHeader(testPath,plan.getTestSetTitle(),plan.getTestSetRelation(),"A test set.");
+		}
+
+		// Instances of each class not yet read, index 0 = negative, 1 = positive.
+		long[] remaining = { plan.N_tot, plan.P_tot };
+
+		// Places left in the training and test sets for each class.
+		long[] trainPlaces = { plan.N_train, plan.P_train };
+		long[] testPlaces  = { plan.N_test , plan.P_test  };
+
+
+		long negInTrainingSet=0;
+		long negInTestSet=0;
+
+		long posInTrainingSet=0;
+		long posInTestSet=0;
+
+		long testSetCount=0;
+		long trainingSetCount=0;
+
+		long labelled=0;
+		long unlabelled=0;
+
+		SplittableRandom r = this.random.split();
+		LabelMask mask = LabelMask.create(plan.MAX_test, plan.INSTANCES_TO_LABEL, r.split());
+		LongBitSet truePositives = new LongBitSet(plan.MAX_test);
+
+		// If the data exists
+		if(exists())
+		{
+			RowReader in = null;
+			WriterHandle train = null;
+			WriterHandle test = null;
+			WriterHandle trueClass = null;
+
+			try
+			{
+				// Open stream to file
+				in = openRows();
+				train = Writer.open(trainPath, true, WriterHandle.DEFAULT_BUFFER_SIZE, 0, OUTPUT_BUFFERS);
+				test = Writer.open(testPath, true, WriterHandle.DEFAULT_BUFFER_SIZE, 0, OUTPUT_BUFFERS);
+				trueClass = Writer.open(trueClassPath, false, WriterHandle.DEFAULT_BUFFER_SIZE, 0); // Overwritten, as the binary true class file is.
+
+				try
+				{
+					// While there are more rows to read and we haven't finished adding training/test examples.
+					while ((( trainingSetCount< plan.MAX_train) | ( testSetCount < plan.MAX_test)) && in.next())
+					{
+						// The data.
+						int c = in.classEndsWith((byte)'1') ? 1 : 0;
+
+						if(remaining[c] <= 0)// More instances than pre-processing found, file has changed.
+							continue;
+
+						// Choose a slot for this instance from those remaining for its class.
+						long slot = IndexSelector.nextIndex(r, remaining[c]);
+						remaining[c]-=1;
+
+						// The row bytes are copied to the output, up to the last column,
+						// followed by the class label or '?'.
+
+						if(slot < trainPlaces[c]) // Add to training set
+						{
+							trainPlaces[c]-=1;
+							trainingSetCount+=1;
+
+							if(c==1)
+								posInTrainingSet+=1;
+							else
+								negInTrainingSet+=1;
+
+							in.writeRow(train);
+						}
+						else if(slot < trainPlaces[c] + testPlaces[c]) // Add to test set
+						{
+							testPlaces[c]-=1;
+							testSetCount+=1;
+
+							// The mask is indexed by position in the test set, from 0.
+							if(mask.isLabelled(testSetCount-1))
+							{
+								in.writeRow(test);
+								labelled+=1;
+							}
+							else
+							{
+								in.writeUnlabelledRow(test);
+								unlabelled+=1;
+							}
+
+							if(c==1)
+							{
+								posInTestSet+=1;
+								trueClass.append(testSetCount+"\n");
+								truePositives.set(testSetCount-1);
+							}
+							else
+								negInTestSet+=1;
+						}
+					}
+
+					this.pfile.log("Patterns written: "+ (trainingSetCount+testSetCount) + "\n");
+					this.pfile.log("Labelled: "+ labelled+ "\n");
+					this.pfile.log("Unlabelled: "+ unlabelled+ "\n");
+					this.pfile.log("+ in training set: "+ posInTrainingSet+ "\n");
+					this.pfile.log("- in training set: "+ negInTrainingSet+ "\n");
+					this.pfile.log("+ in test set: "+ posInTestSet+ "\n");
+					this.pfile.log("- in test set: "+ negInTestSet+ "\n");
+					this.pfile.log("Training set patterns: "+ trainingSetCount+ "\n");
+					this.pfile.log("Test set patterns: "+ testSetCount+ "\n");
+					this.pfile.log("Completed Sampling\n");
+
+					return train.flush() & test.flush() & trueClass.flush() & mask.write(getLabelMaskPath(testPath))
+							& new TrueClass(testSetCount, truePositives).write(getTrueClassMetaPath(testPath));
+				}
+				catch(IOException e){this.pfile.log(e.toString());return false;}
+				finally{in.close(); Writer.close(train); Writer.close(test); Writer.close(trueClass);}
+			}
+			catch (Exception e) {this.pfile.log(e.toString()); return false; }
+		}
+		else{ return false; }
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed){ this.random = new SplittableRandom(seed); }
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#setRandom(java.util.SplittableRandom)
+	 */
+	@Override
+	public void setRandom(SplittableRandom r){ this.random = r; }
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IEditor#setCreateRowIndex(boolean)
+	 */
+	@Override
+	public void setCreateRowIndex(boolean create){ this.createRowIndex = create; }
+
+	/**
+	 * Builds the path to the file used to store the true class meta data for a test set,
+	 * i.e. for a test set at /data/test.arff this would be /data/test.trueClass.csv.
+	 * @param testPath the path to the test set file.
+	 * @return the path to the true class meta data file.
+	 */
+	protected String getTrueClassPath(String testPath)
+	{
+		return testPath.substring(0, testPath.length() - Reader.getExtension(testPath).length())+TrueClass.TEXT_EXTENSION;
+	}
+
+	/**
+	 * Builds the path to the binary file used to store the true class meta data for a test
+	 * set, i.e. for a test set at /data/test.arff this would be /data/test.trueClass.meta.
+	 * @param testPath the path to the test set file.
+	 * @return the path to the binary true class meta data file.
+	 */
+	public static String getTrueClassMetaPath(String testPath)
+	{
+		return testPath.substring(0, testPath.length() - Reader.getExtension(testPath).length())+TrueClass.EXTENSION;
+	}
+
+	/**
+	 * Builds the path to the file used to store the label mask for a test set, i.e. for a
+	 * test set at /data/test.arff this would be /data/test.labels.mask.
+	 * @param testPath the path to the test set file.
+	 * @return the path to the label mask file.
+	 */
+	public static String getLabelMaskPath(String testPath)
+	{
+		return testPath.substring(0, testPath.length() - Reader.getExtension(testPath).length())+LabelMask.EXTENSION;
+	}
+
+	/**
+	 * Builds the path to the file a single replicate sample is written to, by inserting
+	 * the replicate number before the file extension, i.e. for replicate 3 of a test set
+	 * at /data/test.arff this would be /data/test_3.arff, or /data/test_3.arff.gz if the
+	 * test set is compressed.
+	 * @param path the path to the file the replicates are based on.
+	 * @param replicate the replicate number, starting from 1.
+	 * @return the path to the replicate file.
+	 */
+	public static String getReplicatePath(String path,int replicate)
+	{
+		String extension = Reader.getExtension(path);
+		return path.substring(0, path.length() - extension.length())+"_"+replicate+extension;
 	}
 }
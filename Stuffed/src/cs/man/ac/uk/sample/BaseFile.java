@@ -28,6 +28,7 @@ package cs.man.ac.uk.sample;
 
 import java.io.File;
 
+import cs.man.ac.uk.io.Reader;
 import cs.man.ac.uk.io.Writer;
 
 /**
@@ -66,12 +67,12 @@ public class BaseFile implements IFile
 	/**
 	 * Number of lines in the file.
 	 */
-	protected int lineCount = 0;
+	protected long lineCount = 0;
 
 	/**
 	 * Number of rows of data in the file.
 	 */
-	protected int rows = 0;
+	protected long rows = 0;
 
 	/**
 	 * Number of columns of data in the file.
@@ -101,7 +102,7 @@ public class BaseFile implements IFile
 	/**
 	 * The class distribution.
 	 */
-	protected int[] classDistribution = null;
+	protected long[] classDistribution = null;
 
 	/**
 	 * The ARFF file relation.
@@ -163,25 +164,25 @@ public class BaseFile implements IFile
 	 * @see cs.man.ac.uk.sample.IFile#getLineCount()
 	 */
 	@Override
-	public int getLineCount(){ return this.lineCount; }
+	public long getLineCount(){ return this.lineCount; }
 
 	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IFile#setLineCount(int)
+	 * @see cs.man.ac.uk.sample.IFile#setLineCount(long)
 	 */
 	@Override
-	public void setLineCount(int l){ this.lineCount = l; }
+	public void setLineCount(long l){ this.lineCount = l; }
 
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IFile#getRows()
 	 */
 	@Override
-	public int getRows(){ return this.rows; }
+	public long getRows(){ return this.rows; }
 
 	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IFile#setRows(int)
+	 * @see cs.man.ac.uk.sample.IFile#setRows(long)
 	 */
 	@Override
-	public void setRows(int r){ this.rows = r; }
+	public void setRows(long r){ this.rows = r; }
 	
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IFile#getColumns()
@@ -247,13 +248,13 @@ public class BaseFile implements IFile
 	 * @see cs.man.ac.uk.sample.IFile#getClassDistribution()
 	 */
 	@Override
-	public int[] getClassDistribution(){ return this.classDistribution; }
+	public long[] getClassDistribution(){ return this.classDistribution; }
 
 	/* (non-Javadoc)
-	 * @see cs.man.ac.uk.sample.IFile#setClassDistribution(int[])
+	 * @see cs.man.ac.uk.sample.IFile#setClassDistribution(long[])
 	 */
 	@Override
-	public void setClassDistribution(int[] dist){ this.classDistribution = dist; }
+	public void setClassDistribution(long[] dist){ this.classDistribution = dist; }
 
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IFile#setClassIndex(int)
@@ -289,7 +290,7 @@ public class BaseFile implements IFile
 		File f = new File(path);
 		this.fileName=f.getName();
 		f=null;
-		this.extension=this.path.substring(this.path.lastIndexOf("."),this.path.length());
+		this.extension=Reader.getExtension(this.path);
 	}
 	
 	//*****************************************
@@ -317,6 +318,92 @@ public class BaseFile implements IFile
 	{
 		return new Object[]{false,"Base class cannot be used to sample"};
 	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleToInstances(int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleToInstances(int negTrainSamples, int posTrainSamples,
+			double trainSetBalance, double testSetBalance, double labelling)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#createFolds(int)
+	 */
+	@Override
+	public Object[] createFolds(int folds)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleFoldsToCSV(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToCSV(String trainSetPath, String testSetPath)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleFoldsToARFF(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToARFF(String trainSetPath, String testSetPath)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleFoldToInstances(int)
+	 */
+	@Override
+	public Object[] sampleFoldToInstances(int fold)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleStreamToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToCSV(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleStreamToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToARFF(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleReplicatesToCSV(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToCSV(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#sampleReplicatesToARFF(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToARFF(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		return new Object[]{false,"Base class cannot be used to sample"};
+	}
 	
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IFile#createMetaData()
@@ -335,6 +422,32 @@ public class BaseFile implements IFile
 	 */
 	@Override
 	public boolean shuffleDataset(String pth){ return false;}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#shuffleDataset(java.lang.String, long)
+	 */
+	@Override
+	public boolean shuffleDataset(String pth,long memoryBudget){ return false;}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		if(editor != null)
+			editor.setSeed(seed);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#setCreateRowIndex(boolean)
+	 */
+	@Override
+	public void setCreateRowIndex(boolean create)
+	{
+		if(editor != null)
+			editor.setCreateRowIndex(create);
+	}
 
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.IFile#log(java.lang.String)
@@ -358,6 +471,15 @@ public class BaseFile implements IFile
 	{
 		return false;
 	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.IFile#preprocess(boolean)
+	 */
+	@Override
+	public boolean preprocess(boolean createMetaData)
+	{
+		return false;
+	}
 	
 	/**
 	 * Writes out the contents of the supplied array to a log file.
@@ -405,4 +527,27 @@ public class BaseFile implements IFile
 
 		log("+----------------------------------------------+\n\n");
 	}
+
+	/**
+	 * Writes out the contents of the supplied array to a log file.
+	 * @param array the array whose contents will be output.
+	 */
+	public void log(long[] array)
+	{
+		log("\n\n+------------- long[] array DEBUGGING ---------+\n");
+		if(array != null)
+		{
+			if(array.length>0)
+			{
+				for(int i=0;i<array.length;i++)
+					log("Item "+i+": "+array[i]+"\n");
+			}
+			else
+				log("Array is empty.\n");
+		}
+		else
+			log("Array is null.\n");
+
+		log("+----------------------------------------------+\n\n");
+	}
 }
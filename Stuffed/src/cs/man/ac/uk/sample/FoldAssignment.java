@@ -0,0 +1,430 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	FoldAssignment.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.SplittableRandom;
+
+/**
+ * The class FoldAssignment assigns every row of data in a file to one of K folds for
+ * cross validation, using a single byte per row. The fold labels for the positives,
+ * dealt out to the folds in turn, are shuffled and then given to the positive rows in
+ * file order, and likewise for the negatives. So every fold has the same class ratio as
+ * the file, to within one instance, and the folds differ in size by at most one instance.
+ * The training set for fold k is then every row not in fold k, and the test set every
+ * row in it. The bytes are held in pages, so files with more than 2^31 rows can be
+ * assigned. The assignment is stored in a sidecar file next to the data file, made up
+ * of big-endian values as follows:
+ *
+ * <ol>
+ * <li>the magic number 0x53544B46 ("STKF").</li>
+ * <li>the format version.</li>
+ * <li>the size of the data file when assigned.</li>
+ * <li>the time the data file was last modified when assigned.</li>
+ * <li>the number of rows r, as a 64 bit integer.</li>
+ * <li>the number of folds K, followed by 4 bytes of padding.</li>
+ * <li>r bytes, the fold of row i (1-based) being at position i-1. Folds are numbered
+ * from 1, and a row with no class label is given fold 0.</li>
+ * </ol>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class FoldAssignment
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to fold assignment files, this replaces the data file extension.
+	 */
+	public static final String EXTENSION = ".folds.meta";
+
+	/**
+	 * The largest number of folds that can be assigned.
+	 */
+	public static final int MAX_FOLDS = Byte.MAX_VALUE;
+
+	/**
+	 * The magic number at the start of a fold assignment file ("STKF").
+	 */
+	private static final int MAGIC = 0x53544B46;
+
+	/**
+	 * The version of the fold assignment format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The size of the header in bytes.
+	 */
+	private static final int HEADER_SIZE = 40;
+
+	/**
+	 * The number of bytes in a page is 2^PAGE_BITS, i.e. 16MB per page.
+	 */
+	private static final int PAGE_BITS = 24;
+
+	/**
+	 * Masks the position of a byte within its page.
+	 */
+	private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+	/**
+	 * The size of the data file when assigned.
+	 */
+	private long size;
+
+	/**
+	 * The time the data file was last modified when assigned.
+	 */
+	private long modified;
+
+	/**
+	 * The number of folds.
+	 */
+	private int folds;
+
+	/**
+	 * The number of rows assigned.
+	 */
+	private long rows;
+
+	/**
+	 * The pages holding the fold of each row, the fold of row i (1-based) being at position i-1.
+	 */
+	private byte[][] assignment;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param size the size of the data file when assigned.
+	 * @param modified the time the data file was last modified when assigned.
+	 * @param folds the number of folds.
+	 * @param rows the number of rows assigned.
+	 * @param assignment the pages holding the fold of each row, see {@link #allocate(long)}.
+	 */
+	private FoldAssignment(long size,long modified,int folds,long rows,byte[][] assignment)
+	{
+		this.size = size;
+		this.modified = modified;
+		this.folds = folds;
+		this.rows = rows;
+		this.assignment = assignment;
+	}
+
+	/**
+	 * Randomly assigns the rows of a file to stratified folds.
+	 * @param data the data file.
+	 * @param meta the meta data describing which rows of the file are positive.
+	 * @param folds the number of folds, between 2 and {@link #MAX_FOLDS}.
+	 * @param r the random number generator to use.
+	 * @return the fold assignment.
+	 */
+	public static FoldAssignment create(File data,MetaData meta,int folds,SplittableRandom r)
+	{
+		if(folds < 2 || folds > MAX_FOLDS)
+			throw new IllegalArgumentException("Cannot assign rows to "+folds+" folds, between 2 and "+MAX_FOLDS+" are allowed");
+
+		long rows = meta.getRows();
+
+		// The negatives carry on dealing from where the positives stopped, which keeps
+		// the fold sizes within one instance of each other.
+		byte[][] positives = deal(meta.getPositiveCount(), 0, folds, r.split());
+		byte[][] negatives = deal(meta.getNegativeCount(), (int)(meta.getPositiveCount() % folds), folds, r.split());
+
+		byte[][] assignment = allocate(rows);
+		long p = 0;
+		long n = 0;
+
+		for(long row = 1; row <= rows; row++)
+			set(assignment, row-1, meta.isPositive(row) ? get(positives, p++) : get(negatives, n++));
+
+		return new FoldAssignment(data.length(), data.lastModified(), folds, rows, assignment);
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Deals fold labels out to the folds in turn, then shuffles them using the Fisher-Yates
+	 * algorithm, so every arrangement of the labels is equally likely.
+	 * @param count the number of labels to deal.
+	 * @param first the position of the fold the first label is dealt to, from 0.
+	 * @param folds the number of folds.
+	 * @param r the random number generator to use.
+	 * @return the pages holding the shuffled labels.
+	 */
+	private static byte[][] deal(long count,int first,int folds,SplittableRandom r)
+	{
+		byte[][] labels = allocate(count);
+
+		for(long i = 0; i < count; i++)
+			set(labels, i, (byte)((first + i) % folds + 1));
+
+		for(long i = count - 1; i > 0; i--)
+		{
+			long j = IndexSelector.nextIndex(r, i + 1);
+			byte tmp = get(labels, i);
+			set(labels, i, get(labels, j));
+			set(labels, j, tmp);
+		}
+
+		return labels;
+	}
+
+	/**
+	 * Determines if this assignment belongs to the data file in its current state.
+	 * @param data the data file.
+	 * @return true if the assignment is still valid, else false.
+	 */
+	public boolean matches(File data)
+	{
+		return this.size == data.length() && this.modified == data.lastModified();
+	}
+
+	/**
+	 * Chooses the rows that make up the training and test sets of a fold, during a single
+	 * pass over the assignment.
+	 * @param meta the meta data describing which rows of the file are positive.
+	 * @param fold the fold, from 1.
+	 * @return the sorted 1-based indexes of the positives in the training set, the negatives in the
+	 *         training set, the positives in the test set and the negatives in the test set, in that order.
+	 * @throws IllegalArgumentException if a set holds more than {@link IndexSelector#MAX_INDEXES} rows.
+	 */
+	public long[][] select(MetaData meta,int fold)
+	{
+		long[] counts = new long[4];
+
+		for(long row = 1; row <= rows; row++)
+		{
+			int f = get(assignment, row-1);
+
+			if(f != 0)
+				counts[setOf(meta.isPositive(row), f == fold)]++;
+		}
+
+		long[][] sets = new long[4][];
+
+		for(int i = 0; i < sets.length; i++)
+		{
+			if(counts[i] > IndexSelector.MAX_INDEXES)
+				throw new IllegalArgumentException("Fold "+fold+" has "+counts[i]+" rows in one set, at most "+IndexSelector.MAX_INDEXES+" can be sampled");
+
+			sets[i] = new long[(int)counts[i]];
+		}
+
+		int[] filled = new int[4];
+
+		for(long row = 1; row <= rows; row++)
+		{
+			int f = get(assignment, row-1);
+
+			if(f != 0)
+			{
+				int i = setOf(meta.isPositive(row), f == fold);
+				sets[i][filled[i]++] = row;
+			}
+		}
+
+		return sets;
+	}
+
+	/**
+	 * @param positive true if a row is positive.
+	 * @param inFold true if the row is in the fold being sampled.
+	 * @return the set the row belongs to, as ordered by {@link #select(MetaData, int)}.
+	 */
+	private static int setOf(boolean positive,boolean inFold)
+	{
+		return (inFold ? 2 : 0) + (positive ? 0 : 1);
+	}
+
+	/**
+	 * Writes this assignment to a file, overwriting any existing file.
+	 * @param path the path to the file to write.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean write(String path)
+	{
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				channel.truncate(0);
+
+				ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putLong(rows).putInt(folds).putInt(0);
+				buffer.flip();
+
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+
+				for(int p = 0; p < assignment.length; p++)
+				{
+					buffer = ByteBuffer.wrap(assignment[p]);
+
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+				}
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads a fold assignment file.
+	 * @param path the path to the file to read.
+	 * @return the fold assignment, or null if the file does not exist or is not valid.
+	 */
+	public static FoldAssignment read(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return null;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+
+				while(buffer.hasRemaining())
+					if(channel.read(buffer) < 0)
+						return null;
+
+				buffer.flip();
+
+				if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+					return null;
+
+				long size = buffer.getLong();
+				long modified = buffer.getLong();
+				long rows = buffer.getLong();
+				int folds = buffer.getInt();
+
+				if(rows < 0 || folds < 2 || folds > MAX_FOLDS || rows != channel.size() - HEADER_SIZE)
+					return null;
+
+				byte[][] assignment = allocate(rows);
+
+				for(int p = 0; p < assignment.length; p++)
+				{
+					buffer = ByteBuffer.wrap(assignment[p]);
+
+					while(buffer.hasRemaining())
+						if(channel.read(buffer) < 0)
+							return null;
+				}
+
+				return new FoldAssignment(size, modified, folds, rows, assignment);
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	/**
+	 * Allocates the pages needed to hold a number of bytes, the last page only as large as needed.
+	 * @param length the number of bytes.
+	 * @return the pages.
+	 */
+	private static byte[][] allocate(long length)
+	{
+		byte[][] pages = new byte[(int)((length + PAGE_MASK) >>> PAGE_BITS)][];
+
+		for(int p = 0; p < pages.length; p++)
+			pages[p] = new byte[(int)Math.min(PAGE_MASK + 1, length - ((long)p << PAGE_BITS))];
+
+		return pages;
+	}
+
+	/**
+	 * @param pages the pages holding the bytes.
+	 * @param i the position of a byte, from 0.
+	 * @return the byte.
+	 */
+	private static byte get(byte[][] pages,long i){ return pages[(int)(i >>> PAGE_BITS)][(int)(i & PAGE_MASK)]; }
+
+	/**
+	 * @param pages the pages holding the bytes.
+	 * @param i the position of a byte, from 0.
+	 * @param value the new value of the byte.
+	 */
+	private static void set(byte[][] pages,long i,byte value){ pages[(int)(i >>> PAGE_BITS)][(int)(i & PAGE_MASK)] = value; }
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param row the 1-based index of a row.
+	 * @return the fold the row belongs to, from 1, or 0 if the row has not been assigned.
+	 */
+	public int getFold(long row){ return get(assignment, row-1); }
+
+	/**
+	 * @return the number of folds.
+	 */
+	public int getFolds(){ return this.folds; }
+
+	/**
+	 * @return the number of rows assigned.
+	 */
+	public long getRows(){ return this.rows; }
+}
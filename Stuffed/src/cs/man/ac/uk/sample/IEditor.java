@@ -26,6 +26,7 @@
  */
 package cs.man.ac.uk.sample;
 
+import java.util.SplittableRandom;
 import java.util.TreeMap;
 
 /**
@@ -40,49 +41,65 @@ public interface IEditor
 	/**
 	 * Methods that gathers information about the file to be sampled.
 	 * Assumes that the class labels are the last piece of
-	 * data in each row.
+	 * data in each row. The information is cached next to the file,
+	 * and restored without reading the file again if the file has
+	 * not changed since, see {@link PreprocessCache}. If rows have only
+	 * been appended to the file since, just the appended rows are read,
+	 * and any meta data and row index are extended to cover them. Meta
+	 * data that can't be extended is rebuilt, so it never goes stale.
 	 * @return true if successfully pre-processed, else false.
 	 */
 	public boolean preprocess();
 
 	/**
-	 * Shuffles the rows of data within a file, however caution should be be used
-	 * with this method. Large files may take a long time to shuffle, and may use
-	 * up a great deal of RAM - this method has to load a file into memory to perform
-	 * the shuffle.
+	 * Gathers information about the file to be sampled, as {@link #preprocess()} does. If
+	 * createMetaData is true, the binary meta data described in {@link #createMetaDataBinary()}
+	 * is collected and written in the same pass over the file, rather than requiring a second
+	 * pass. A cached result is only used if the meta data is not wanted.
+	 * @param createMetaData if true binary meta data is created for the file.
+	 * @return true if successfully pre-processed, and the meta data was written if wanted, else false.
+	 */
+	public boolean preprocess(boolean createMetaData);
+
+	/**
+	 * Shuffles the rows of data within a file, using up to half of the maximum
+	 * heap size. See {@link #shuffle(String, long)}.
 	 * @return true if shuffled successfully, else false.
 	 */
 	public boolean shuffle();
 	
 	/**
-	 * Shuffles the rows of data within a file, however caution should be be used
-	 * with this method. Large files may take a long time to shuffle, and may use
-	 * up a great deal of RAM - this method has to load a file into memory to perform
-	 * the shuffle.
+	 * Shuffles the rows of data within a file, using up to half of the maximum
+	 * heap size. See {@link #shuffle(String, long)}.
 	 * @param path the path to save the shuffled data to.
 	 * @return true if shuffled successfully, else false.
 	 */
 	public boolean shuffle(String path);
 
 	/**
-	 * <P>Creates meta data this data file. Meta data contain extra information about the
+	 * Shuffles the rows of data within a file, preserving the header. If the file can be
+	 * held in memory within the memory budget, it is shuffled in memory. Otherwise each row
+	 * is scattered to a randomly chosen temporary bucket file, created in the same directory
+	 * as the output file, and the buckets are then shuffled in memory one at a time. Either
+	 * way every ordering of the rows is equally likely. Large files may take a long time to
+	 * shuffle, and the external shuffle needs free disk space equal to the size of the file.
+	 * Buckets still too large for the budget are scattered again, to smaller buckets.
+	 * @param path the path to save the shuffled data to.
+	 * @param memoryBudget the approximate number of bytes of heap the shuffle may use.
+	 * @return true if shuffled successfully, else false, including if the rows can't be
+	 *         split into buckets within the budget, e.g. if a single row exceeds it.
+	 */
+	public boolean shuffle(String path,long memoryBudget);
+
+	/**
+	 * <P>Creates meta data for this data file. Meta data contain extra information about the
 	 * data within the file useful for sampling. Such meta data is actually necessary for
-	 * us to correctly sample especially when a specific class distribution is required.
-	 * 
-	 * This method takes the file represented by this class, parses it, and produces two
-	 * new files:</p>
-	 * 
-	 * <ol>
-	 * 	<li>Original File Name.positive.meta</li>
-	 *  <li>Original File Name.negative.meta</li>
-	 * </ol>
+	 * us to correctly sample especially when a specific class distribution is required.</p>
 	 * 
-	 * <P>The first contains those positive examples in the original file i.e. 
-	 * those with class = 1, the second the negative examples. The new 
-	 * files are almost identical to the original files in terms of structure,
-	 * except that they have an additional feature. This feature is the
-	 * row location of each instance in the original file. So for instance if we
-	 * have an ARFF file as follows:</p>
+	 * <P>This method takes the file represented by this class, parses it, and records the
+	 * row index of each positive instance (i.e. those with class = 1), and each negative
+	 * instance, in a compact binary file named Original File Name.index.meta. So for
+	 * instance if we have an ARFF file as follows:</p>
 	 * 
 	 * % Title : Original Data Set.
 	 *  RELATION Original
@@ -97,43 +114,18 @@ public interface IEditor
 	 * 18 , 12 , 2 , 0
 	 * 26 , 11 , 2 , 1
 	 * 
-	 * Then the positive ARFF file would be:
-	 * 
-	 * % Title : Positives.
-	 *  RELATION Original
-	 *  ATTRIBUTE index NUMERIC
-	 *  ATTRIBUTE a		NUMERIC
-	 *  ATTRIBUTE b		NUMERIC
-	 *  ATTRIBUTE c		NUMERIC
-	 *  ATTRIBUTE class		{0,1}
-	 *  DATA
-	 * 1 , 13 , 10 , 2 , 1
-	 * 3 , 61 , 21 , 3 , 1
-	 * 5 , 26 , 11 , 2 , 1
-	 * 
-	 * And the negative:
-	 * % Title : Negatives.
-	 *  RELATION Original
-	 *  ATTRIBUTE index NUMERIC
-	 *  ATTRIBUTE a		NUMERIC
-	 *  ATTRIBUTE b		NUMERIC
-	 *  ATTRIBUTE c		NUMERIC
-	 *  ATTRIBUTE class		{0,1}
-	 *  DATA
-	 * 2 , 24 , 12 , 2 , 0
-	 * 4 , 18 , 12 , 2 , 0
-	 * 
-	 * By separating the classes in this way, we can create new sampled data sets
-	 * from these files. In particular as we have the indexes of the classes, we
-	 * can, using random number generation, choose indexes to include in a new sample.
+	 * <P>The meta data would record the positives {1,3,5} and the negatives {2,4}, along with
+	 * the class distribution. By separating the classes in this way, we can create new sampled
+	 * data sets, as we can use random number generation to choose the indexes to include in a
+	 * new sample. See {@link MetaData} for details of the file format.</p>
 	 * 
 	 * @return true if successful, else false.
 	 */
 	public boolean createMetaDataBinary();
 
 	/**
-	 * Obtains meta information from the ARFF files created by the {@link #createMetaDataBinary()}
-	 * method. This method reads the modified ARFF file at the specified path, and extracts the
+	 * Obtains meta information from the ARFF files created by older versions of the
+	 * {@link #createMetaDataBinary()} method. This method reads the modified ARFF file at the specified path, and extracts the
 	 * row index of the instance from the file. For instance, the following is an example of a 
 	 * modified ARFF file containing only positive instances:
 	 * 
@@ -171,6 +163,14 @@ public interface IEditor
 	 */
 	public TreeMap<Integer,Integer> getMetaData(String labelledDataPath);
 
+	/**
+	 * Obtains the meta data created by the {@link #createMetaDataBinary()} method. If the binary
+	 * meta data file does not exist, the .positive.meta and .negative.meta files written by older
+	 * versions are read instead, via {@link #getMetaData(String)}.
+	 * @return the meta data, or null if it does not exist or cannot be read.
+	 */
+	public MetaData getMetaData();
+
 	//*****************************************
 	//*****************************************
 	//             Sampling
@@ -203,6 +203,128 @@ public interface IEditor
 	 */
 	public boolean sampleToARFF(String trainPath,String testPath,int negTrainSamples,int posTrainSamples,double trainingSetBalance,double testSetBalance,double labelling);
 
+	/**
+	 * Samples a file straight into memory, producing the same training and test sets as
+	 * {@link #sampleToARFF(String, String, int, int, double, double, double)} would write,
+	 * but without writing them out. The true class meta data and label mask are returned
+	 * with the instances instead of being written next to the test set.
+	 * @param negTrainSamples the number of negative samples to include in the training set.
+	 * @param posTrainSamples the number of positive samples to include in the training set.
+	 * @param trainingSetBalance the class balance desired in the training set.
+	 * @param testSetBalance the class balance desired in the test set.
+	 * @param labelling the ratio of labelled data to aim for.
+	 * @return the sampled instances, or null if the file could not be sampled.
+	 */
+	public SampledInstances sampleToInstances(int negTrainSamples,int posTrainSamples,double trainingSetBalance,double testSetBalance,double labelling);
+
+	/**
+	 * Randomly assigns every labelled row of the file to one of K stratified folds for
+	 * cross validation, so that each fold has the class ratio of the file. The assignment
+	 * is made from the meta data, so the file itself is not read, and it is stored next
+	 * to the file, see {@link FoldAssignment}.
+	 * @param folds the number of folds K, between 2 and {@link FoldAssignment#MAX_FOLDS}.
+	 * @return true if the folds were assigned and stored successfully, else false.
+	 */
+	public boolean createFolds(int folds);
+
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)}
+	 * as CSV files, during a single pass over the file. The test set of fold k holds the
+	 * rows in fold k, all labelled, and the training set the rows in the other folds.
+	 * @param trainPath the path the training set file names are based on, see {@link BaseEditor#getReplicatePath(String, int)}.
+	 * @param testPath the path the test set file names are based on.
+	 * @return true if every fold was written successfully, else false.
+	 */
+	public boolean sampleFoldsToCSV(String trainPath,String testPath);
+
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)}
+	 * as ARFF files, during a single pass over the file. The test set of fold k holds the
+	 * rows in fold k, all labelled, and the training set the rows in the other folds.
+	 * @param trainPath the path the training set file names are based on, see {@link BaseEditor#getReplicatePath(String, int)}.
+	 * @param testPath the path the test set file names are based on.
+	 * @return true if every fold was written successfully, else false.
+	 */
+	public boolean sampleFoldsToARFF(String trainPath,String testPath);
+
+	/**
+	 * Samples the training and test set of a single fold created by {@link #createFolds(int)}
+	 * straight into memory.
+	 * @param fold the fold, numbered from 1.
+	 * @return the sampled instances, or null if the fold could not be sampled.
+	 */
+	public SampledInstances sampleFoldToInstances(int fold);
+
+	/**
+	 * Samples a file producing a CSV output, using a single forward pass over the file.
+	 * Unlike {@link #sampleToCSV(String, String, int, int, double, double, double)} this
+	 * method does not require meta data, only the class distribution gathered by
+	 * {@link #preprocess()}. Instances are assigned to the training set, the test set,
+	 * or omitted, using stratified selection sampling, so that the exact number of positives
+	 * and negatives required in each set is obtained. The labelling decision and the true
+	 * class meta data for the test set are produced during the same pass.
+	 * @param trainPath the path to the training set file to create.
+	 * @param testPath the path to the test set file to create.
+	 * @param negTrainSamples the number of negative samples to include in the training set.
+	 * @param posTrainSamples the number of positive samples to include in the training set.
+	 * @param trainingSetBalance the class balance desired in the training set.
+	 * @param testSetBalance the class balance desired in the test set.
+	 * @param labelling the ratio of labelled data to aim for.
+	 * @return true if sampled successfully, else false.
+	 */
+	public boolean sampleStreamToCSV(String trainPath,String testPath,int negTrainSamples,int posTrainSamples,double trainingSetBalance,double testSetBalance,double labelling);
+
+	/**
+	 * Samples a file producing an ARFF output, using a single forward pass over the file.
+	 * Unlike {@link #sampleToARFF(String, String, int, int, double, double, double)} this
+	 * method does not require meta data, only the class distribution gathered by
+	 * {@link #preprocess()}.
+	 * @param trainPath the path to the training set file to create.
+	 * @param testPath the path to the test set file to create.
+	 * @param negTrainSamples the number of negative samples to include in the training set.
+	 * @param posTrainSamples the number of positive samples to include in the training set.
+	 * @param trainingSetBalance the class balance desired in the training set.
+	 * @param testSetBalance the class balance desired in the test set.
+	 * @param labelling the ratio of labelled data to aim for.
+	 * @return true if sampled successfully, else false.
+	 */
+	public boolean sampleStreamToARFF(String trainPath,String testPath,int negTrainSamples,int posTrainSamples,double trainingSetBalance,double testSetBalance,double labelling);
+
+	/**
+	 * Produces many independent CSV samples of a file, while reading the file only once.
+	 * The index selections for every replicate are made before the file is read, then
+	 * each row is written to every replicate that selected it. For each setting, i.e.
+	 * each position in the balance and labelling arrays, the given number of replicates
+	 * are produced. Replicates are numbered from 1 setting by setting, and the number is
+	 * inserted before the extension of the output paths, so /data/test.csv becomes
+	 * /data/test_1.csv, /data/test_2.csv and so on.
+	 * @param trainPath the path the training set file names are based on.
+	 * @param testPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the number of negative samples to include in each training set.
+	 * @param posTrainSamples the number of positive samples to include in each training set.
+	 * @param trainingSetBalances the class balance desired in the training set, for each setting.
+	 * @param testSetBalances the class balance desired in the test set, for each setting.
+	 * @param labellings the ratio of labelled data to aim for, for each setting.
+	 * @return true if every replicate was sampled successfully, else false.
+	 */
+	public boolean sampleReplicatesToCSV(String trainPath,String testPath,int replicates,int negTrainSamples,int posTrainSamples,double[] trainingSetBalances,double[] testSetBalances,double[] labellings);
+
+	/**
+	 * Produces many independent ARFF samples of a file, while reading the file only once.
+	 * See {@link #sampleReplicatesToCSV(String, String, int, int, int, double[], double[], double[])}.
+	 * @param trainPath the path the training set file names are based on.
+	 * @param testPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the number of negative samples to include in each training set.
+	 * @param posTrainSamples the number of positive samples to include in each training set.
+	 * @param trainingSetBalances the class balance desired in the training set, for each setting.
+	 * @param testSetBalances the class balance desired in the test set, for each setting.
+	 * @param labellings the ratio of labelled data to aim for, for each setting.
+	 * @return true if every replicate was sampled successfully, else false.
+	 */
+	public boolean sampleReplicatesToARFF(String trainPath,String testPath,int replicates,int negTrainSamples,int posTrainSamples,double[] trainingSetBalances,double[] testSetBalances,double[] labellings);
+
 	//*****************************************
 	//*****************************************
 	//               TO ARFF
@@ -219,6 +341,16 @@ public interface IEditor
 	 */
 	public boolean writeARFFHeader(String destination,String title, String rel,String description);
 
+	/**
+	 * Gets the header for an ARFF file, including details of all features, exactly as
+	 * written by {@link #writeARFFHeader(String, String, String, String)}.
+	 * @param title the title of the ARFF file.
+	 * @param rel the name for the relation in the file.
+	 * @param description a description of the relation.
+	 * @return the header, ending with the @DATA line.
+	 */
+	public String getARFFHeader(String title, String rel,String description);
+
 	/**
 	 * Writes out the header for an ARFF file, containing the specified features.
 	 * Note: you must explicitly include the index of the class labels to have them included
@@ -233,13 +365,25 @@ public interface IEditor
 	public boolean writeARFFHeader(String destination,String title, String rel,String description,int[] featureIndexes);
 
 	/**
-	 * Methods which decides if an instance should be labelled or not.
-	 * @param labelled the number of instances currently labelled.
-	 * @param unlabelled the number of instances currently unlabeled.
-	 * @param INSTANCES_TO_LABEL the total number of instances that must be labelled.
-	 * @param INSTANCES_TO_NOT_LABEL the total number of instances that must remain unlabelled.
-	 * @param labelling the labeling ratio.
-	 * @return true if the current instance should be labelled, else false.
+	 * Seeds the random number generator used for every shuffle and sample. After
+	 * seeding, the same sequence of calls with the same arguments produces exactly
+	 * the same output files, so past samples can be recreated rather than stored.
+	 * @param seed the seed.
+	 */
+	public void setSeed(long seed);
+
+	/**
+	 * Sets whether a row index, giving the byte offset of every row, is built when the
+	 * file is pre-processed. When one exists, samples that need only a small fraction of
+	 * the rows read just those rows, rather than streaming the whole file.
+	 * @param create if true a row index is built when pre-processing.
+	 */
+	public void setCreateRowIndex(boolean create);
+
+	/**
+	 * Sets the random number generator used for every shuffle and sample. Each
+	 * shuffle or sample splits an independent generator from the one supplied.
+	 * @param r the random number generator.
 	 */
-	public boolean label(int labelled,int unlabelled,int INSTANCES_TO_LABEL,int INSTANCES_TO_NOT_LABEL,double labelling);
+	public void setRandom(SplittableRandom r);
 }
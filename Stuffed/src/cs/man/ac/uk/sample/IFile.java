@@ -64,27 +64,27 @@ public interface IFile
 	/**
 	 * @return the number of lines of data in the file represented by this object.
 	 */
-	public int getLineCount();
+	public long getLineCount();
 
 	/**
 	 * Sets the value of the variable representing the number of lines of data in
 	 * the file represented by this object.
 	 * @param l the total number of lines.
 	 */
-	public void setLineCount(int l);
+	public void setLineCount(long l);
 
 	/**
 	 * @return the actual number of rows of data  in the file represented by this object,
 	 * minus any non-data lines in the file.
 	 */
-	public int getRows();
+	public long getRows();
 
 	/**
 	 * Sets the value of the variable representing the number of rows of data in
 	 * the file represented by this object.
 	 * @param r the total number of rows of data.
 	 */
-	public void setRows(int r);
+	public void setRows(long r);
 
 	/**
 	 * @return the actual number of columns of data in the file represented by this object,
@@ -164,14 +164,14 @@ public interface IFile
 	 *           V          V
 	 *        Index 0    Index 1
 	 */
-	public int[] getClassDistribution();
+	public long[] getClassDistribution();
 
 	/**
 	 * Sets the value stored in a variable which records the class distribution observed in the
 	 * file represented by this class.
 	 * @param dist the observed distribution to set.
 	 */
-	public void setClassDistribution(int[] dist);
+	public void setClassDistribution(long[] dist);
 
 	/**
 	 * Sets the class index of the file.
@@ -234,24 +234,159 @@ public interface IFile
 	public Object[] sampleToARFF(String trainSetPath, String testSetPath, int negTrainSamples,int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling);
 	
 	/**
-	 * <P>Creates meta data this data file. Meta data contain extra information about the
-	 * data within the file useful for sampling. Such meta data is actually necessary for
-	 * us to correctly sample especially when a specific class distribution is required.
+	 * Samples the file straight into memory, producing the training and test sets that
+	 * {@link #sampleToARFF(String, String, int, int, double, double, double)} would write,
+	 * along with their true class meta data and label mask.
 	 * 
-	 * This method takes the file represented by this class, parses it, and produces two
-	 * new files:</p>
+	 * @param negTrainSamples the total number of negative examples to include in the training set.
+	 * @param posTrainSamples the total number of positive examples to include in the training set.
+	 * @param trainSetBalance the desired class distribution for the training set.
+	 * @param testSetBalance the desired class distribution for the test set.
+	 * @param labelling the proportion of instances in the test set which should be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 * 		   iii) the {@link SampledInstances}, present only if the sampling was successful.
+	 */
+	public Object[] sampleToInstances(int negTrainSamples,int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling);
+
+	/**
+	 * Randomly assigns every labelled row of the file to one of K stratified folds for
+	 * cross validation, using the meta data collected while the file was pre-processed.
+	 * @param folds the number of folds K, between 2 and {@link FoldAssignment#MAX_FOLDS}.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 */
+	public Object[] createFolds(int folds);
+	
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)}
+	 * to CSV files, in a single pass over the file.
+	 * @param trainSetPath the path the training set file names are based on, the fold number is added before the extension.
+	 * @param testSetPath the path the test set file names are based on, the fold number is added before the extension.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 */
+	public Object[] sampleFoldsToCSV(String trainSetPath,String testSetPath);
+	
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)}
+	 * to ARFF files, in a single pass over the file.
+	 * @param trainSetPath the path the training set file names are based on, the fold number is added before the extension.
+	 * @param testSetPath the path the test set file names are based on, the fold number is added before the extension.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 */
+	public Object[] sampleFoldsToARFF(String trainSetPath,String testSetPath);
+	
+	/**
+	 * Samples the training and test set of a single fold created by {@link #createFolds(int)}
+	 * straight into memory.
+	 * @param fold the fold, numbered from 1.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 * 		   iii) the {@link SampledInstances}, present only if the sampling was successful.
+	 */
+	public Object[] sampleFoldToInstances(int fold);
+	
+	/**
+	 * Samples the file in a single forward pass, and writes the sampled output to training
+	 * and test set files in CSV format. This does not require meta data to have been created
+	 * for the file, only that the file has been pre-processed.
 	 * 
-	 * <ol>
-	 * 	<li>Original File Name.positive.meta</li>
-	 *  <li>Original File Name.negative.meta</li>
-	 * </ol>
+	 * @param trainSetPath the training set file to create.
+	 * @param testSetPath the test set file to create.
+	 * @param negTrainSamples the total number of negative examples to include in the training set.
+	 * @param posTrainSamples the total number of positive examples to include in the training set.
+	 * @param trainSetBalance the desired class distribution for the training set.
+	 * @param testSetBalance the desired class distribution for the test set.
+	 * @param labelling the proportion of instances in the test set which should be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleStreamToCSV(String trainSetPath, String testSetPath, int negTrainSamples,int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling);
+	
+	/**
+	 * Samples the file in a single forward pass, and writes the sampled output to training
+	 * and test set files in ARFF format. This does not require meta data to have been created
+	 * for the file, only that the file has been pre-processed.
 	 * 
-	 * <P>The first contains those positive examples in the original file i.e. 
-	 * those with class = 1, the second the negative examples. The new 
-	 * files are almost identical to the original files in terms of structure,
-	 * except that they have an additional feature. This feature is the
-	 * row location of each instance in the original file. So for instance if we
-	 * have an ARFF file as follows:</p>
+	 * @param trainSetPath the training set file to create.
+	 * @param testSetPath the test set file to create.
+	 * @param negTrainSamples the total number of negative examples to include in the training set.
+	 * @param posTrainSamples the total number of positive examples to include in the training set.
+	 * @param trainSetBalance the desired class distribution for the training set.
+	 * @param testSetBalance the desired class distribution for the test set.
+	 * @param labelling the proportion of instances in the test set which should be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleStreamToARFF(String trainSetPath, String testSetPath, int negTrainSamples,int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling);
+	
+	/**
+	 * Produces many independent samples of the file, in CSV format, reading the file only
+	 * once. The given number of replicates is produced for each setting, i.e. for each
+	 * position in the balance and labelling arrays. The replicate number is inserted before
+	 * the extension of each output path, so /data/test.csv becomes /data/test_1.csv etc.
+	 * 
+	 * @param trainSetPath the path the training set file names are based on.
+	 * @param testSetPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the total number of negative examples to include in each training set.
+	 * @param posTrainSamples the total number of positive examples to include in each training set.
+	 * @param trainSetBalances the desired class distribution for the training set, for each setting.
+	 * @param testSetBalances the desired class distribution for the test set, for each setting.
+	 * @param labellings the proportion of instances in the test set which should be labeled, for each setting.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleReplicatesToCSV(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings);
+	
+	/**
+	 * Produces many independent samples of the file, in ARFF format, reading the file only
+	 * once. The given number of replicates is produced for each setting, i.e. for each
+	 * position in the balance and labelling arrays. The replicate number is inserted before
+	 * the extension of each output path, so /data/test.arff becomes /data/test_1.arff etc.
+	 * 
+	 * @param trainSetPath the path the training set file names are based on.
+	 * @param testSetPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the total number of negative examples to include in each training set.
+	 * @param posTrainSamples the total number of positive examples to include in each training set.
+	 * @param trainSetBalances the desired class distribution for the training set, for each setting.
+	 * @param testSetBalances the desired class distribution for the test set, for each setting.
+	 * @param labellings the proportion of instances in the test set which should be labeled, for each setting.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleReplicatesToARFF(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings);
+	
+	/**
+	 * <P>Creates meta data for this data file. Meta data contain extra information about the
+	 * data within the file useful for sampling. Such meta data is actually necessary for
+	 * us to correctly sample especially when a specific class distribution is required.</p>
+	 * 
+	 * <P>This method takes the file represented by this class, parses it, and produces a
+	 * compact binary file, Original File Name.index.meta, containing the row indexes of
+	 * the positive examples (i.e. those with class = 1) and of the negative examples, and
+	 * the class distribution. So for instance if we have an ARFF file as follows:</p>
 	 * 
 	 * % Title : Original Data Set.
 	 *  RELATION Original
@@ -266,34 +401,11 @@ public interface IFile
 	 * 18 , 12 , 2 , 0
 	 * 26 , 11 , 2 , 1
 	 * 
-	 * Then the positive ARFF file would be:
-	 * 
-	 * % Title : Positives.
-	 *  RELATION Original
-	 *  ATTRIBUTE index NUMERIC
-	 *  ATTRIBUTE a		NUMERIC
-	 *  ATTRIBUTE b		NUMERIC
-	 *  ATTRIBUTE c		NUMERIC
-	 *  ATTRIBUTE class		{0,1}
-	 *  DATA
-	 * 1 , 13 , 10 , 2 , 1
-	 * 3 , 61 , 21 , 3 , 1
-	 * 5 , 26 , 11 , 2 , 1
-	 * 
-	 * And the negative:
-	 * % Title : Negatives.
-	 *  RELATION Original
-	 *  ATTRIBUTE index NUMERIC
-	 *  ATTRIBUTE a		NUMERIC
-	 *  ATTRIBUTE b		NUMERIC
-	 *  ATTRIBUTE c		NUMERIC
-	 *  ATTRIBUTE class		{0,1}
-	 *  DATA
-	 * 2 , 24 , 12 , 2 , 0
-	 * 4 , 18 , 12 , 2 , 0
+	 * <P>The meta data would contain the positive indexes {1,3,5} and the negative
+	 * indexes {2,4}.</p>
 	 * 
 	 * <p>By separating the classes in this way, we can create new sampled data sets
-	 * from these files. In particular as we have the indexes of the classes, we
+	 * from the file. In particular as we have the indexes of the classes, we
 	 * can, using random number generation, choose indexes to include in a new sample.</p>
 	 * 
 	 * @return true if successful, else false.
@@ -314,11 +426,41 @@ public interface IFile
 	 */
 	public boolean shuffleDataset(String pth);
 	
+	/**
+	 * Shuffles the data in the file so that it obtains a random reordering, using
+	 * temporary files if the data cannot be shuffled within the memory budget.
+	 * @param pth the path to write the shuffled data to.
+	 * @param memoryBudget the approximate number of bytes of heap the shuffle may use.
+	 * @return true if the file was shuffled successfully, else false.
+	 */
+	public boolean shuffleDataset(String pth,long memoryBudget);
+	
+	/**
+	 * Seeds the random number generator used to shuffle and sample this file. Once seeded
+	 * the same sequence of calls with the same arguments produces the same output files.
+	 * @param seed the seed.
+	 */
+	public void setSeed(long seed);
+	
+	/**
+	 * Sets whether a row index is built when this file is pre-processed, so that small
+	 * samples can be read without streaming the whole file.
+	 * @param create if true a row index is built when pre-processing.
+	 */
+	public void setCreateRowIndex(boolean create);
+	
 	/**
 	 * @return true if the file could be read and understood, else false.
 	 */
 	public boolean preprocess();
 	
+	/**
+	 * Reads the file, and if createMetaData is true creates its meta data in the same pass.
+	 * @param createMetaData if true meta data is created for the file, only possible for binary class files.
+	 * @return true if the file could be read and understood, and the meta data was created if wanted, else false.
+	 */
+	public boolean preprocess(boolean createMetaData);
+	
 	/**
 	 * Writes log statements to a log file.
 	 * @param msg the string message to write to the log file.
@@ -46,10 +46,29 @@ public interface ISampler
 	 */
 	public void setLogPath(String path);
 	
+	/**
+	 * Seeds the random number generator used for every shuffle and sample, including
+	 * the choice of which test instances are labelled. Once seeded, loading the same
+	 * file and making the same sequence of calls with the same arguments recreates
+	 * exactly the same output files, so past samples can be regenerated on demand.
+	 * The seed remains in effect for files loaded later, until it is set again.
+	 * @param seed the seed.
+	 */
+	public void setSeed(long seed);
+	
+	/**
+	 * Sets whether a row index, giving the byte offset of every row, is built when a file
+	 * is loaded. Samples needing only a small fraction of the rows, such as a small training
+	 * set drawn from a very large file, then read just those rows rather than the whole file.
+	 * The index is stored next to the file, and applies to files loaded later.
+	 * @param create if true a row index is built when a file is loaded.
+	 */
+	public void setCreateRowIndex(boolean create);
+	
 	/**
 	 * @return number of rows of data in the file to be sampled.
 	 */
-	public int getRows();
+	public long getRows();
 	
 	/**
 	 * @return number of columns of data in the file to be sampled.
@@ -95,7 +114,7 @@ public interface ISampler
 	 *           V          V
 	 *        Index 0    Index 1
 	 */
-	public int[] getClassDistribution();
+	public long[] getClassDistribution();
 	
 	//*****************************************
 	//*****************************************
@@ -104,13 +123,32 @@ public interface ISampler
 	//*****************************************
 	
 	/**
-	 * Loads a particular file which is to be sampled.
-	 * @param path the path to the file to be sampled.
+	 * Loads a particular file which is to be sampled. The results of reading the file
+	 * are cached next to it, so loading an unchanged file again does not re-read it, and
+	 * loading a file that has had rows appended to it reads only the appended rows.
+	 * The path may also be a directory, or a glob such as /data/day-*.arff, in which case
+	 * the files found are loaded as the shards of a single data set, see {@link ShardedFile}.
+	 * @param path the path to the file, directory or glob to be sampled.
 	 * @param classIndex the column index of the class in the file being sampled.
 	 * @return true if the file is loaded correctly.
 	 */
 	public boolean load(String path,int classIndex);
 	
+	/**
+	 * Loads a particular file which is to be sampled, or a set of shards, as described
+	 * in {@link #load(String, int)}.
+	 * @param path the path to the file, directory or glob to be sampled.
+	 * @param classIndex the column index of the class in the file being sampled.
+	 * @param createMetaData if true meta data will be created for the file if it does not
+	 *        already exist. Meta data is only required by {@link #sampleToCSV(String, String, int, int, double, double, double)},
+	 *        {@link #sampleToARFF(String, String, int, int, double, double, double)} and
+	 *        {@link #sampleToInstances(int, int, double, double, double)}, the
+	 *        streaming sampling methods do not need it. The meta data is collected while
+	 *        the file is pre-processed, so the file is only read once.
+	 * @return true if the file is loaded correctly.
+	 */
+	public boolean load(String path,int classIndex,boolean createMetaData);
+	
 	/**
 	 * Shuffles the data set, and saves it to the output path.
 	 * @param outputPath the path to save the shuffled data to.
@@ -118,6 +156,15 @@ public interface ISampler
 	 */
 	public boolean shuffle(String outputPath);
 	
+	/**
+	 * Shuffles the data set, and saves it to the output path. Data sets too large to be
+	 * shuffled within the memory budget are shuffled using temporary files.
+	 * @param outputPath the path to save the shuffled data to.
+	 * @param memoryBudget the approximate number of bytes of heap the shuffle may use.
+	 * @return true if shuffled and saved successfully, else false.
+	 */
+	public boolean shuffle(String outputPath,long memoryBudget);
+	
 	/**
 	 * Samples the file and writes the sampled output to training and test
 	 * set files in CSV format.
@@ -160,8 +207,247 @@ public interface ISampler
 	 */
 	public Object[] sampleToARFF(String trainSetPath,String testSetPath,int negTrainSamples,int posTrainSamples,double trainSetBalance,double testSetBalance,double labelling);
 	
+	/**
+	 * Samples the file straight into memory, producing the same training and test sets
+	 * as {@link #sampleToARFF(String, String, int, int, double, double, double)}, without
+	 * writing them to files and parsing them back. The sets are returned as weka Instances,
+	 * which can also be read as MOA instance streams, together with the positions of the
+	 * true positives in the test set and the mask recording which test instances are labelled.
+	 * 
+	 * @param negTrainSamples the total number of negative examples to include in the training set.
+	 * @param posTrainSamples the total number of positive examples to include in the training set.
+	 * @param trainSetBalance the desired class distribution for the training set, i.e. trainSetBalance = 0.1 
+	 * 						  means that 10% of the training set will be positive, the remainder will be negative. 
+	 * @param testSetBalance the desired class distribution for the test set, i.e. testSetBalance = 0.01 
+	 * 						  means that 1% of the training set will be positive, the remainder will be negative. 
+	 * @param labelling the proportion of instances in the test set which should be labeled, i.e. labeling = 0.001
+	 * 						  means that 0.1% of the test set will be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 * 		   iii) the {@link SampledInstances}, present only if the sampling was successful.
+	 */
+	public Object[] sampleToInstances(int negTrainSamples,int posTrainSamples,double trainSetBalance,double testSetBalance,double labelling);
+
+	/**
+	 * Randomly assigns every labelled row of the file to one of K stratified folds for
+	 * cross validation, using the meta data collected while the file was pre-processed.
+	 * @param folds the number of folds K, between 2 and {@link FoldAssignment#MAX_FOLDS}.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 */
+	public Object[] createFolds(int folds);
+	
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)}
+	 * to CSV files, in a single pass over the file.
+	 * @param trainSetPath the path the training set file names are based on, the fold number is added before the extension.
+	 * @param testSetPath the path the test set file names are based on, the fold number is added before the extension.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 */
+	public Object[] sampleFoldsToCSV(String trainSetPath,String testSetPath);
+	
+	/**
+	 * Writes the training and test set of every fold created by {@link #createFolds(int)}
+	 * to ARFF files, in a single pass over the file.
+	 * @param trainSetPath the path the training set file names are based on, the fold number is added before the extension.
+	 * @param testSetPath the path the test set file names are based on, the fold number is added before the extension.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 */
+	public Object[] sampleFoldsToARFF(String trainSetPath,String testSetPath);
+	
+	/**
+	 * Samples the training and test set of a single fold created by {@link #createFolds(int)}
+	 * straight into memory.
+	 * @param fold the fold, numbered from 1.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)   a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii)  a string message describing the outcome, which may contained detailed information 
+	 *              if the sampling failed for some reason.
+	 * 		   iii) the {@link SampledInstances}, present only if the sampling was successful.
+	 */
+	public Object[] sampleFoldToInstances(int fold);
+	
+	/**
+	 * Samples the file in a single forward pass and writes the sampled output to training
+	 * and test set files in CSV format. Instances are chosen using stratified selection
+	 * sampling, driven by the class distribution found when the file was loaded, so no
+	 * meta data files are required. The labelling of the test set, and the true class
+	 * meta data, are produced during the same pass.
+	 * 
+	 * @param trainSetPath the training set file to create.
+	 * @param testSetPath the test set file to create.
+	 * @param negTrainSamples the total number of negative examples to include in the training set.
+	 * @param posTrainSamples the total number of positive examples to include in the training set.
+	 * @param trainSetBalance the desired class distribution for the training set, i.e. trainSetBalance = 0.1 
+	 * 						  means that 10% of the training set will be positive, the remainder will be negative. 
+	 * @param testSetBalance the desired class distribution for the test set, i.e. testSetBalance = 0.01 
+	 * 						  means that 1% of the training set will be positive, the remainder will be negative. 
+	 * @param labelling the proportion of instances in the test set which should be labeled, i.e. labeling = 0.001
+	 * 						  means that 0.1% of the test set will be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleStreamToCSV(String trainSetPath,String testSetPath,int negTrainSamples,int posTrainSamples,double trainSetBalance,double testSetBalance,double labelling);
+	
+	/**
+	 * Samples the file in a single forward pass and writes the sampled output to training
+	 * and test set files in ARFF format. Instances are chosen using stratified selection
+	 * sampling, driven by the class distribution found when the file was loaded, so no
+	 * meta data files are required. The labelling of the test set, and the true class
+	 * meta data, are produced during the same pass.
+	 * 
+	 * @param trainSetPath the training set file to create.
+	 * @param testSetPath the test set file to create.
+	 * @param negTrainSamples the total number of negative examples to include in the training set.
+	 * @param posTrainSamples the total number of positive examples to include in the training set.
+	 * @param trainSetBalance the desired class distribution for the training set, i.e. trainSetBalance = 0.1 
+	 * 						  means that 10% of the training set will be positive, the remainder will be negative. 
+	 * @param testSetBalance the desired class distribution for the test set, i.e. testSetBalance = 0.01 
+	 * 						  means that 1% of the training set will be positive, the remainder will be negative. 
+	 * @param labelling the proportion of instances in the test set which should be labeled, i.e. labeling = 0.001
+	 * 						  means that 0.1% of the test set will be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleStreamToARFF(String trainSetPath,String testSetPath,int negTrainSamples,int posTrainSamples,double trainSetBalance,double testSetBalance,double labelling);
+	
+	/**
+	 * Produces many independent samples of the loaded file, in CSV format, while reading
+	 * the file only once. This is much faster than calling {@link #sampleToCSV(String, String, int, int, double, double, double)}
+	 * once per experimental run. The given number of replicates is produced for each
+	 * setting, i.e. for each position in the balance and labelling arrays. Replicates are
+	 * numbered from 1 setting by setting, so given 2 settings and 3 replicates, replicates 1
+	 * to 3 use the first setting and replicates 4 to 6 the second. Use {@link #getReplicatePath(String, int)}
+	 * to find the files belonging to a replicate, i.e. /data/test.csv becomes /data/test_1.csv etc.
+	 * 
+	 * @param trainSetPath the path the training set file names are based on.
+	 * @param testSetPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the total number of negative examples to include in each training set.
+	 * @param posTrainSamples the total number of positive examples to include in each training set.
+	 * @param trainSetBalances the desired class distribution for the training set, for each setting.
+	 * @param testSetBalances the desired class distribution for the test set, for each setting.
+	 * @param labellings the proportion of instances in the test set which should be labeled, for each setting.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleReplicatesToCSV(String trainSetPath,String testSetPath,int replicates,int negTrainSamples,int posTrainSamples,double[] trainSetBalances,double[] testSetBalances,double[] labellings);
+	
+	/**
+	 * Produces many independent samples of the loaded file, in CSV format, all using the
+	 * same setting, while reading the file only once.
+	 * 
+	 * @param trainSetPath the path the training set file names are based on.
+	 * @param testSetPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce.
+	 * @param negTrainSamples the total number of negative examples to include in each training set.
+	 * @param posTrainSamples the total number of positive examples to include in each training set.
+	 * @param trainSetBalance the desired class distribution for the training set.
+	 * @param testSetBalance the desired class distribution for the test set.
+	 * @param labelling the proportion of instances in the test set which should be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleReplicatesToCSV(String trainSetPath,String testSetPath,int replicates,int negTrainSamples,int posTrainSamples,double trainSetBalance,double testSetBalance,double labelling);
+	
+	/**
+	 * Produces many independent samples of the loaded file, in ARFF format, while reading
+	 * the file only once. This is much faster than calling {@link #sampleToARFF(String, String, int, int, double, double, double)}
+	 * once per experimental run. The given number of replicates is produced for each
+	 * setting, i.e. for each position in the balance and labelling arrays. Replicates are
+	 * numbered from 1 setting by setting, so given 2 settings and 3 replicates, replicates 1
+	 * to 3 use the first setting and replicates 4 to 6 the second. Use {@link #getReplicatePath(String, int)}
+	 * to find the files belonging to a replicate, i.e. /data/test.arff becomes /data/test_1.arff etc.
+	 * 
+	 * @param trainSetPath the path the training set file names are based on.
+	 * @param testSetPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce for each setting.
+	 * @param negTrainSamples the total number of negative examples to include in each training set.
+	 * @param posTrainSamples the total number of positive examples to include in each training set.
+	 * @param trainSetBalances the desired class distribution for the training set, for each setting.
+	 * @param testSetBalances the desired class distribution for the test set, for each setting.
+	 * @param labellings the proportion of instances in the test set which should be labeled, for each setting.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleReplicatesToARFF(String trainSetPath,String testSetPath,int replicates,int negTrainSamples,int posTrainSamples,double[] trainSetBalances,double[] testSetBalances,double[] labellings);
+	
+	/**
+	 * Produces many independent samples of the loaded file, in ARFF format, all using the
+	 * same setting, while reading the file only once.
+	 * 
+	 * @param trainSetPath the path the training set file names are based on.
+	 * @param testSetPath the path the test set file names are based on.
+	 * @param replicates the number of replicates to produce.
+	 * @param negTrainSamples the total number of negative examples to include in each training set.
+	 * @param posTrainSamples the total number of positive examples to include in each training set.
+	 * @param trainSetBalance the desired class distribution for the training set.
+	 * @param testSetBalance the desired class distribution for the test set.
+	 * @param labelling the proportion of instances in the test set which should be labeled.
+	 * @return an array containing values which describe the outcome of the sampling. These variables include:
+	 * 		   i)  a boolean value which when true means the sampling was successful, else false.
+	 * 		   ii) a string message describing the outcome, which may contained detailed information 
+	 *             if the sampling failed for some reason.
+	 */
+	public Object[] sampleReplicatesToARFF(String trainSetPath,String testSetPath,int replicates,int negTrainSamples,int posTrainSamples,double trainSetBalance,double testSetBalance,double labelling);
+	
+	/**
+	 * Gets the path to the file belonging to a single replicate, produced by one of the
+	 * sampleReplicates methods, i.e. for replicate 3 of /data/test.arff this is /data/test_3.arff.
+	 * @param path the path passed to the sampleReplicates method.
+	 * @param replicate the replicate number, starting from 1.
+	 * @return the path to the replicate file.
+	 */
+	public String getReplicatePath(String path,int replicate);
+	
+	/**
+	 * Gets the path to the label mask written alongside a test set, which records
+	 * which test set instances were labelled, see {@link LabelMask#read(String)}.
+	 * @param testSetPath the path to the test set.
+	 * @return the path to the label mask belonging to the test set.
+	 */
+	public String getPathToLabelMask(String testSetPath);
+	
+	/**
+	 * Gets the path to the binary meta data belonging to the currently loaded file, which
+	 * contains the row indexes of both the positive and negative instances.
+	 * @return the path to the binary meta data belonging to the currently loaded file,
+	 *  else an empty string if the file is not loaded.
+	 */
+	public String getPathToMetaData();
+	
+	/**
+	 * Gets the path to the fold assignment belonging to the currently loaded file, as
+	 * written by {@link #createFolds(int)}.
+	 * @return the path to the fold assignment belonging to the currently loaded file,
+	 *  else an empty string if the file is not loaded.
+	 */
+	public String getPathToFolds();
+	
 	/**
 	 * Gets the path to the positive meta data belonging to the currently loaded file.
+	 * If binary meta data exists this is the path to the binary meta data, otherwise
+	 * it is the path to the .positive.meta file written by older versions.
 	 * @return the path to the positive meta data belonging to the currently loaded file,
 	 *  else an empty string if the file is not loaded.
 	 */
@@ -169,6 +455,8 @@ public interface ISampler
 	
 	/**
 	 * Gets the path to the negative meta data belonging to the currently loaded file.
+	 * If binary meta data exists this is the path to the binary meta data, otherwise
+	 * it is the path to the .negative.meta file written by older versions.
 	 * @return the path to the negative meta data belonging to the currently loaded file,
 	 *  else an empty string if the file is not loaded.
 	 */
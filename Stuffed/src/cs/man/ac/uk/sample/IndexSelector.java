@@ -0,0 +1,223 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	IndexSelector.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import cs.man.ac.uk.common.LongBitSet;
+import cs.man.ac.uk.common.LongHashMap;
+
+/**
+ * The class IndexSelector randomly chooses the row indexes of the instances that
+ * should be included in a sample. All selections are made on primitive long values,
+ * so no index is ever boxed and populations of more than 2^31 rows can be sampled,
+ * and each selection completes in time proportional to the number of indexes chosen,
+ * no matter how close the sample size gets to the size of the population it is drawn
+ * from. Every random choice is made using the generator passed in, so a selection can
+ * be repeated exactly by passing in a generator created with the same seed.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class IndexSelector
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The largest number of indexes that can be chosen at once, as they are returned in an array.
+	 */
+	public static final int MAX_INDEXES = Integer.MAX_VALUE - 8;
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Randomly splits the range [0,n) into disjoint partitions, using a partial Fisher-Yates
+	 * shuffle. For example given n = 5 and the sizes {2,1}, this may return {{1,4},{0}}. The
+	 * values are ranks, i.e. value i stands for the i-th member of the population being
+	 * sampled, such as the i-th positive row, see {@link MetaData#toRowIndexes(long[], boolean)}.
+	 * Only as many swaps are made as there are values to choose, after which each partition
+	 * is sorted so that it can be merge-walked against the rows of the file being sampled.
+	 * Where the range is too large to shuffle in an array, only the positions moved by the
+	 * swaps are recorded.
+	 *
+	 * @param n the size of the population to choose from.
+	 * @param sizes the number of values to place in each partition.
+	 * @param r the random number generator to use.
+	 * @return the sorted values belonging to each partition.
+	 */
+	public static long[][] partition(long n,long[] sizes,SplittableRandom r)
+	{
+		long total = 0;
+		for(int i = 0; i < sizes.length; i++)
+			total += Math.max(0, sizes[i]);
+
+		if(total > n)
+			throw new IllegalArgumentException("Cannot choose "+total+" indexes from a population of "+n);
+
+		if(total > MAX_INDEXES)
+			throw new IllegalArgumentException("Cannot choose "+total+" indexes, at most "+MAX_INDEXES+" can be chosen at once");
+
+		long[] chosen = new long[(int)total];
+
+		if(n <= MAX_INDEXES && n <= total * 4)
+		{
+			// The range is small enough to shuffle in an array.
+			long[] pool = new long[(int)n];
+			for(int i = 0; i < pool.length; i++)
+				pool[i] = i;
+
+			// Shuffle only the first 'total' positions of the pool.
+			for(int i = 0; i < chosen.length; i++)
+			{
+				int j = (int)(i + nextIndex(r, n - i));
+				chosen[i] = pool[j];
+				pool[j] = pool[i];
+			}
+		}
+		else
+		{
+			// Only the positions moved by a swap differ from their rank.
+			LongHashMap moved = new LongHashMap(chosen.length);
+
+			for(int i = 0; i < chosen.length; i++)
+			{
+				long j = i + nextIndex(r, n - i);
+				chosen[i] = moved.get(j, j);
+				moved.put(j, moved.get(i, i));
+			}
+		}
+
+		long[][] partitions = new long[sizes.length][];
+		int start = 0;
+
+		for(int i = 0; i < sizes.length; i++)
+		{
+			int size = (int)Math.max(0, sizes[i]);
+			partitions[i] = Arrays.copyOfRange(chosen, start, start+size);
+			Arrays.sort(partitions[i]);
+			start += size;
+		}
+
+		return partitions;
+	}
+
+	/**
+	 * Chooses k distinct values from the range [0,n) using Floyd's algorithm, which
+	 * requires exactly k random numbers. The chosen values are recorded in a bit set,
+	 * so they are returned in ascending order without needing to be sorted.
+	 *
+	 * @param n the size of the range to choose from.
+	 * @param k the number of values to choose.
+	 * @param r the random number generator to use.
+	 * @return the chosen values in ascending order.
+	 */
+	public static long[] choose(long n,int k,SplittableRandom r)
+	{
+		return toArray(chooseBits(n, k, r), k);
+	}
+
+	/**
+	 * Chooses k distinct values from the range [0,n) using Floyd's algorithm, and
+	 * returns them as a bit set where bit i is set if value i was chosen.
+	 *
+	 * @param n the size of the range to choose from.
+	 * @param k the number of values to choose.
+	 * @param r the random number generator to use.
+	 * @return the bit set describing the chosen values.
+	 */
+	public static LongBitSet chooseBits(long n,long k,SplittableRandom r)
+	{
+		if(k > n)
+			throw new IllegalArgumentException("Cannot choose "+k+" values from a range of "+n);
+
+		LongBitSet chosen = new LongBitSet(n);
+
+		for(long j = n - k; j < n; j++)
+		{
+			long t = nextIndex(r, j + 1);
+
+			if(chosen.get(t))
+				chosen.set(j);
+			else
+				chosen.set(t);
+		}
+
+		return chosen;
+	}
+
+	/**
+	 * Chooses a random index below a bound. Bounds that fit in an int draw an int, so
+	 * the same values are drawn from a generator as when indexes were limited to ints,
+	 * and a seed chooses the same sample it always has.
+	 * @param r the random number generator to use.
+	 * @param bound the number of indexes to choose from.
+	 * @return the index, from 0 to bound-1.
+	 */
+	public static long nextIndex(SplittableRandom r,long bound)
+	{
+		return bound <= Integer.MAX_VALUE ? r.nextInt((int)bound) : r.nextLong(bound);
+	}
+
+	/**
+	 * Shuffles a list in place using the Fisher-Yates algorithm, so that every
+	 * permutation of the list is equally likely.
+	 * @param list the list to shuffle.
+	 * @param r the random number generator to use.
+	 */
+	public static <T> void shuffle(List<T> list,SplittableRandom r)
+	{
+		for(int i = list.size() - 1; i > 0; i--)
+			Collections.swap(list, i, r.nextInt(i + 1));
+	}
+
+	/**
+	 * Converts a bit set into an array containing the positions of its set bits.
+	 * @param bits the bit set to convert.
+	 * @param cardinality the number of set bits.
+	 * @return the positions of the set bits in ascending order.
+	 */
+	public static long[] toArray(LongBitSet bits,int cardinality)
+	{
+		long[] values = new long[cardinality];
+		int count = 0;
+
+		for(long i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i+1))
+			values[count++] = i;
+
+		return values;
+	}
+}
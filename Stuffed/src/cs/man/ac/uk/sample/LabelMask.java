@@ -0,0 +1,282 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	LabelMask.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.SplittableRandom;
+
+import cs.man.ac.uk.common.LongBitSet;
+
+/**
+ * The class LabelMask records which instances in a test set retain their class label,
+ * and which are written out unlabelled. Bit i of the mask is set if the instance at
+ * position i of the test set (starting from 0) is labelled. The mask is chosen before the
+ * test set is written, so exactly the requested number of instances are labelled, and
+ * is then stored next to the test set so that the hidden instances can be identified
+ * later without re-reading the test set. The file is made up of big-endian values:
+ *
+ * <ol>
+ * <li>the magic number 0x53544C4D ("STLM").</li>
+ * <li>the format version.</li>
+ * <li>the number of positions in the mask, i.e. the test set size, as a 64 bit integer.</li>
+ * <li>the number of labelled positions, as a 64 bit integer.</li>
+ * <li>the number of 64 bit words w, as a 64 bit integer, followed by the w words of the mask.</li>
+ * </ol>
+ *
+ * Masks written in the first version of the format, which stored the counts as 32 bit
+ * integers, can still be read.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class LabelMask
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to label mask files, this replaces the test set file extension.
+	 */
+	public static final String EXTENSION = ".labels.mask";
+
+	/**
+	 * The magic number at the start of a label mask file ("STLM").
+	 */
+	private static final int MAGIC = 0x53544C4D;
+
+	/**
+	 * The version of the label mask format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of words read or written at a time.
+	 */
+	private static final int BLOCK_WORDS = 64 * 1024;
+
+	/**
+	 * The number of positions in the mask.
+	 */
+	private long size;
+
+	/**
+	 * The mask, bit i is set if position i is labelled.
+	 */
+	private LongBitSet mask;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param size the number of positions in the mask.
+	 * @param mask the mask, bit i is set if position i is labelled.
+	 */
+	public LabelMask(long size,LongBitSet mask)
+	{
+		this.size = size;
+		this.mask = mask;
+	}
+
+	/**
+	 * Randomly chooses exactly the specified number of positions to label.
+	 * @param size the number of positions in the mask, i.e. the test set size.
+	 * @param labelled the number of positions to label.
+	 * @param r the random number generator to use.
+	 * @return the label mask.
+	 */
+	public static LabelMask create(long size,long labelled,SplittableRandom r)
+	{
+		return new LabelMask(size, IndexSelector.chooseBits(size, labelled, r));
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param position the position of an instance in the test set, starting from 0.
+	 * @return true if the instance at the position is labelled, else false.
+	 */
+	public boolean isLabelled(long position){ return mask.get(position); }
+
+	/**
+	 * Writes this mask to a file, overwriting any existing file.
+	 * @param path the path to the file to write.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean write(String path)
+	{
+		long words = (size + 63) >>> 6;
+
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				channel.truncate(0);
+
+				ByteBuffer buffer = ByteBuffer.allocate(BLOCK_WORDS * 8);
+				buffer.putInt(MAGIC).putInt(VERSION);
+				buffer.putLong(size).putLong(mask.cardinality());
+				buffer.putLong(words);
+				buffer.flip();
+
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+
+				for(long w = 0; w < words; )
+				{
+					buffer.clear();
+
+					for(int i = 0; i < BLOCK_WORDS && w < words; i++, w++)
+						buffer.putLong(mask.getWord(w));
+
+					buffer.flip();
+
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+				}
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads a label mask file.
+	 * @param path the path to the file to read.
+	 * @return the label mask, or null if the file does not exist or is not valid.
+	 */
+	public static LabelMask read(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return null;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(BLOCK_WORDS * 8);
+
+				while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+				buffer.flip();
+
+				if(buffer.remaining() < 20 || buffer.getInt() != MAGIC)
+					return null;
+
+				int version = buffer.getInt();
+				long size, cardinality, length;
+
+				if(version == 1)
+				{
+					size = buffer.getInt();
+					cardinality = buffer.getInt();
+					length = buffer.getInt();
+				}
+				else if(version == VERSION && buffer.remaining() >= 24)
+				{
+					size = buffer.getLong();
+					cardinality = buffer.getLong();
+					length = buffer.getLong();
+				}
+				else
+					return null;
+
+				if(size < 0 || length < 0 || length * 8 != channel.size() - buffer.position())
+					return null;
+
+				LongBitSet mask = new LongBitSet(size);
+
+				for(long w = 0; w < length; w++)
+				{
+					if(!buffer.hasRemaining())
+					{
+						buffer.compact();
+						while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+						buffer.flip();
+					}
+
+					mask.setWord(w, buffer.getLong());
+				}
+
+				if(mask.cardinality() != cardinality || (length > 0 && mask.nextSetBit(size) >= 0))
+					return null;
+
+				return new LabelMask(size, mask);
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of positions in the mask, i.e. the test set size.
+	 */
+	public long getSize(){ return this.size; }
+
+	/**
+	 * @return the number of labelled positions.
+	 */
+	public long getLabelled(){ return this.mask.cardinality(); }
+
+	/**
+	 * @return the mask, bit i is set if position i is labelled.
+	 */
+	public LongBitSet getMask(){ return this.mask; }
+}
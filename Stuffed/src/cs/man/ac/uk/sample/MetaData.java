@@ -0,0 +1,580 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	MetaData.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+import cs.man.ac.uk.common.LongBitSet;
+
+/**
+ * The class MetaData holds the meta data used to sample a data file, i.e. which rows
+ * hold positive instances, which hold negative instances, and the class distribution.
+ * Every row is either positive or negative, so the positive rows are kept in a bit set
+ * indexed by row, and the negative rows are those not set. This takes one bit per row,
+ * however many rows there are, so files with more than 2^31 rows can be described. The
+ * meta data is stored in a compact binary sidecar file, next to the data file, made up
+ * of big-endian values as follows:
+ *
+ * <ol>
+ * <li>the magic number 0x53544D44 ("STMD").</li>
+ * <li>the format version.</li>
+ * <li>the number of rows r, as a 64 bit integer.</li>
+ * <li>the number of classes d, followed by d 64 bit class counts.</li>
+ * <li>the number of positives, as a 64 bit integer.</li>
+ * <li>(r+63)/64 64 bit words, bit i-1 being set if row i is positive.</li>
+ * </ol>
+ *
+ * Row indexes are 1-based. So for the file:
+ *
+ * % Title : Original Data Set.
+ * @RELATION Original
+ * @ATTRIBUTE a	NUMERIC
+ * @ATTRIBUTE b	NUMERIC
+ * @ATTRIBUTE c	NUMERIC
+ * @ATTRIBUTE class		{0,1}
+ * @DATA
+ * 13 , 10 , 2 , 1
+ * 24 , 12 , 2 , 0
+ * 61 , 21 , 3 , 1
+ * 18 , 12 , 2 , 0
+ * 26 , 11 , 2 , 1
+ *
+ * the positives are {1,3,5} and the negatives {2,4}. Files written in the first version
+ * of the format, which held 32 bit arrays of positive and negative row indexes, can still
+ * be read.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class MetaData
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to binary meta data files, this replaces the data file extension.
+	 */
+	public static final String EXTENSION = ".index.meta";
+
+	/**
+	 * The magic number at the start of a binary meta data file ("STMD").
+	 */
+	private static final int MAGIC = 0x53544D44;
+
+	/**
+	 * The version of the binary meta data format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of words read or written at a time.
+	 */
+	private static final int BLOCK_WORDS = 64 * 1024;
+
+	/**
+	 * The number of rows.
+	 */
+	private long rows;
+
+	/**
+	 * The positive rows, bit i-1 is set if row i is positive.
+	 */
+	private LongBitSet positives;
+
+	/**
+	 * The number of positive rows.
+	 */
+	private long positiveCount;
+
+	/**
+	 * The class distribution.
+	 */
+	private long[] distribution;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param rows the number of rows.
+	 * @param positives the positive rows, bit i-1 is set if row i is positive.
+	 * @param distribution the class distribution.
+	 */
+	public MetaData(long rows,LongBitSet positives,long[] distribution)
+	{
+		this.rows = rows;
+		this.positives = positives;
+		this.positiveCount = positives.cardinality();
+		this.distribution = distribution;
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param row the 1-based index of a row.
+	 * @return true if the row is positive, else false.
+	 */
+	public boolean isPositive(long row){ return positives.get(row-1); }
+
+	/**
+	 * Finds the rows holding the positives, or negatives, of the given ranks. Rank i is
+	 * the i-th positive, or negative, row in the file counting from 0, as chosen by
+	 * {@link IndexSelector#partition(long, long[], java.util.SplittableRandom)}. The rows are found
+	 * in a single pass over the bit set, counting the bits in each word.
+	 * @param ranks the ranks to find, in ascending order.
+	 * @param positive if true the ranks are of positive rows, else negative rows.
+	 * @return the 1-based indexes of the rows, in ascending order.
+	 */
+	public long[] toRowIndexes(long[] ranks,boolean positive)
+	{
+		long[] indexes = new long[ranks.length];
+		long words = (rows + 63) >>> 6;
+		long seen = 0; // The number of rows of the class before the current word.
+		int next = 0;
+
+		for(long w = 0; w < words && next < ranks.length; w++)
+		{
+			long word = positives.getWord(w);
+
+			if(!positive)
+			{
+				word = ~word;
+
+				// Ignore the bits beyond the last row.
+				if(w == words-1 && (rows & 63) != 0)
+					word &= (1L << rows) - 1;
+			}
+
+			int bits = Long.bitCount(word);
+
+			while(next < ranks.length && ranks[next] < seen + bits)
+			{
+				// Clear the lower set bits until the bit of the wanted rank is lowest.
+				long v = word;
+				for(long j = ranks[next] - seen; j > 0; j--)
+					v &= v - 1;
+
+				indexes[next++] = (w << 6) + Long.numberOfTrailingZeros(v) + 1;
+			}
+
+			seen += bits;
+		}
+
+		if(next < ranks.length)
+			throw new IllegalArgumentException("Rank "+ranks[next]+" is beyond the "+seen+(positive ? " positive" : " negative")+" rows");
+
+		return indexes;
+	}
+
+	/**
+	 * Writes this meta data to a binary meta data file, overwriting any existing file.
+	 * @param path the path to the file to write.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean write(String path)
+	{
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				channel.truncate(0);
+
+				ByteBuffer buffer = ByteBuffer.allocate(Math.max(32 + distribution.length * 8, BLOCK_WORDS * 8));
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(rows);
+				buffer.putInt(distribution.length);
+				for(int i = 0; i < distribution.length; i++)
+					buffer.putLong(distribution[i]);
+				buffer.putLong(positiveCount);
+				buffer.flip();
+
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+
+				long words = (rows + 63) >>> 6;
+
+				for(long w = 0; w < words; )
+				{
+					buffer.clear();
+
+					for(int i = 0; i < BLOCK_WORDS && w < words; i++, w++)
+						buffer.putLong(positives.getWord(w));
+
+					buffer.flip();
+
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+				}
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads the number of rows described by a binary meta data file, without reading
+	 * which of them are positive.
+	 * @param path the path to the file to read.
+	 * @return the number of rows, or -1 if the file does not exist or is not in the current format.
+	 */
+	public static long readRows(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return -1;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				ByteBuffer header = ByteBuffer.allocate(16);
+
+				if(!fill(in.getChannel(), header) || header.getInt() != MAGIC || header.getInt() != VERSION)
+					return -1;
+
+				return header.getLong();
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return -1;}
+	}
+
+	/**
+	 * Extends a binary meta data file in place, to describe rows appended to the end of
+	 * the data file. Only the header and the last partially filled word are rewritten,
+	 * the words for the appended rows are written after them, so the cost is proportional
+	 * to the number of rows appended rather than the size of the file.
+	 * @param path the path to the file to extend.
+	 * @param positives the appended rows that are positive, bit i-1 being set if appended row i is positive.
+	 * @param appended the number of rows appended.
+	 * @param distribution the class distribution of the whole data file, including the appended rows.
+	 * @return true if extended successfully, else false if the file is not valid or can't be written.
+	 */
+	public static boolean append(String path,LongBitSet positives,long appended,long[] distribution)
+	{
+		if(!new File(path).exists())
+			return false;
+
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				ByteBuffer header = ByteBuffer.allocate(20);
+
+				if(!fill(channel, header) || header.getInt() != MAGIC || header.getInt() != VERSION)
+					return false;
+
+				long rows = header.getLong();
+				int classes = header.getInt();
+
+				// The distribution is rewritten in place, so the number of classes can't change.
+				if(classes != distribution.length)
+					return false;
+
+				long start = 20 + classes * 8L + 8;
+
+				if(rows < 0 || channel.size() != start + ((rows + 63) >>> 6) * 8)
+					return false;
+
+				header = ByteBuffer.allocate(8);
+				channel.position(start - 8);
+
+				if(!fill(channel, header))
+					return false;
+
+				long positiveCount = header.getLong();
+
+				// The appended bits are moved along to follow the existing rows, sharing their last word.
+				long first = rows >>> 6;
+				long words = ((rows + appended + 63) >>> 6) - first;
+				LongBitSet shifted = new LongBitSet(appended + 64);
+				shifted.or(positives, rows & 63);
+
+				if((rows & 63) != 0)
+				{
+					header.clear();
+					channel.position(start + first * 8);
+
+					if(!fill(channel, header))
+						return false;
+
+					shifted.setWord(0, shifted.getWord(0) | header.getLong());
+				}
+
+				ByteBuffer buffer = ByteBuffer.allocate(BLOCK_WORDS * 8);
+				long position = start + first * 8;
+
+				for(long w = 0; w < words; )
+				{
+					buffer.clear();
+
+					for(int i = 0; i < BLOCK_WORDS && w < words; i++, w++)
+						buffer.putLong(shifted.getWord(w));
+
+					buffer.flip();
+
+					while(buffer.hasRemaining())
+						position += channel.write(buffer, position);
+				}
+
+				// The header is written last, so it only describes the new rows once they are written.
+				buffer.clear();
+				buffer.putLong(rows + appended).putInt(classes);
+				for(int i = 0; i < classes; i++)
+					buffer.putLong(distribution[i]);
+				buffer.putLong(positiveCount + positives.cardinality());
+				buffer.flip();
+
+				position = 8;
+				while(buffer.hasRemaining())
+					position += channel.write(buffer, position);
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads a binary meta data file.
+	 * @param path the path to the file to read.
+	 * @return the meta data, or null if the file does not exist or is not valid.
+	 */
+	public static MetaData read(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return null;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+				ByteBuffer header = ByteBuffer.allocate(8);
+
+				if(!fill(channel, header) || header.getInt() != MAGIC)
+					return null;
+
+				int version = header.getInt();
+
+				if(version == 1)
+					return readVersion1(channel);
+
+				if(version != VERSION)
+					return null;
+
+				header = ByteBuffer.allocate(12);
+				if(!fill(channel, header))
+					return null;
+
+				long rows = header.getLong();
+				int classes = header.getInt();
+
+				if(rows < 0 || classes < 0 || classes > (channel.size() - 16) / 8)
+					return null;
+
+				header = ByteBuffer.allocate(classes * 8 + 8);
+				if(!fill(channel, header))
+					return null;
+
+				long[] distribution = new long[classes];
+				for(int i = 0; i < classes; i++)
+					distribution[i] = header.getLong();
+
+				long positiveCount = header.getLong();
+				long words = (rows + 63) >>> 6;
+
+				if(channel.size() - channel.position() != words * 8)
+					return null;
+
+				LongBitSet positives = new LongBitSet(rows);
+				ByteBuffer buffer = ByteBuffer.allocate(BLOCK_WORDS * 8);
+
+				for(long w = 0; w < words; )
+				{
+					buffer.clear();
+					buffer.limit((int)Math.min(BLOCK_WORDS, words - w) * 8);
+
+					if(!fill(channel, buffer))
+						return null;
+
+					while(buffer.hasRemaining())
+						positives.setWord(w++, buffer.getLong());
+				}
+
+				MetaData meta = new MetaData(rows, positives, distribution);
+				return meta.positiveCount == positiveCount ? meta : null;
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	/**
+	 * Fills a buffer from a channel, then flips it ready to be read.
+	 * @param channel the channel to read from.
+	 * @param buffer the buffer to fill.
+	 * @return true if the buffer was filled, else false if the end of the channel was reached first.
+	 * @throws IOException if the channel cannot be read.
+	 */
+	private static boolean fill(FileChannel channel,ByteBuffer buffer) throws IOException
+	{
+		while(buffer.hasRemaining())
+			if(channel.read(buffer) < 0)
+				return false;
+
+		buffer.flip();
+		return true;
+	}
+
+	/**
+	 * Reads the rest of a file written in the first version of the format, which held
+	 * length prefixed arrays of 32 bit integers: the class distribution, then the positive
+	 * row indexes, then the negative row indexes.
+	 * @param channel the channel to the file, positioned after the version.
+	 * @return the meta data, or null if the file is not valid.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static MetaData readVersion1(FileChannel channel) throws IOException
+	{
+		IntBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, channel.position(), channel.size() - channel.position()).asIntBuffer();
+
+		int[] distribution = readArray(buffer);
+		int[] positives = readArray(buffer);
+		int[] negatives = readArray(buffer);
+
+		if(distribution == null | positives == null | negatives == null)
+			return null;
+
+		long[] dist = new long[distribution.length];
+		for(int i = 0; i < distribution.length; i++)
+			dist[i] = distribution[i];
+
+		LongBitSet bits = new LongBitSet();
+		long rows = 0;
+
+		for(int i = 0; i < positives.length; i++)
+		{
+			bits.set(positives[i]-1);
+			rows = Math.max(rows, positives[i]);
+		}
+
+		for(int i = 0; i < negatives.length; i++)
+			rows = Math.max(rows, negatives[i]);
+
+		return new MetaData(rows, bits, dist);
+	}
+
+	/**
+	 * Reads a length prefixed array of integers from a buffer.
+	 * @param buffer the buffer to read from.
+	 * @return the array, or null if the buffer does not contain the whole array.
+	 */
+	private static int[] readArray(IntBuffer buffer)
+	{
+		if(!buffer.hasRemaining())
+			return null;
+
+		int length = buffer.get();
+
+		if(length < 0 || length > buffer.remaining())
+			return null;
+
+		int[] array = new int[length];
+		buffer.get(array);
+		return array;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of rows.
+	 */
+	public long getRows(){ return this.rows; }
+
+	/**
+	 * @return the positive rows, bit i-1 is set if row i is positive.
+	 */
+	public LongBitSet getPositives(){ return this.positives; }
+
+	/**
+	 * @return the number of positive rows.
+	 */
+	public long getPositiveCount(){ return this.positiveCount; }
+
+	/**
+	 * @return the number of negative rows.
+	 */
+	public long getNegativeCount(){ return this.rows - this.positiveCount; }
+
+	/**
+	 * @return the class distribution.
+	 */
+	public long[] getClassDistribution(){ return this.distribution; }
+}
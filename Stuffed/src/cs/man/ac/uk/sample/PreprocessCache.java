@@ -0,0 +1,479 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	PreprocessCache.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+
+/**
+ * The class PreprocessCache stores the results of pre-processing a data file, i.e. the
+ * line count, rows, columns, relation, attribute labels, class labels and class
+ * distribution, in a small sidecar file next to the data file. The results are keyed by
+ * a fingerprint of the data file made up of its absolute path, its size, its last
+ * modified time and a CRC32 checksum of its first and last 64KB, along with the class
+ * index requested. If the fingerprint of the data file still matches when it is next
+ * loaded, the results can be restored without reading the data file again. If rows have
+ * only been appended to the data file, see {@link #isAppended(File, int)}, the results
+ * can be extended by pre-processing just the appended rows.
+ *
+ * <P>The checksum covers only the ends of the file so that it can be computed in
+ * constant time, it guards against a file being replaced by another of the same size
+ * with its modified time preserved (e.g. by a copy).</p>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class PreprocessCache
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to pre-processing cache files, this replaces the data file extension.
+	 */
+	public static final String EXTENSION = ".preprocess.meta";
+
+	/**
+	 * The magic number at the start of a cache file ("STPC").
+	 */
+	private static final int MAGIC = 0x53545043;
+
+	/**
+	 * The version of the cache file format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The number of bytes at each end of the data file included in the checksum.
+	 */
+	private static final int CHECKSUM_BYTES = 64 * 1024;
+
+	/**
+	 * The absolute path to the data file.
+	 */
+	private String path;
+
+	/**
+	 * The size of the data file in bytes.
+	 */
+	private long size;
+
+	/**
+	 * The time the data file was last modified.
+	 */
+	private long modified;
+
+	/**
+	 * The checksum of the ends of the data file.
+	 */
+	private long checksum;
+
+	/**
+	 * The class index requested when the data file was pre-processed, -1 if the last column was assumed.
+	 */
+	private int requestedClassIndex;
+
+	/**
+	 * The class index used.
+	 */
+	private int classIndex;
+
+	/**
+	 * The number of lines in the data file.
+	 */
+	private long lineCount;
+
+	/**
+	 * The number of rows of data in the data file.
+	 */
+	private long rows;
+
+	/**
+	 * The number of columns in the data file.
+	 */
+	private int columns;
+
+	/**
+	 * The number of attributes in the data file.
+	 */
+	private int attributeCount;
+
+	/**
+	 * The relation of the data file.
+	 */
+	private String relation;
+
+	/**
+	 * The attribute labels.
+	 */
+	private String[] attributeLabels;
+
+	/**
+	 * The class labels.
+	 */
+	private String[] classLabels;
+
+	/**
+	 * The class distribution.
+	 */
+	private long[] distribution;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Private constructor, used when reading a cache file.
+	 */
+	private PreprocessCache(){}
+
+	/**
+	 * Captures the pre-processing results stored in a file.
+	 * @param data the data file, fingerprinted before it was pre-processed.
+	 * @param size the size of the data file when fingerprinted.
+	 * @param modified the time the data file was last modified when fingerprinted.
+	 * @param checksum the checksum of the data file when fingerprinted.
+	 * @param requestedClassIndex the class index requested before pre-processing.
+	 * @param file the pre-processed file.
+	 */
+	public PreprocessCache(File data,long size,long modified,long checksum,int requestedClassIndex,IFile file)
+	{
+		this.path = data.getAbsolutePath();
+		this.size = size;
+		this.modified = modified;
+		this.checksum = checksum;
+		this.requestedClassIndex = requestedClassIndex;
+		this.classIndex = file.getClassIndex();
+		this.lineCount = file.getLineCount();
+		this.rows = file.getRows();
+		this.columns = file.getColumns();
+		this.attributeCount = file.getAttributeCount();
+		this.relation = file.getRelation() == null ? "" : file.getRelation();
+		this.attributeLabels = file.getAttributeLabels() == null ? new String[0] : file.getAttributeLabels();
+		this.classLabels = file.getClassLabels() == null ? new String[0] : file.getClassLabels();
+		this.distribution = file.getClassDistribution() == null ? new long[0] : file.getClassDistribution();
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Determines if these results belong to the data file in its current state.
+	 * @param data the data file.
+	 * @param requestedClassIndex the class index requested.
+	 * @return true if the results are still valid, else false.
+	 */
+	public boolean matches(File data,int requestedClassIndex)
+	{
+		return this.requestedClassIndex == requestedClassIndex && describes(data);
+	}
+
+	/**
+	 * Determines if these results describe the data file in its current state, whatever
+	 * class index is requested. The row and line counts can then be used, though the class
+	 * distribution may have been found for a different class attribute.
+	 * @param data the data file.
+	 * @return true if the file has not changed since these results were captured, else false.
+	 */
+	public boolean describes(File data)
+	{
+		if(!this.path.equals(data.getAbsolutePath()))
+			return false;
+
+		if(this.size != data.length() || this.modified != data.lastModified())
+			return false;
+
+		// Only read the file once the cheap checks have passed.
+		return this.checksum == checksum(data);
+	}
+
+	/**
+	 * Determines if rows have only been appended to the data file since these results
+	 * were captured, i.e. the file has grown, the bytes these results describe still have
+	 * the same checksum, and they end with a whole line. The bytes after {@link #getSize()}
+	 * can then be pre-processed on their own, and added to these results.
+	 * @param data the data file.
+	 * @param requestedClassIndex the class index requested.
+	 * @return true if rows have only been appended to the file, else false.
+	 */
+	public boolean isAppended(File data,int requestedClassIndex)
+	{
+		if(!this.path.equals(data.getAbsolutePath()) || this.requestedClassIndex != requestedClassIndex)
+			return false;
+
+		if(this.size <= 0 || this.size >= data.length())
+			return false;
+
+		if(this.checksum != checksum(data, this.size))
+			return false;
+
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(data, "r");
+
+			try
+			{
+				file.seek(this.size - 1);
+				int b = file.read();
+				return b == '\n' || b == '\r';
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Copies these results into a file, as though it had been pre-processed.
+	 * @param file the file to update.
+	 */
+	public void restore(IFile file)
+	{
+		file.setClassIndex(this.classIndex);
+		file.setLineCount(this.lineCount);
+		file.setRows(this.rows);
+		file.setColumns(this.columns);
+		file.setAttributeCount(this.attributeCount);
+		file.setRelation(this.relation);
+		file.setAttributeLabels(this.attributeLabels);
+		file.setClassLabels(this.classLabels);
+		file.setClassDistribution(this.distribution);
+	}
+
+	/**
+	 * Computes a CRC32 checksum of the first and last 64KB of a file.
+	 * @param data the file.
+	 * @return the checksum, or -1 if the file could not be read.
+	 */
+	public static long checksum(File data)
+	{
+		return checksum(data, data.length());
+	}
+
+	/**
+	 * Computes a CRC32 checksum of the first and last 64KB of the start of a file, as
+	 * though the file were only the specified length.
+	 * @param data the file.
+	 * @param length the number of bytes at the start of the file to checksum.
+	 * @return the checksum, or -1 if the file could not be read.
+	 */
+	public static long checksum(File data,long length)
+	{
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(data, "r");
+
+			try
+			{
+				CRC32 crc = new CRC32();
+				byte[] buffer = new byte[CHECKSUM_BYTES];
+
+				int read = (int)Math.min(CHECKSUM_BYTES, length);
+				file.readFully(buffer, 0, read);
+				crc.update(buffer, 0, read);
+
+				if(length > CHECKSUM_BYTES)
+				{
+					long start = Math.max(CHECKSUM_BYTES, length - CHECKSUM_BYTES);
+					read = (int)(length - start);
+					file.seek(start);
+					file.readFully(buffer, 0, read);
+					crc.update(buffer, 0, read);
+				}
+
+				return crc.getValue();
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return -1;}
+	}
+
+	/**
+	 * Writes these results to a cache file, overwriting any existing file.
+	 * @param cachePath the path to the cache file to write.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean write(String cachePath)
+	{
+		DataOutputStream out = null;
+
+		try
+		{
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(cachePath)));
+
+			try
+			{
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(path);
+				out.writeLong(size);
+				out.writeLong(modified);
+				out.writeLong(checksum);
+				out.writeInt(requestedClassIndex);
+				out.writeInt(classIndex);
+				out.writeLong(lineCount);
+				out.writeLong(rows);
+				out.writeInt(columns);
+				out.writeInt(attributeCount);
+				out.writeUTF(relation);
+				writeStrings(out, attributeLabels);
+				writeStrings(out, classLabels);
+
+				out.writeInt(distribution.length);
+				for(int i = 0; i < distribution.length; i++)
+					out.writeLong(distribution[i]);
+
+				return true;
+			}
+			finally{out.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads a cache file.
+	 * @param cachePath the path to the cache file to read.
+	 * @return the cached results, or null if the file does not exist or is not valid.
+	 */
+	public static PreprocessCache read(String cachePath)
+	{
+		File f = new File(cachePath);
+
+		if(!f.exists())
+			return null;
+
+		DataInputStream in = null;
+
+		try
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+
+			try
+			{
+				if(in.readInt() != MAGIC || in.readInt() != VERSION)
+					return null;
+
+				PreprocessCache cache = new PreprocessCache();
+				cache.path = in.readUTF();
+				cache.size = in.readLong();
+				cache.modified = in.readLong();
+				cache.checksum = in.readLong();
+				cache.requestedClassIndex = in.readInt();
+				cache.classIndex = in.readInt();
+				cache.lineCount = in.readLong();
+				cache.rows = in.readLong();
+				cache.columns = in.readInt();
+				cache.attributeCount = in.readInt();
+				cache.relation = in.readUTF();
+				cache.attributeLabels = readStrings(in);
+				cache.classLabels = readStrings(in);
+
+				int length = in.readInt();
+
+				if(length < 0 || length > cache.classLabels.length)
+					return null;
+
+				cache.distribution = new long[length];
+				for(int i = 0; i < length; i++)
+					cache.distribution[i] = in.readLong();
+
+				return cache;
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	/**
+	 * Writes a length prefixed array of strings to a stream.
+	 * @param out the stream to write to.
+	 * @param strings the strings to write.
+	 * @throws IOException if the strings cannot be written.
+	 */
+	private static void writeStrings(DataOutputStream out,String[] strings) throws IOException
+	{
+		out.writeInt(strings.length);
+
+		for(int i = 0; i < strings.length; i++)
+			out.writeUTF(strings[i]);
+	}
+
+	/**
+	 * Reads a length prefixed array of strings from a stream.
+	 * @param in the stream to read from.
+	 * @return the strings.
+	 * @throws IOException if the strings cannot be read, or the length is invalid.
+	 */
+	private static String[] readStrings(DataInputStream in) throws IOException
+	{
+		int length = in.readInt();
+
+		if(length < 0 || length > in.available())
+			throw new IOException("Invalid string array length: "+length);
+
+		String[] strings = new String[length];
+
+		for(int i = 0; i < length; i++)
+			strings[i] = in.readUTF();
+
+		return strings;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the size of the data file when these results were captured.
+	 */
+	public long getSize(){ return this.size; }
+
+	/**
+	 * @return the number of rows in the data file when these results were captured.
+	 */
+	public long getRows(){ return this.rows; }
+}
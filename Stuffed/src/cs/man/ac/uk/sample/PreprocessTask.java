@@ -0,0 +1,729 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	PreprocessTask.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+import cs.man.ac.uk.common.LongBitSet;
+
+/**
+ * The class PreprocessTask counts the lines, data rows and class labels in a region of
+ * a memory mapped data file. The region is described by a set of chunk boundaries, each
+ * of which falls immediately after a line terminator. If the region contains more than
+ * one chunk it is split in half, and the halves are counted in parallel on a fork-join
+ * pool, before their counts are merged. Rows are scanned byte by byte, so the only
+ * Strings created are for the distinct class labels found.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class PreprocessTask extends RecursiveTask<PreprocessTask.Counts>
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The default size of the chunks a file is split into (64MB).
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The initial size of the buffer used to count a stream (4MB).
+	 */
+	public static final int STREAM_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * Line type returned by {@link #lineType(ByteBuffer, int, int)} for an empty line.
+	 */
+	public static final int EMPTY = 0;
+
+	/**
+	 * Line type for a comment, i.e. a line beginning with '%' or ' '.
+	 */
+	public static final int COMMENT = 1;
+
+	/**
+	 * Line type for an ARFF @RELATION line.
+	 */
+	public static final int RELATION = 2;
+
+	/**
+	 * Line type for an ARFF @ATTRIBUTE line.
+	 */
+	public static final int ATTRIBUTE = 3;
+
+	/**
+	 * Line type for an ARFF @DATA line.
+	 */
+	public static final int DATA_HEADER = 4;
+
+	/**
+	 * Line type for a row of data.
+	 */
+	public static final int DATA = 5;
+
+	/**
+	 * The channel to the file being counted.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The byte offsets of the chunk boundaries in the file.
+	 */
+	private final long[] boundaries;
+
+	/**
+	 * The first chunk counted by this task.
+	 */
+	private final int lo;
+
+	/**
+	 * The chunk after the last chunk counted by this task.
+	 */
+	private final int hi;
+
+	/**
+	 * The index of the column containing the class label.
+	 */
+	private final int classIndex;
+
+	/**
+	 * If true the byte offset of each row is recorded.
+	 */
+	private final boolean recordOffsets;
+
+	/**
+	 * If true the positive rows are recorded.
+	 */
+	private final boolean recordClasses;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Creates a task to count chunks lo to hi-1.
+	 * @param channel the channel to the file being counted.
+	 * @param boundaries the byte offsets of the chunk boundaries, chunk i covers the bytes
+	 *        from boundaries[i] up to but not including boundaries[i+1].
+	 * @param lo the first chunk to count.
+	 * @param hi the chunk after the last chunk to count.
+	 * @param classIndex the index of the column containing the class label.
+	 */
+	public PreprocessTask(FileChannel channel,long[] boundaries,int lo,int hi,int classIndex)
+	{
+		this(channel, boundaries, lo, hi, classIndex, false);
+	}
+
+	/**
+	 * Creates a task to count chunks lo to hi-1.
+	 * @param channel the channel to the file being counted.
+	 * @param boundaries the byte offsets of the chunk boundaries, chunk i covers the bytes
+	 *        from boundaries[i] up to but not including boundaries[i+1].
+	 * @param lo the first chunk to count.
+	 * @param hi the chunk after the last chunk to count.
+	 * @param classIndex the index of the column containing the class label.
+	 * @param recordOffsets if true the byte offset of each row is recorded, see {@link Counts#offsets}.
+	 */
+	public PreprocessTask(FileChannel channel,long[] boundaries,int lo,int hi,int classIndex,boolean recordOffsets)
+	{
+		this(channel, boundaries, lo, hi, classIndex, recordOffsets, false);
+	}
+
+	/**
+	 * Creates a task to count chunks lo to hi-1.
+	 * @param channel the channel to the file being counted.
+	 * @param boundaries the byte offsets of the chunk boundaries, chunk i covers the bytes
+	 *        from boundaries[i] up to but not including boundaries[i+1].
+	 * @param lo the first chunk to count.
+	 * @param hi the chunk after the last chunk to count.
+	 * @param classIndex the index of the column containing the class label.
+	 * @param recordOffsets if true the byte offset of each row is recorded, see {@link Counts#offsets}.
+	 * @param recordClasses if true the positive rows are recorded, see {@link Counts#positives},
+	 *        so that meta data can be created in the same pass.
+	 */
+	public PreprocessTask(FileChannel channel,long[] boundaries,int lo,int hi,int classIndex,boolean recordOffsets,boolean recordClasses)
+	{
+		this.channel = channel;
+		this.boundaries = boundaries;
+		this.lo = lo;
+		this.hi = hi;
+		this.classIndex = classIndex;
+		this.recordOffsets = recordOffsets;
+		this.recordClasses = recordClasses;
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.RecursiveTask#compute()
+	 */
+	@Override
+	protected Counts compute()
+	{
+		if(hi - lo <= 1)
+		{
+			try { return scan(boundaries[lo], boundaries[hi]); }
+			catch (IOException e) { throw new RuntimeException(e); }
+		}
+
+		int mid = (lo + hi) >>> 1;
+		PreprocessTask left  = new PreprocessTask(channel, boundaries, lo, mid, classIndex, recordOffsets, recordClasses);
+		PreprocessTask right = new PreprocessTask(channel, boundaries, mid, hi, classIndex, recordOffsets, recordClasses);
+
+		left.fork();
+		Counts r = right.compute();
+		Counts l = left.join();
+
+		l.merge(r);
+		return l;
+	}
+
+	/**
+	 * Counts the lines, rows and class labels in a single chunk.
+	 * @param start the offset of the first byte in the chunk.
+	 * @param end the offset after the last byte in the chunk.
+	 * @return the counts for the chunk.
+	 * @throws IOException if the chunk cannot be mapped.
+	 */
+	private Counts scan(long start,long end) throws IOException
+	{
+		if(end <= start)
+			return new Counts();
+
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		return count(buffer, buffer.limit(), start);
+	}
+
+	/**
+	 * Counts the lines, rows and class labels read from a stream, such as the decompressed
+	 * contents of a compressed file, which cannot be mapped. The stream is read sequentially
+	 * into a buffer, one window of whole lines at a time. Row offsets are not recorded, as
+	 * they would not be offsets in the file.
+	 * @param in the stream to read, positioned at the first row of data.
+	 * @return the counts for the stream.
+	 * @throws IOException if the stream cannot be read.
+	 */
+	public Counts scan(InputStream in) throws IOException
+	{
+		Counts counts = new Counts();
+		byte[] bytes = new byte[STREAM_BUFFER_SIZE];
+		int filled = 0;
+		boolean eof = false;
+
+		while(true)
+		{
+			while(!eof && filled < bytes.length)
+			{
+				int read = in.read(bytes, filled, bytes.length - filled);
+
+				if(read < 0)
+					eof = true;
+				else
+					filled += read;
+			}
+
+			int end = eof ? filled : lastLineEnd(bytes, filled);
+
+			// A single line fills the buffer, so the buffer is grown.
+			if(end == 0 && !eof)
+			{
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+				continue;
+			}
+
+			counts.merge(count(ByteBuffer.wrap(bytes), end, 0));
+
+			if(eof)
+				return counts;
+
+			System.arraycopy(bytes, end, bytes, 0, filled - end);
+			filled -= end;
+		}
+	}
+
+	/**
+	 * Counts the lines, rows and class labels in a buffer of whole lines.
+	 * @param buffer the buffer containing the lines.
+	 * @param n the limit of the lines in the buffer.
+	 * @param start the offset in the file of the first byte in the buffer.
+	 * @return the counts for the buffer.
+	 */
+	private Counts count(ByteBuffer buffer,int n,long start)
+	{
+		Counts counts = new Counts();
+		int pos = 0;
+
+		while(pos < n)
+		{
+			int lineStart = pos;
+			pos = lineEnd(buffer, pos, n);
+			int lineEnd = pos;
+			pos = skipTerminator(buffer, pos, n);
+
+			int type = lineType(buffer, lineStart, lineEnd);
+
+			if(type == EMPTY)
+			{
+				counts.empty++;
+				continue;
+			}
+
+			counts.lines++;
+
+			if(type != DATA)
+				continue;
+
+			counts.rows++;
+
+			if(recordOffsets)
+				counts.addOffset(start + lineStart);
+
+			// Find the class column by counting commas.
+			int column = 0;
+			int tokenStart = lineStart;
+			int i = lineStart;
+
+			while(i < lineEnd && column < classIndex)
+			{
+				if(buffer.get(i) == ',')
+				{
+					column++;
+					tokenStart = i + 1;
+				}
+				i++;
+			}
+
+			if(column < classIndex)
+			{
+				counts.malformed++;
+				continue;
+			}
+
+			int tokenEnd = tokenStart;
+			while(tokenEnd < lineEnd && buffer.get(tokenEnd) != ',')
+				tokenEnd++;
+
+			counts.add(buffer, tokenStart, tokenEnd);
+
+			// Positive instances have a class label ending in '1', as in BaseEditor#createMetaDataBinary().
+			if(recordClasses && tokenEnd > tokenStart && buffer.get(tokenEnd-1) == '1')
+				counts.positives.set(counts.rows - 1);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Finds the end of the line beginning at the specified position.
+	 * @param buffer the buffer containing the line.
+	 * @param pos the position of the first byte in the line.
+	 * @param n the limit of the buffer.
+	 * @return the position of the line terminator, or n if the line is not terminated.
+	 */
+	public static int lineEnd(ByteBuffer buffer,int pos,int n)
+	{
+		while(pos < n)
+		{
+			byte b = buffer.get(pos);
+			if(b == '\n' | b == '\r')
+				break;
+			pos++;
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Finds the end of the last complete line in data read from a stream. A '\r' at the
+	 * very end of the data is not treated as a line terminator, as it may be the first
+	 * half of a "\r\n" terminator whose '\n' has not yet been read.
+	 * @param bytes the data read.
+	 * @param filled the number of bytes of data read.
+	 * @return the position after the last complete line, or 0 if there is no complete line.
+	 */
+	public static int lastLineEnd(byte[] bytes,int filled)
+	{
+		int end = filled;
+
+		if(end > 0 && bytes[end-1] == '\r')
+			end--;
+
+		while(end > 0 && bytes[end-1] != '\n' && bytes[end-1] != '\r')
+			end--;
+
+		return end;
+	}
+
+	/**
+	 * Skips the line terminator at the specified position, where a terminator is
+	 * one of "\n", "\r" or "\r\n".
+	 * @param buffer the buffer containing the line terminator.
+	 * @param pos the position of the line terminator.
+	 * @param n the limit of the buffer.
+	 * @return the position of the first byte of the next line.
+	 */
+	public static int skipTerminator(ByteBuffer buffer,int pos,int n)
+	{
+		if(pos >= n)
+			return pos;
+
+		if(buffer.get(pos) == '\r' && pos + 1 < n && buffer.get(pos+1) == '\n')
+			return pos + 2;
+
+		return pos + 1;
+	}
+
+	/**
+	 * Determines the type of a line, in the same way as the line based parsers in
+	 * {@link BaseEditor}, i.e. lines beginning with '%' or ' ' are comments, lines
+	 * beginning with @RELATION, @ATTRIBUTE or @DATA (in any case) are ARFF header lines,
+	 * and any other non-empty line is a row of data.
+	 * @param buffer the buffer containing the line.
+	 * @param start the position of the first byte in the line.
+	 * @param end the position after the last byte in the line.
+	 * @return the line type, one of {@link #EMPTY}, {@link #COMMENT}, {@link #RELATION},
+	 *         {@link #ATTRIBUTE}, {@link #DATA_HEADER} or {@link #DATA}.
+	 */
+	public static int lineType(ByteBuffer buffer,int start,int end)
+	{
+		if(end <= start)
+			return EMPTY;
+
+		byte first = buffer.get(start);
+
+		if(first == '%' | first == ' ')
+			return COMMENT;
+		else if(first != '@')
+			return DATA;
+		else if(startsWithIgnoreCase(buffer, start, end, "@RELATION"))
+			return RELATION;
+		else if(startsWithIgnoreCase(buffer, start, end, "@ATTRIBUTE"))
+			return ATTRIBUTE;
+		else if(startsWithIgnoreCase(buffer, start, end, "@DATA"))
+			return DATA_HEADER;
+		else
+			return DATA;
+	}
+
+	/**
+	 * Tests if the bytes in a buffer begin with the specified ASCII prefix, ignoring case.
+	 * @param buffer the buffer to test.
+	 * @param start the position of the first byte to test.
+	 * @param end the position after the last byte that may be tested.
+	 * @param prefix the upper case prefix to test for.
+	 * @return true if the bytes begin with the prefix, else false.
+	 */
+	private static boolean startsWithIgnoreCase(ByteBuffer buffer,int start,int end,String prefix)
+	{
+		if(end - start < prefix.length())
+			return false;
+
+		for(int i = 0; i < prefix.length(); i++)
+		{
+			int b = buffer.get(start+i);
+			if(b >= 'a' && b <= 'z')
+				b -= 'a' - 'A';
+
+			if(b != prefix.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Splits the region of a file into chunks of roughly the specified size, such that
+	 * each chunk boundary falls immediately after a line terminator.
+	 * @param channel the channel to the file.
+	 * @param start the offset at which the region begins.
+	 * @param end the offset at which the region ends.
+	 * @param chunkSize the approximate size of each chunk.
+	 * @return the chunk boundaries, beginning with start and ending with end.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static long[] getChunkBoundaries(FileChannel channel,long start,long end,int chunkSize) throws IOException
+	{
+		ArrayList<Long> boundaries = new ArrayList<Long>();
+		boundaries.add(start);
+
+		ByteBuffer window = ByteBuffer.allocate(8192);
+		long boundary = start + chunkSize;
+
+		while(boundary < end)
+		{
+			long next = -1;
+			long pos = boundary;
+
+			// Read forward from the tentative boundary until a line terminator is found.
+			while(next < 0 && pos < end)
+			{
+				window.clear();
+				int read = channel.read(window, pos);
+				if(read <= 0)
+					break;
+
+				for(int i = 0; i < read; i++)
+				{
+					byte b = window.get(i);
+
+					if(b == '\n')
+					{
+						next = pos + i + 1;
+						break;
+					}
+					else if(b == '\r')
+					{
+						if(i + 1 < read)
+							next = window.get(i+1) == '\n' ? pos + i + 2 : pos + i + 1;
+						else
+							next = pos + i + 1 + (isNewLine(channel, pos + i + 1, end) ? 1 : 0);
+						break;
+					}
+				}
+
+				pos += read;
+			}
+
+			if(next < 0 || next >= end)
+				break;
+
+			boundaries.add(next);
+			boundary = next + chunkSize;
+		}
+
+		boundaries.add(end);
+
+		long[] result = new long[boundaries.size()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = boundaries.get(i);
+
+		return result;
+	}
+
+	/**
+	 * Tests if the byte at the specified offset is a '\n' character.
+	 * @param channel the channel to the file.
+	 * @param pos the offset of the byte to test.
+	 * @param end the offset at which the file ends.
+	 * @return true if the byte is a '\n' character, else false.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static boolean isNewLine(FileChannel channel,long pos,long end) throws IOException
+	{
+		if(pos >= end)
+			return false;
+
+		ByteBuffer b = ByteBuffer.allocate(1);
+		return channel.read(b, pos) == 1 && b.get(0) == '\n';
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Counts
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The counts collected for one or more chunks of a file. Class labels are kept
+	 * in the order they were first seen, so that merging the counts of consecutive
+	 * chunks in file order preserves the order the labels appear in the file.
+	 */
+	public static class Counts
+	{
+		/**
+		 * The number of non-empty lines.
+		 */
+		public long lines = 0;
+
+		/**
+		 * The number of rows of data.
+		 */
+		public long rows = 0;
+
+		/**
+		 * The number of empty lines.
+		 */
+		public long empty = 0;
+
+		/**
+		 * The number of rows with too few columns to contain a class label.
+		 */
+		public long malformed = 0;
+
+		/**
+		 * The bytes of the class labels, in the order they were first seen.
+		 */
+		public ArrayList<byte[]> labels = new ArrayList<byte[]>();
+
+		/**
+		 * The number of rows with each class label.
+		 */
+		public long[] distribution = new long[4];
+
+		/**
+		 * The byte offset of the first byte of each row, in file order, if recorded.
+		 */
+		public long[] offsets = new long[0];
+
+		/**
+		 * The number of offsets recorded.
+		 */
+		public int offsetCount = 0;
+
+		/**
+		 * Flag that when true indicates there were too many rows to record every offset
+		 * in an array, so none are recorded.
+		 */
+		public boolean offsetsDropped = false;
+
+		/**
+		 * The positive rows, if recorded, bit i-1 being set if row i is positive. Rows are
+		 * relative to the first row counted, until merged into the counts of the preceding
+		 * chunks. Every other row is negative.
+		 */
+		public LongBitSet positives = new LongBitSet();
+
+		/**
+		 * Increments the count for the class label stored in a buffer.
+		 * @param buffer the buffer containing the class label.
+		 * @param start the position of the first byte of the label.
+		 * @param end the position after the last byte of the label.
+		 */
+		void add(ByteBuffer buffer,int start,int end)
+		{
+			int length = end - start;
+
+			for(int i = 0; i < labels.size(); i++)
+			{
+				byte[] label = labels.get(i);
+
+				if(label.length != length)
+					continue;
+
+				int j = 0;
+				while(j < length && label[j] == buffer.get(start+j))
+					j++;
+
+				if(j == length)
+				{
+					distribution[i]++;
+					return;
+				}
+			}
+
+			byte[] label = new byte[length];
+			for(int j = 0; j < length; j++)
+				label[j] = buffer.get(start+j);
+
+			add(label, 1);
+		}
+
+		/**
+		 * Adds a count to the specified class label.
+		 * @param label the bytes of the class label.
+		 * @param count the count to add.
+		 */
+		void add(byte[] label,long count)
+		{
+			for(int i = 0; i < labels.size(); i++)
+				if(Arrays.equals(labels.get(i), label))
+				{
+					distribution[i] += count;
+					return;
+				}
+
+			if(labels.size() == distribution.length)
+				distribution = Arrays.copyOf(distribution, distribution.length * 2);
+
+			distribution[labels.size()] = count;
+			labels.add(label);
+		}
+
+		/**
+		 * Merges the counts for the chunks following those counted here.
+		 * @param next the counts of the following chunks.
+		 */
+		void merge(Counts next)
+		{
+			// The rows of the following chunks are numbered after the rows counted here.
+			positives.or(next.positives, rows);
+
+			lines     += next.lines;
+			rows      += next.rows;
+			empty     += next.empty;
+			malformed += next.malformed;
+
+			for(int i = 0; i < next.labels.size(); i++)
+				add(next.labels.get(i), next.distribution[i]);
+
+			if(offsetsDropped || next.offsetsDropped || (long)offsetCount + next.offsetCount > IndexSelector.MAX_INDEXES)
+			{
+				offsetsDropped = true;
+				offsets = new long[0];
+				offsetCount = 0;
+			}
+			else if(next.offsetCount > 0)
+			{
+				if(offsets.length < offsetCount + next.offsetCount)
+					offsets = Arrays.copyOf(offsets, offsetCount + next.offsetCount);
+
+				System.arraycopy(next.offsets, 0, offsets, offsetCount, next.offsetCount);
+				offsetCount += next.offsetCount;
+			}
+		}
+
+		/**
+		 * Records the byte offset of a row.
+		 * @param offset the offset of the first byte of the row.
+		 */
+		void addOffset(long offset)
+		{
+			if(offsetCount == offsets.length)
+				offsets = Arrays.copyOf(offsets, Math.max(1024, offsets.length * 2));
+
+			offsets[offsetCount++] = offset;
+		}
+	}
+}
@@ -0,0 +1,380 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	RowIndex.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The class RowIndex holds the byte offset of every row of data in a file, so that
+ * individual rows can be read directly, without reading the rows before them. The
+ * offsets are stored in a sidecar file next to the data file, which is memory mapped
+ * when read, so the offsets are never copied onto the heap. Files of more than 2GB are
+ * mapped in pages, so the number of rows indexed is not limited to what a single mapping
+ * can hold. The file is made up of big-endian values as follows:
+ *
+ * <ol>
+ * <li>the magic number 0x53545249 ("STRI").</li>
+ * <li>the format version.</li>
+ * <li>the size of the data file when indexed.</li>
+ * <li>the time the data file was last modified when indexed.</li>
+ * <li>the number of rows r, as a 64 bit integer.</li>
+ * <li>r 64 bit offsets, the offset of row i (1-based) being at position i-1.</li>
+ * </ol>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class RowIndex
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to row index files, this replaces the data file extension.
+	 */
+	public static final String EXTENSION = ".rows.index";
+
+	/**
+	 * The magic number at the start of a row index file ("STRI").
+	 */
+	private static final int MAGIC = 0x53545249;
+
+	/**
+	 * The version of the row index format.
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * The size of the header in bytes.
+	 */
+	private static final int HEADER_SIZE = 32;
+
+	/**
+	 * The number of offsets written at a time.
+	 */
+	private static final int WRITE_BLOCK = 128 * 1024;
+
+	/**
+	 * The number of offsets mapped in a page is 2^PAGE_BITS, i.e. 1GB per page.
+	 */
+	private static final int PAGE_BITS = 27;
+
+	/**
+	 * Masks the position of an offset within its page.
+	 */
+	private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+	/**
+	 * The size of the data file when indexed.
+	 */
+	private long size;
+
+	/**
+	 * The time the data file was last modified when indexed.
+	 */
+	private long modified;
+
+	/**
+	 * The number of rows indexed.
+	 */
+	private long rows;
+
+	/**
+	 * The pages of row offsets.
+	 */
+	private LongBuffer[] offsets;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param size the size of the data file when indexed.
+	 * @param modified the time the data file was last modified when indexed.
+	 * @param rows the number of rows indexed.
+	 * @param offsets the pages of row offsets.
+	 */
+	private RowIndex(long size,long modified,long rows,LongBuffer[] offsets)
+	{
+		this.size = size;
+		this.modified = modified;
+		this.rows = rows;
+		this.offsets = offsets;
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Determines if this index belongs to the data file in its current state.
+	 * @param data the data file.
+	 * @return true if the index is still valid, else false.
+	 */
+	public boolean matches(File data)
+	{
+		return this.size == data.length() && this.modified == data.lastModified();
+	}
+
+	/**
+	 * Writes a row index file, overwriting any existing file.
+	 * @param path the path to the file to write.
+	 * @param offsets the row offsets.
+	 * @param count the number of offsets to write.
+	 * @param size the size of the data file when indexed.
+	 * @param modified the time the data file was last modified when indexed.
+	 * @return true if written successfully, else false.
+	 */
+	public static boolean write(String path,long[] offsets,int count,long size,long modified)
+	{
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				channel.truncate(0);
+
+				ByteBuffer buffer = ByteBuffer.allocate(Math.max(HEADER_SIZE, Math.min(count, WRITE_BLOCK) * 8));
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(modified).putLong(count);
+				buffer.flip();
+
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+
+				for(int i = 0; i < count; i += WRITE_BLOCK)
+				{
+					int length = Math.min(WRITE_BLOCK, count - i);
+
+					buffer.clear();
+					buffer.asLongBuffer().put(offsets, i, length);
+					buffer.limit(length * 8);
+
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+				}
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Extends a row index file in place, to index rows appended to the end of the data
+	 * file. The offsets of the appended rows are written after the existing offsets, then
+	 * the header is updated, so the cost is proportional to the number of rows appended.
+	 * @param path the path to the file to extend.
+	 * @param offsets the offsets of the appended rows.
+	 * @param count the number of offsets to write.
+	 * @param previousSize the size of the data file before rows were appended.
+	 * @param previousRows the number of rows in the data file before rows were appended.
+	 * @param size the size of the data file when indexed.
+	 * @param modified the time the data file was last modified when indexed.
+	 * @return true if extended successfully, else false if the index does not describe the data file before rows were appended, or can't be written.
+	 */
+	public static boolean append(String path,long[] offsets,int count,long previousSize,long previousRows,long size,long modified)
+	{
+		if(!describes(path, previousSize, previousRows))
+			return false;
+
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(Math.max(HEADER_SIZE, Math.min(count, WRITE_BLOCK) * 8));
+				long position = HEADER_SIZE + previousRows * 8;
+
+				for(int i = 0; i < count; i += WRITE_BLOCK)
+				{
+					int length = Math.min(WRITE_BLOCK, count - i);
+
+					buffer.clear();
+					buffer.asLongBuffer().put(offsets, i, length);
+					buffer.limit(length * 8);
+
+					while(buffer.hasRemaining())
+						position += channel.write(buffer, position);
+				}
+
+				// The header is written last, so it only describes the new rows once they are written.
+				buffer.clear();
+				buffer.putLong(size).putLong(modified).putLong(previousRows + count);
+				buffer.flip();
+
+				position = 8;
+				while(buffer.hasRemaining())
+					position += channel.write(buffer, position);
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Determines if a row index file describes a data file of a given size and number of
+	 * rows, reading only its header.
+	 * @param path the path to the file to check.
+	 * @param size the size of the data file.
+	 * @param rows the number of rows in the data file.
+	 * @return true if the file is a valid index of that many rows, of a data file of that size, else false.
+	 */
+	public static boolean describes(String path,long size,long rows)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return false;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+
+				while(buffer.hasRemaining())
+					if(channel.read(buffer) < 0)
+						return false;
+
+				buffer.flip();
+
+				if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != size)
+					return false;
+
+				buffer.getLong();
+
+				return buffer.getLong() == rows && channel.size() == HEADER_SIZE + rows * 8;
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads a row index file.
+	 * @param path the path to the file to read.
+	 * @return the row index, or null if the file does not exist or is not valid.
+	 */
+	public static RowIndex read(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return null;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+
+				if(channel.size() < HEADER_SIZE)
+					return null;
+
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+				if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+					return null;
+
+				long size = buffer.getLong();
+				long modified = buffer.getLong();
+				long count = buffer.getLong();
+
+				if(count < 0 || count * 8 != channel.size() - HEADER_SIZE)
+					return null;
+
+				LongBuffer[] offsets = new LongBuffer[(int)((count + PAGE_MASK) >>> PAGE_BITS)];
+
+				for(int p = 0; p < offsets.length; p++)
+				{
+					long first = (long)p << PAGE_BITS;
+					long length = Math.min(PAGE_MASK + 1, count - first);
+					offsets[p] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * 8, length * 8).asLongBuffer();
+				}
+
+				return new RowIndex(size, modified, count, offsets);
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param row the 1-based index of a row.
+	 * @return the byte offset of the first byte of the row.
+	 */
+	public long getOffset(long row){ return offsets[(int)((row-1) >>> PAGE_BITS)].get((int)((row-1) & PAGE_MASK)); }
+
+	/**
+	 * @return the number of rows indexed.
+	 */
+	public long getRows(){ return this.rows; }
+
+	/**
+	 * @return the size of the data file when indexed.
+	 */
+	public long getSize(){ return this.size; }
+}
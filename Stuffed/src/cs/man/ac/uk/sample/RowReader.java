@@ -0,0 +1,672 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	RowReader.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import cs.man.ac.uk.io.Reader;
+import cs.man.ac.uk.io.WriterHandle;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * The class RowReader reads the rows of data in a CSV or ARFF file directly from the
+ * bytes of the file, without creating a String for each row. The file is memory mapped
+ * in newline aligned windows, and each row is located as a slice of the current window.
+ * Only the position of the class label in the row is found, so that a row can then be
+ * copied to an output file untouched, with only the class label replaced if required,
+ * or parsed straight into a weka instance.
+ * Lines are classified in the same way as {@link PreprocessTask#lineType(ByteBuffer, int, int)},
+ * so comments, ARFF header lines and empty lines are skipped.
+ *
+ * <P>Given a {@link RowIndex}, a reader can instead read only the rows requested, in
+ * ascending order, using positioned reads. Rows close together in the file are served
+ * from the same block read, so the amount read is proportional to the number of rows
+ * requested rather than the size of the file.</p>
+ *
+ * <P>Compressed files, see {@link Reader#isCompressed(String)}, cannot be mapped. They are
+ * instead decompressed as they are read, into a buffer holding a window of whole lines.
+ * Rows can be read from any other stream in the same way.</p>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class RowReader
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The bytes written after the features of a row with an unknown class label.
+	 */
+	private static final byte[] UNLABELLED = { '?', '\n' };
+
+	/**
+	 * The bytes written at the end of a row.
+	 */
+	private static final byte[] NEW_LINE = { '\n' };
+
+	/**
+	 * The minimum number of bytes read at a time when reading indexed rows.
+	 */
+	private static final int READ_BLOCK = 64 * 1024;
+
+	/**
+	 * The stream used to open the file channel.
+	 */
+	private FileInputStream stream = null;
+
+	/**
+	 * The channel to the file being read.
+	 */
+	private FileChannel channel = null;
+
+	/**
+	 * The decompressed contents of the file, if the file is compressed, else null.
+	 */
+	private InputStream input = null;
+
+	/**
+	 * The number of bytes of decompressed data in the buffer, the bytes from n up
+	 * to this point are the start of a line not yet completely read.
+	 */
+	private int filled = 0;
+
+	/**
+	 * Flag that when true indicates all of the decompressed data has been read.
+	 */
+	private boolean eof = false;
+
+	/**
+	 * The offsets of the windows of the file, each beginning immediately after a line terminator.
+	 */
+	private long[] boundaries;
+
+	/**
+	 * The index of the window currently mapped.
+	 */
+	private int window = -1;
+
+	/**
+	 * The window currently mapped, or the block last read when reading indexed rows.
+	 */
+	private ByteBuffer buffer = null;
+
+	/**
+	 * The offset in the file of the first byte of the block last read.
+	 */
+	private long bufferStart = 0;
+
+	/**
+	 * The row index used to read only the requested rows, or null if reading every row.
+	 */
+	private RowIndex index = null;
+
+	/**
+	 * The 1-based indexes of the rows to read, in ascending order, when reading indexed rows.
+	 */
+	private long[] requested = null;
+
+	/**
+	 * The position in the requested rows of the next row to read.
+	 */
+	private int nextRequested = 0;
+
+	/**
+	 * The size of the file being read.
+	 */
+	private long fileSize = 0;
+
+	/**
+	 * A view of the window, used to pass slices of it to an output file.
+	 */
+	private ByteBuffer view = null;
+
+	/**
+	 * The position of the next line in the window.
+	 */
+	private int pos = 0;
+
+	/**
+	 * The limit of the window.
+	 */
+	private int n = 0;
+
+	/**
+	 * The index of the class label column.
+	 */
+	private final int classIndex;
+
+	/**
+	 * The number of rows read so far.
+	 */
+	private long rows = 0;
+
+	/**
+	 * The position of the first byte of the current row.
+	 */
+	private int rowStart;
+
+	/**
+	 * The position after the last byte of the current row, excluding the line terminator.
+	 */
+	private int rowEnd;
+
+	/**
+	 * The position of the first byte of the class label in the current row.
+	 */
+	private int classStart;
+
+	/**
+	 * The position after the last byte of the class label in the current row.
+	 */
+	private int classEnd;
+
+	/**
+	 * The position of the last comma in the current row.
+	 */
+	private int lastComma;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Opens a file for reading, using windows of the default size.
+	 * @param path the path to the file to read.
+	 * @param classIndex the index of the class label column.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public RowReader(String path,int classIndex) throws IOException
+	{
+		this(path, classIndex, PreprocessTask.DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Opens a file for reading.
+	 * @param path the path to the file to read.
+	 * @param classIndex the index of the class label column.
+	 * @param windowSize the approximate size of each mapped window of the file.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public RowReader(String path,int classIndex,int windowSize) throws IOException
+	{
+		this.classIndex = classIndex;
+
+		if(Reader.isCompressed(path))
+		{
+			this.input = Reader.openStream(path);
+			this.buffer = ByteBuffer.wrap(new byte[Math.min(windowSize, PreprocessTask.STREAM_BUFFER_SIZE)]);
+			return;
+		}
+
+		this.stream = new FileInputStream(path);
+
+		try
+		{
+			this.channel = stream.getChannel();
+			this.boundaries = PreprocessTask.getChunkBoundaries(channel, 0, channel.size(), windowSize);
+		}
+		catch(IOException e){ close(); throw e; }
+	}
+
+	/**
+	 * Reads rows from a stream, such as the concatenated shards of a data set, see
+	 * {@link cs.man.ac.uk.io.ShardInputStream}. The stream is read in windows of whole
+	 * lines, as for a compressed file, and is closed when the reader is closed.
+	 * @param input the stream to read.
+	 * @param classIndex the index of the class label column.
+	 */
+	public RowReader(InputStream input,int classIndex)
+	{
+		this.classIndex = classIndex;
+		this.input = input;
+		this.buffer = ByteBuffer.wrap(new byte[PreprocessTask.STREAM_BUFFER_SIZE]);
+	}
+
+	/**
+	 * Opens a file for reading only the requested rows, located using a row index.
+	 * @param path the path to the file to read.
+	 * @param classIndex the index of the class label column.
+	 * @param index the row index for the file.
+	 * @param requested the 1-based indexes of the rows to read, in ascending order.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public RowReader(String path,int classIndex,RowIndex index,long[] requested) throws IOException
+	{
+		this.classIndex = classIndex;
+		this.index = index;
+		this.requested = requested;
+		this.stream = new FileInputStream(path);
+
+		try
+		{
+			this.channel = stream.getChannel();
+			this.fileSize = channel.size();
+		}
+		catch(IOException e){ close(); throw e; }
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Moves to the next row of data in the file.
+	 * @return true if there is another row, else false if the end of the file has been reached.
+	 * @throws IOException if the file cannot be read, or the row does not contain a class label.
+	 */
+	public boolean next() throws IOException
+	{
+		if(index != null)
+			return nextRequested();
+
+		while(true)
+		{
+			while(pos >= n)
+			{
+				if(input != null)
+				{
+					if(!fill())
+						return false;
+
+					continue;
+				}
+
+				if(window + 2 >= boundaries.length)
+					return false;
+
+				window++;
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[window], boundaries[window+1] - boundaries[window]);
+				view = buffer.duplicate();
+				pos = 0;
+				n = buffer.limit();
+			}
+
+			int lineStart = pos;
+			pos = PreprocessTask.lineEnd(buffer, pos, n);
+			int lineEnd = pos;
+			pos = PreprocessTask.skipTerminator(buffer, pos, n);
+
+			if(PreprocessTask.lineType(buffer, lineStart, lineEnd) != PreprocessTask.DATA)
+				continue;
+
+			rows++;
+			locate(lineStart, lineEnd);
+			return true;
+		}
+	}
+
+	/**
+	 * Reads the next window of decompressed data into the buffer, keeping any partial line
+	 * left at the end of the last window. The window ends after the last line terminator
+	 * read, unless the end of the data has been reached. If a single line does not fit in
+	 * the buffer, the buffer is grown.
+	 * @return true if the window contains data, else false.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private boolean fill() throws IOException
+	{
+		byte[] bytes = buffer.array();
+		int leftover = filled - n;
+
+		if(eof && leftover == 0)
+			return false;
+
+		System.arraycopy(bytes, n, bytes, 0, leftover);
+		filled = leftover;
+		pos = 0;
+		n = 0;
+
+		while(true)
+		{
+			while(!eof && filled < bytes.length)
+			{
+				int read = input.read(bytes, filled, bytes.length - filled);
+
+				if(read < 0)
+					eof = true;
+				else
+					filled += read;
+			}
+
+			if(eof)
+			{
+				n = filled;
+				break;
+			}
+
+			int end = PreprocessTask.lastLineEnd(bytes, filled);
+
+			if(end > 0)
+			{
+				n = end;
+				break;
+			}
+
+			bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			buffer = ByteBuffer.wrap(bytes);
+		}
+
+		view = buffer.duplicate();
+		return n > 0;
+	}
+
+	/**
+	 * Moves to the next requested row, reading a new block of the file if the row
+	 * is not in the block last read.
+	 * @return true if there is another requested row, else false.
+	 * @throws IOException if the file cannot be read, or the row does not contain a class label.
+	 */
+	private boolean nextRequested() throws IOException
+	{
+		if(nextRequested >= requested.length)
+			return false;
+
+		long row = requested[nextRequested++];
+		long start = index.getOffset(row);
+		long end = row < index.getRows() ? index.getOffset(row+1) : fileSize;
+
+		if(start < bufferStart || end > bufferStart + n)
+		{
+			int length = (int)Math.min(Math.max(end - start, READ_BLOCK), fileSize - start);
+
+			if(buffer == null || buffer.capacity() < length)
+				buffer = ByteBuffer.allocateDirect(Math.max(length, READ_BLOCK));
+
+			buffer.clear();
+			buffer.limit(length);
+
+			while(buffer.hasRemaining())
+				if(channel.read(buffer, start + buffer.position()) < 0)
+					break;
+
+			buffer.flip();
+			view = buffer.duplicate();
+			bufferStart = start;
+			n = buffer.limit();
+		}
+
+		int lineStart = (int)(start - bufferStart);
+		int lineEnd = PreprocessTask.lineEnd(buffer, lineStart, (int)Math.min(n, end - bufferStart));
+
+		rows = row;
+		locate(lineStart, lineEnd);
+		return true;
+	}
+
+	/**
+	 * Finds the class label and the last comma in a row.
+	 * @param lineStart the position of the first byte of the row.
+	 * @param lineEnd the position after the last byte of the row.
+	 * @throws IOException if the row does not contain a class label.
+	 */
+	private void locate(int lineStart,int lineEnd) throws IOException
+	{
+		rowStart = lineStart;
+		rowEnd = lineEnd;
+		lastComma = -1;
+
+		// Find the class column by counting commas, and the last comma.
+		int column = 0;
+		classStart = -1;
+
+		if(classIndex == 0)
+			classStart = lineStart;
+
+		for(int i = lineStart; i < lineEnd; i++)
+		{
+			if(buffer.get(i) == ',')
+			{
+				lastComma = i;
+				column++;
+
+				if(column == classIndex)
+					classStart = i + 1;
+				else if(column == classIndex + 1)
+					classEnd = i;
+			}
+		}
+
+		if(column == classIndex)
+			classEnd = lineEnd;
+
+		if(classStart < 0 | lastComma < 0)
+			throw new IOException("Row "+rows+" does not contain a class label at index "+classIndex);
+	}
+
+	/**
+	 * @param b the byte to test for.
+	 * @return true if the class label of the current row ends with the byte, else false.
+	 */
+	public boolean classEndsWith(byte b)
+	{
+		return classEnd > classStart && buffer.get(classEnd-1) == b;
+	}
+
+	/**
+	 * @param b the byte to test for.
+	 * @return true if the class label of the current row contains the byte, else false.
+	 */
+	public boolean classContains(byte b)
+	{
+		for(int i = classStart; i < classEnd; i++)
+			if(buffer.get(i) == b)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Writes the current row to an output file. Everything up to and including the last
+	 * comma is copied untouched, followed by the class label and a new line.
+	 * @param out the output file.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean writeRow(WriterHandle out)
+	{
+		return copy(out, rowStart, lastComma + 1) & copy(out, classStart, classEnd) & out.append(NEW_LINE, 0, 1);
+	}
+
+	/**
+	 * Writes the current row to an output file, with its class label replaced by '?'.
+	 * Everything up to and including the last comma is copied untouched.
+	 * @param out the output file.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean writeUnlabelledRow(WriterHandle out)
+	{
+		return copy(out, rowStart, lastComma + 1) & out.append(UNLABELLED, 0, 2);
+	}
+
+	/**
+	 * Parses the current row into an instance of a data set, giving the same values as
+	 * would be read from the row written by {@link #writeRow(WriterHandle)}, or by
+	 * {@link #writeUnlabelledRow(WriterHandle)} if the instance is not labelled. Values are
+	 * parsed straight from the bytes of the row, so the row is never written out.
+	 * @param header the data set the instance belongs to, its last attribute is the class.
+	 * @param labelled if false the class value of the instance is missing.
+	 * @return the instance, with its data set set to the header.
+	 * @throws IOException if the row does not match the attributes of the header.
+	 */
+	public Instance toInstance(Instances header,boolean labelled) throws IOException
+	{
+		int attributes = header.numAttributes();
+		double[] values = new double[attributes];
+
+		int a = 0;
+		int start = rowStart;
+
+		for(int i = rowStart; i <= lastComma; i++)
+		{
+			if(buffer.get(i) == ',')
+			{
+				if(a >= attributes - 1)
+					throw new IOException("Row "+rows+" has more values than the "+attributes+" attributes in the header");
+
+				values[a] = parse(header.attribute(a), start, i);
+				a++;
+				start = i + 1;
+			}
+		}
+
+		if(a != attributes - 1)
+			throw new IOException("Row "+rows+" has fewer values than the "+attributes+" attributes in the header");
+
+		values[a] = labelled ? parse(header.attribute(a), classStart, classEnd) : Utils.missingValue();
+
+		Instance instance = new DenseInstance(1.0, values);
+		instance.setDataset(header);
+		return instance;
+	}
+
+	/**
+	 * Parses a single value of the current row, ignoring surrounding white space and quotes.
+	 * @param attribute the attribute the value belongs to.
+	 * @param start the position of the first byte of the value.
+	 * @param end the position after the last byte of the value.
+	 * @return the internal weka representation of the value.
+	 * @throws IOException if the value is not valid for the attribute.
+	 */
+	private double parse(Attribute attribute,int start,int end) throws IOException
+	{
+		while(start < end && buffer.get(start) <= ' ')
+			start++;
+
+		while(end > start && buffer.get(end-1) <= ' ')
+			end--;
+
+		if(end - start == 1 && buffer.get(start) == '?')
+			return Utils.missingValue();
+
+		byte quote = start < end ? buffer.get(start) : 0;
+
+		if(end - start > 1 && (quote == '\'' | quote == '"') && buffer.get(end-1) == quote)
+		{
+			start++;
+			end--;
+		}
+
+		byte[] bytes = new byte[end - start];
+
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start+i);
+
+		String value = new String(bytes);
+
+		if(attribute.isNumeric())
+		{
+			try { return Double.parseDouble(value); }
+			catch(NumberFormatException e){ throw new IOException("Row "+rows+" has the non-numeric value "+value+" for attribute "+attribute.name()); }
+		}
+		else if(attribute.isNominal())
+		{
+			int index = attribute.indexOfValue(value);
+
+			if(index < 0)
+				throw new IOException("Row "+rows+" has the undeclared value "+value+" for attribute "+attribute.name());
+
+			return index;
+		}
+		else if(attribute.isString())
+			return attribute.addStringValue(value);
+		else if(attribute.isDate())
+		{
+			try { return attribute.parseDate(value); }
+			catch(ParseException e){ throw new IOException("Row "+rows+" has the invalid date "+value+" for attribute "+attribute.name()); }
+		}
+		else
+			throw new IOException("Attribute "+attribute.name()+" is of a type that cannot be parsed");
+	}
+
+	/**
+	 * Copies a slice of the current window to an output file.
+	 * @param out the output file.
+	 * @param start the position of the first byte to copy.
+	 * @param end the position after the last byte to copy.
+	 * @return true if written successfully, else false.
+	 */
+	private boolean copy(WriterHandle out,int start,int end)
+	{
+		view.limit(end);
+		view.position(start);
+		return out.append(view);
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public void close()
+	{
+		try { if(stream != null) stream.close(); } catch (IOException e) {}
+		try { if(input != null) input.close(); } catch (IOException e) {}
+		stream = null;
+		input = null;
+		channel = null;
+		buffer = null;
+		view = null;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of rows read so far, i.e. the 1-based index of the current row.
+	 */
+	public long getRows(){ return this.rows; }
+
+	/**
+	 * @return the class label of the current row, this creates a new String.
+	 */
+	public String getClassLabel()
+	{
+		byte[] label = new byte[classEnd - classStart];
+
+		for(int i = 0; i < label.length; i++)
+			label[i] = buffer.get(classStart+i);
+
+		return new String(label);
+	}
+}
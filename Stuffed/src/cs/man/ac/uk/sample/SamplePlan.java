@@ -0,0 +1,280 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	SamplePlan.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+/**
+ * The class SamplePlan computes the number of positive and negative instances that
+ * should end up in the training and test sets produced by a sampling run, given the
+ * class distribution of the file being sampled and the sampling parameters requested
+ * by the user. The inferred parameters are:
+ *
+ * <ul>
+ * <li>K_train   = the ratio of positive to negative in the training set.</li>
+ * <li>P_train   = the number of positives we want in the training set.</li>
+ * <li>N_train   = the number of negatives required in the training set.</li>
+ * <li>K_test    = the ratio of positive to negative in the test set.</li>
+ * <li>P_test    = the number of positives in the test set.</li>
+ * <li>N_test    = the number of negatives required in the test set.</li>
+ * </ul>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class SamplePlan
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The total number of negatives in the file being sampled.
+	 */
+	public final long N_tot;
+
+	/**
+	 * The total number of positives in the file being sampled.
+	 */
+	public final long P_tot;
+
+	/**
+	 * The ratio of positive to negative in the training set.
+	 */
+	public final double K_train;
+
+	/**
+	 * The number of positives we want in the training set.
+	 */
+	public final long P_train;
+
+	/**
+	 * The number of negatives required in the training set.
+	 */
+	public final long N_train;
+
+	/**
+	 * The maximum allowable size of the training set.
+	 */
+	public final long MAX_train;
+
+	/**
+	 * The ratio of positive to negative in the test set.
+	 */
+	public final double K_test;
+
+	/**
+	 * The number of positives in the test set.
+	 */
+	public final long P_test;
+
+	/**
+	 * The number of negatives required in the test set.
+	 */
+	public final long N_test;
+
+	/**
+	 * The maximum allowable size of the test set.
+	 */
+	public final long MAX_test;
+
+	/**
+	 * The proportion of the test set which should be labelled.
+	 */
+	public final double labelling;
+
+	/**
+	 * The total number of test instances which should be labelled.
+	 */
+	public final long INSTANCES_TO_LABEL;
+
+	/**
+	 * The total number of test instances which should remain unlabelled.
+	 */
+	public final long INSTANCES_TO_NOT_LABEL;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor, computes the sampling parameters and logs them to
+	 * the log file belonging to the supplied file.
+	 * @param file the pre-processed file being sampled.
+	 * @param negTrainSamples the number of negative samples to include in the training set.
+	 * @param posTrainSamples the number of positive samples to include in the training set.
+	 * @param trainingSetBalance the class balance desired in the training set.
+	 * @param testSetBalance the class balance desired in the test set.
+	 * @param labelling the ratio of labelled data to aim for.
+	 */
+	public SamplePlan(IFile file,int negTrainSamples,int posTrainSamples,double trainingSetBalance,double testSetBalance,double labelling)
+	{
+		this.N_tot = file.getClassDistribution()[0];
+		this.P_tot = file.getClassDistribution()[1];
+		this.labelling = labelling;
+
+		file.log("Positive samples required in training set: "+posTrainSamples+"\n");
+		file.log("Training set balance: "+trainingSetBalance+"\n");
+		file.log("Test set balance: "+testSetBalance+"\n");
+		file.log("Total positive instances: "+P_tot+"\n");
+		file.log("Total negative instances: "+N_tot+"\n");
+
+		// TRAINING SET
+
+		file.log("Inferred Parameters -"+"\n");
+		// K_train   = the ratio of positive to negative in the training set, i.e. K_train = P_train / N_train .
+		this.K_train = trainingSetBalance;
+		file.log("K_train = " + K_train + "\t- the ratio of positive to negative in the training set.\n");
+
+		// P_train   = the number of positives we want in the training set.
+		this.P_train = posTrainSamples;
+		file.log("P_train = " + P_train + "\t- the number of positives we want in the training set.\n");
+
+		// N_train   = the number of negatives required in the training set, i.e. N_train = P_train / K_train .
+		long nTrain = (long) ( (double) P_train / K_train);
+		if(nTrain==0)
+			nTrain=negTrainSamples;
+		this.N_train = nTrain;
+		file.log("N_train = " + N_train + "\t- the number of negatives required in the training set.\n");
+
+		// MAX_train = the maximum allowable size of the training set, i.e. MAX_train = ( P_train / K_train ) + P_train .
+		this.MAX_train = N_train + P_train;
+		file.log("MAX_train = " + MAX_train  + "\t- maximum allowable size of the training set.\n");
+
+		// TEST SET
+
+		// K_test    = the ratio of positive to negative in the test set, i.e. K_test = P_test / N_test
+		this.K_test = testSetBalance;
+		file.log("K_test = " + K_test + "\t- the ratio of positive to negative in the test set.\n");
+		// P_test    = the number of positives in the test set, P_test = P_tot - P_train .
+		long pTest = P_tot - P_train;
+		file.log("P_test = " + pTest + "\t- the number of positives in the test set.\n");
+
+		// N_test    = the number of negatives required in the test set, i.e. N_test = P_test / K_test .
+		long nTest = (long) ( (double) pTest / K_test);
+		file.log("N_test = " + nTest + "\t- the number of negatives required in the test set.\n");
+
+		if(nTest > (N_tot-N_train)) // Not enough negatives to maintain the balance in the test set.
+		{
+			nTest = N_tot - N_train;
+			file.log("N_test (MOD) = " + nTest + "\n");
+			pTest = (long)((double) nTest * K_test);
+			file.log("P_test (MOD) = " + pTest + "\n");
+		}
+
+		this.P_test = pTest;
+		this.N_test = nTest;
+
+		// MAX_test = the maximum allowable size of the test set, i.e. MAX_test = ( P_test / K_test ) + P_test .
+		this.MAX_test = P_test + N_test;
+		file.log("MAX_test = " + MAX_test + "\t- the maximum allowable size of the test set.\n");
+
+		long skipablePositive = (P_tot - P_train) - P_test;
+		file.log("skipable positives = " + skipablePositive+ "\t- the number of positives that can be omitted.\n");
+		long skipableNegative = (N_tot - N_train) - N_test;
+		file.log("skipable negative = " + skipableNegative+ "\t- the number of negatives that can be omitted.\n");
+
+		// Labeling variables
+		this.INSTANCES_TO_LABEL = (long)((double)(P_test+N_test)*labelling);
+		this.INSTANCES_TO_NOT_LABEL = (P_test+N_test) - INSTANCES_TO_LABEL;
+
+		file.log("Label ratio: " + labelling+"\n");
+		file.log("Instances to not label: " + INSTANCES_TO_NOT_LABEL+"\n");
+		file.log("Instances to label: " + INSTANCES_TO_LABEL+"\n");
+	}
+
+	/**
+	 * Creates a plan for training and test sets whose contents have already been
+	 * chosen, such as the folds of a {@link FoldAssignment}, in which every test set
+	 * instance is labelled.
+	 * @param file the pre-processed file being sampled.
+	 * @param P_train the number of positives in the training set.
+	 * @param N_train the number of negatives in the training set.
+	 * @param P_test the number of positives in the test set.
+	 * @param N_test the number of negatives in the test set.
+	 */
+	public SamplePlan(IFile file,long P_train,long N_train,long P_test,long N_test)
+	{
+		this.N_tot = file.getClassDistribution()[0];
+		this.P_tot = file.getClassDistribution()[1];
+
+		this.P_train = P_train;
+		this.N_train = N_train;
+		this.MAX_train = N_train + P_train;
+		this.K_train = N_train == 0 ? 0 : (double) P_train / (double) N_train;
+
+		this.P_test = P_test;
+		this.N_test = N_test;
+		this.MAX_test = P_test + N_test;
+		this.K_test = N_test == 0 ? 0 : (double) P_test / (double) N_test;
+
+		this.labelling = 1.0;
+		this.INSTANCES_TO_LABEL = MAX_test;
+		this.INSTANCES_TO_NOT_LABEL = 0;
+
+		file.log("P_train = " + P_train + ", N_train = " + N_train + ", P_test = " + P_test + ", N_test = " + N_test + "\n");
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the title used in the header of a training set ARFF file built using this plan.
+	 */
+	public String getTrainingSetTitle()
+	{
+		return "Training set "+P_train+" positives and "+ N_train + " negatives, balance "+K_train+".";
+	}
+
+	/**
+	 * @return the relation used in the header of a training set ARFF file built using this plan.
+	 */
+	public String getTrainingSetRelation()
+	{
+		return "Train_"+P_train+"_"+N_train+"_"+K_train;
+	}
+
+	/**
+	 * @return the title used in the header of a test set ARFF file built using this plan.
+	 */
+	public String getTestSetTitle()
+	{
+		return "Test set "+P_test+" positives and "+ N_test + " negatives, balance "+K_test+", labelled "+labelling;
+	}
+
+	/**
+	 * @return the relation used in the header of a test set ARFF file built using this plan.
+	 */
+	public String getTestSetRelation()
+	{
+		return "Test_"+P_test+"_"+N_test+"_"+K_test+"_"+labelling;
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	SampledInstances.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+
+import moa.streams.CachedInstancesStream;
+import moa.streams.InstanceStream;
+import weka.core.Instances;
+
+/**
+ * The class SampledInstances holds a training set and a test set sampled straight into
+ * memory, along with the meta data that would otherwise be written next to the test set:
+ * the positions of the true positives in the test set, and the mask recording which test
+ * instances are labelled. The instances are identical to those that would be read back
+ * from the ARFF files written for the same sample, so the sets can be handed directly to
+ * a classifier without writing them out and parsing them again.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class SampledInstances
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The training set.
+	 */
+	private final Instances trainingSet;
+
+	/**
+	 * The test set, in which unlabelled instances have a missing class value.
+	 */
+	private final Instances testSet;
+
+	/**
+	 * The 1-based positions in the test set of the positive instances, in ascending order.
+	 */
+	private final int[] truePositives;
+
+	/**
+	 * The mask recording which test set instances are labelled.
+	 */
+	private final LabelMask mask;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param trainingSet the training set.
+	 * @param testSet the test set.
+	 * @param truePositives the 1-based positions in the test set of the positive instances.
+	 * @param mask the mask recording which test set instances are labelled.
+	 */
+	public SampledInstances(Instances trainingSet,Instances testSet,int[] truePositives,LabelMask mask)
+	{
+		this.trainingSet = trainingSet;
+		this.testSet = testSet;
+		this.truePositives = truePositives;
+		this.mask = mask;
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return a stream over the instances in the training set, ready for use.
+	 */
+	public InstanceStream getTrainingStream()
+	{
+		return new CachedInstancesStream(trainingSet);
+	}
+
+	/**
+	 * @return a stream over the instances in the test set, ready for use.
+	 */
+	public InstanceStream getTestStream()
+	{
+		return new CachedInstancesStream(testSet);
+	}
+
+	/**
+	 * Gets the true positives in the test set, in the same form as that read from a
+	 * true class file by the classifiers, see {@link TrueClass}.
+	 * @return the true positives in the test set.
+	 */
+	public TrueClass getTrueClass()
+	{
+		return TrueClass.fromPositions(testSet.numInstances(), truePositives);
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the training set.
+	 */
+	public Instances getTrainingSet(){ return this.trainingSet; }
+
+	/**
+	 * @return the test set, in which unlabelled instances have a missing class value.
+	 */
+	public Instances getTestSet(){ return this.testSet; }
+
+	/**
+	 * @return the 1-based positions in the test set of the positive instances, in ascending order.
+	 */
+	public int[] getTruePositives(){ return this.truePositives; }
+
+	/**
+	 * @return the mask recording which test set instances are labelled.
+	 */
+	public LabelMask getLabelMask(){ return this.mask; }
+}
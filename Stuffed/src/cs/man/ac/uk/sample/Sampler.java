@@ -27,6 +27,7 @@
 package cs.man.ac.uk.sample;
 
 import cs.man.ac.uk.common.Common;
+import cs.man.ac.uk.io.Reader;
 
 /**
  * The class Sampler is the external interface for this file sampling code.
@@ -74,12 +75,12 @@ public class Sampler implements ISampler
 	private boolean verbose = false;
 	
 	/**
-	 * The constant string extension used for positive meta data.
+	 * The constant string extension used for positive meta data written by older versions.
 	 */
 	private final String POSITIVE_META_DATA_EXT = ".positive.meta";
 	
 	/**
-	 * The constant string extension used for negative meta data.
+	 * The constant string extension used for negative meta data written by older versions.
 	 */
 	private final String NEGATIVE_META_DATA_EXT = ".negative.meta";
 	
@@ -88,6 +89,21 @@ public class Sampler implements ISampler
 	 */
 	public boolean loaded = false;
 	
+	/**
+	 * The seed for the random number generator, used only if seeded is true.
+	 */
+	private long seed = 0;
+	
+	/**
+	 * Flag that when true indicates that a seed has been set.
+	 */
+	private boolean seeded = false;
+	
+	/**
+	 * Flag that when true indicates that a row index should be built when a file is loaded.
+	 */
+	private boolean createRowIndex = false;
+	
 	//*****************************************
 	//*****************************************
 	//            Constructor
@@ -122,11 +138,30 @@ public class Sampler implements ISampler
 	@Override
 	public void setLogPath(String path){ this.logPath = path;}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#setSeed(long)
+	 */
+	@Override
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+		this.seeded = true;
+		
+		if(file!=null)
+			file.setSeed(seed);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#setCreateRowIndex(boolean)
+	 */
+	@Override
+	public void setCreateRowIndex(boolean create){ this.createRowIndex = create; }
+
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.ISampler#getRows()
 	 */
 	@Override
-	public int getRows()
+	public long getRows()
 	{
 		if(file!=null)
 			return file.getRows();
@@ -154,7 +189,10 @@ public class Sampler implements ISampler
 	{
 		if(this.path != null && !this.path.isEmpty())
 		{	
-			// Now construct paths to positive and negative meta data.
+			if(Common.fileExist(path.replace(extension, MetaData.EXTENSION)))
+				return true;
+
+			// Now construct paths to positive and negative meta data written by older versions.
 			String positiveMetaDataPath=path.replace(extension, POSITIVE_META_DATA_EXT);
 			String negativeMetaDataPath=path.replace(extension, NEGATIVE_META_DATA_EXT);
 			
@@ -207,12 +245,12 @@ public class Sampler implements ISampler
 	 * @see cs.man.ac.uk.sample.ISampler#getClassDistribution()
 	 */
 	@Override
-	public int[] getClassDistribution()
+	public long[] getClassDistribution()
 	{
 		if(file!=null)
 			return file.getClassDistribution();
 		else
-			return new int[]{};
+			return new long[]{};
 	}
 
 	/* (non-Javadoc)
@@ -220,51 +258,55 @@ public class Sampler implements ISampler
 	 */
 	@Override
 	public boolean load(String path, int classIndex)
+	{
+		return load(path, classIndex, true);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#load(java.lang.String, int, boolean)
+	 */
+	@Override
+	public boolean load(String path, int classIndex, boolean createMetaData)
 	{
 		this.path = path;
 		this.classIndex = classIndex;
 		
-		// First get the file extension
-		extension = path.substring(path.lastIndexOf("."),path.length());
-					
-		if(doesMetaDataExist())
+		// First get the file extension, which includes .gz if the file is compressed.
+		extension = Reader.getExtension(path);
+		
+		if(ShardedFile.isSharded(path))
 		{
-			if(extension.toLowerCase().contains(".csv"))
-			{
-				file = new CSV(this.path, this.classIndex, this.logPath,this.verbose);
-				loaded = file.preprocess();
-				return loaded;
-			}
-			else if(extension.toLowerCase().contains(".arff"))
-			{
-				file = new ARFF(this.path, this.classIndex, this.logPath,this.verbose);
-				loaded = file.preprocess();
-				return loaded;
-			}
-			else
-				return false;
+			// A directory or glob of shards is sampled as one file, named by the set path.
+			file = new ShardedFile(path, this.classIndex, this.logPath,this.verbose);
+			this.path = file.getPath();
+			extension = file.getExtension();
 		}
-		else // Create meta data too.
+		else if(extension.toLowerCase().contains(".csv"))
+			file = new CSV(this.path, this.classIndex, this.logPath,this.verbose);
+		else if(extension.toLowerCase().contains(".arff"))
+			file = new ARFF(this.path, this.classIndex, this.logPath,this.verbose);
+		else
+			return false;
+		
+		if(seeded)
+			file.setSeed(seed);
+		
+		file.setCreateRowIndex(createRowIndex);
+		
+		if(file instanceof ShardedFile)// Each shard creates meta data only if it has none.
 		{
-			if(extension.toLowerCase().contains(".csv"))
-			{
-				file = new CSV(this.path, this.classIndex, this.logPath,this.verbose);
-				
-				boolean result1 = file.preprocess();
-				boolean result2 = file.createMetaData();
-				loaded = result1 & result2;
-				return loaded;
-			}
-			else if(extension.toLowerCase().contains(".arff"))
-			{
-				file = new ARFF(this.path, this.classIndex, this.logPath,this.verbose);
-				boolean result1 = file.preprocess();
-				boolean result2 = file.createMetaData();
-				loaded = result1 & result2;
-				return loaded;
-			}
-			else
-				return false;
+			loaded = file.preprocess(createMetaData);
+			return loaded;
+		}
+		else if(doesMetaDataExist() | !createMetaData)
+		{
+			loaded = file.preprocess();
+			return loaded;
+		}
+		else // Create meta data too, in the same pass over the file.
+		{
+			loaded = file.preprocess(true);
+			return loaded;
 		}
 	}
 
@@ -294,6 +336,159 @@ public class Sampler implements ISampler
 			return new Object[]{false,"File not initialised"};
 	}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleToInstances(int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleToInstances(int negTrainSamples, int posTrainSamples,
+			double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(file!=null)
+			return file.sampleToInstances(negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#createFolds(int)
+	 */
+	@Override
+	public Object[] createFolds(int folds)
+	{
+		if(file!=null)
+			return file.createFolds(folds);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleFoldsToCSV(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToCSV(String trainSetPath, String testSetPath)
+	{
+		if(file!=null)
+			return file.sampleFoldsToCSV(trainSetPath, testSetPath);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleFoldsToARFF(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToARFF(String trainSetPath, String testSetPath)
+	{
+		if(file!=null)
+			return file.sampleFoldsToARFF(trainSetPath, testSetPath);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleFoldToInstances(int)
+	 */
+	@Override
+	public Object[] sampleFoldToInstances(int fold)
+	{
+		if(file!=null)
+			return file.sampleFoldToInstances(fold);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleStreamToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToCSV(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(file!=null)
+			return file.sampleStreamToCSV(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleStreamToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToARFF(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(file!=null)
+			return file.sampleStreamToARFF(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleReplicatesToCSV(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToCSV(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		if(file!=null)
+			return file.sampleReplicatesToCSV(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples, trainSetBalances, testSetBalances, labellings);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleReplicatesToCSV(java.lang.String, java.lang.String, int, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleReplicatesToCSV(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		return sampleReplicatesToCSV(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples,
+				new double[] { trainSetBalance }, new double[] { testSetBalance }, new double[] { labelling });
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleReplicatesToARFF(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToARFF(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		if(file!=null)
+			return file.sampleReplicatesToARFF(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples, trainSetBalances, testSetBalances, labellings);
+		else
+			return new Object[]{false,"File not initialised"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#sampleReplicatesToARFF(java.lang.String, java.lang.String, int, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleReplicatesToARFF(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		return sampleReplicatesToARFF(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples,
+				new double[] { trainSetBalance }, new double[] { testSetBalance }, new double[] { labelling });
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#getReplicatePath(java.lang.String, int)
+	 */
+	@Override
+	public String getReplicatePath(String path,int replicate)
+	{
+		return BaseEditor.getReplicatePath(path, replicate);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#getPathToLabelMask(java.lang.String)
+	 */
+	@Override
+	public String getPathToLabelMask(String testSetPath)
+	{
+		return BaseEditor.getLabelMaskPath(testSetPath);
+	}
+
 	/**
 	 * Shuffles the data set, and saves it to the output path.
 	 * @param outputPath the path to save the shuffled data to.
@@ -308,6 +503,40 @@ public class Sampler implements ISampler
 			return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#shuffle(java.lang.String, long)
+	 */
+	@Override
+	public boolean shuffle(String outputPath,long memoryBudget)
+	{
+		if(file!=null)
+			return file.shuffleDataset(outputPath, memoryBudget);
+		else
+			return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#getPathToMetaData()
+	 */
+	@Override
+	public String getPathToMetaData() 
+	{
+		if(loaded)
+			return this.path.replace(extension, MetaData.EXTENSION);
+		return "";
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.ISampler#getPathToFolds()
+	 */
+	@Override
+	public String getPathToFolds()
+	{
+		if(loaded)
+			return this.path.replace(extension, FoldAssignment.EXTENSION);
+		return "";
+	}
+
 	/* (non-Javadoc)
 	 * @see cs.man.ac.uk.sample.ISampler#getPathToPositiveMetaData()
 	 */
@@ -315,7 +544,13 @@ public class Sampler implements ISampler
 	public String getPathToPositiveMetaData() 
 	{
 		if(loaded)
-			return this.path.replace(extension, ".positive.meta");
+		{
+			// The binary meta data holds both positives and negatives.
+			if(Common.fileExist(getPathToMetaData()))
+				return getPathToMetaData();
+
+			return this.path.replace(extension, POSITIVE_META_DATA_EXT);
+		}
 		return "";
 	}
 
@@ -326,7 +561,13 @@ public class Sampler implements ISampler
 	public String getPathToNegativeMetaData()
 	{
 		if(loaded)
-			return this.path.replace(extension, ".negative.meta");
+		{
+			// The binary meta data holds both positives and negatives.
+			if(Common.fileExist(getPathToMetaData()))
+				return getPathToMetaData();
+
+			return this.path.replace(extension, NEGATIVE_META_DATA_EXT);
+		}
 		return "";
 	}
 
@@ -0,0 +1,389 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	ShardedEditor.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cs.man.ac.uk.common.LongBitSet;
+import cs.man.ac.uk.common.VariableCast;
+import cs.man.ac.uk.io.ShardInputStream;
+
+/**
+ * The class ShardedEditor is used to sample a data set split across many shards, see
+ * {@link ShardedFile}. The shards are pre-processed in parallel by editors of their
+ * own, and the results combined, with the rows of each shard numbered after those of
+ * the shards before it. The combined meta data is written for the set as a whole, so
+ * the sampling methods of {@link BaseEditor} work unchanged, reading the shards in
+ * order as one stream while the shards that follow are read ahead in the background.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class ShardedEditor extends BaseEditor
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The number of shards read at once while sampling, at least two so reading the
+	 * next shard always overlaps with sampling the current one.
+	 */
+	protected static final int PREFETCH_SHARDS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The set of shards being edited.
+	 */
+	private final ShardedFile set;
+
+	//*****************************************
+	//*****************************************
+	//            Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Default constructor.
+	 * @param file the set of shards to be edited/sampled from.
+	 */
+	public ShardedEditor(ShardedFile file)
+	{
+		super(file);
+		this.set = file;
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#preprocess(boolean)
+	 */
+	@Override
+	public boolean preprocess(final boolean createMetaData)
+	{
+		final BaseFile[] shards = this.set.getShards();
+
+		if(shards.length == 0)
+		{
+			this.pfile.log("No shards found at "+this.set.getSource()+"\n");
+			return false;
+		}
+
+		for(int i = 1; i < shards.length; i++)
+			if(shards[i].getClass() != shards[0].getClass())
+			{
+				this.pfile.log("Shards must all be CSV or all be ARFF files: "+shards[i].getPath()+"\n");
+				return false;
+			}
+
+		// Each shard only creates meta data if it does not have any already.
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+
+		for(int i = 0; i < shards.length; i++)
+		{
+			final BaseFile shard = shards[i];
+
+			tasks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call()
+				{
+					boolean create = createMetaData && !new File(editorOf(shard).getMetaDataPath()).exists();
+					return shard.preprocess(create);
+				}
+			});
+		}
+
+		if(!invokeAll(tasks, shards))
+			return false;
+
+		if(!combine(shards))
+			return false;
+
+		this.pfile.log("Pre-processed "+shards.length+" shards\n");
+
+		return writeMetaData(shards, createMetaData);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#createMetaDataBinary()
+	 */
+	@Override
+	public boolean createMetaDataBinary()
+	{
+		final BaseFile[] shards = this.set.getShards();
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+
+		for(int i = 0; i < shards.length; i++)
+		{
+			final BaseFile shard = shards[i];
+
+			tasks.add(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call(){ return editorOf(shard).createMetaDataBinary(); }
+			});
+		}
+
+		return invokeAll(tasks, shards) && writeMetaData(shards, true);
+	}
+
+	/**
+	 * Runs one task per shard in parallel, using a thread per processor.
+	 * @param tasks the tasks, task i belonging to shard i.
+	 * @param shards the shards.
+	 * @return true if every task returned true, else false.
+	 */
+	private boolean invokeAll(List<Callable<Boolean>> tasks,BaseFile[] shards)
+	{
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+
+		try
+		{
+			List<Future<Boolean>> results = pool.invokeAll(tasks);
+			boolean result = true;
+
+			for(int i = 0; i < results.size(); i++)
+			{
+				if(!results.get(i).get())
+				{
+					this.pfile.log("Could not pre-process shard "+shards[i].getPath()+"\n");
+					result = false;
+				}
+			}
+
+			return result;
+		}
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); return false; }
+		catch (ExecutionException e) { this.pfile.log("Exception:\n"+e.getCause().toString()); return false; }
+		finally { pool.shutdown(); }
+	}
+
+	/**
+	 * Combines the results of pre-processing each shard into those for the set, which are
+	 * stored in the set. The shards must have the same number of columns and attributes.
+	 * Class labels are listed in the order first seen, and the class distribution is
+	 * ordered by class label, as for a single file.
+	 * @param shards the pre-processed shards.
+	 * @return true if the shards could be combined, else false.
+	 */
+	private boolean combine(BaseFile[] shards)
+	{
+		BaseFile first = shards[0];
+
+		long lines = 0;
+		long rows = 0;
+		Vector<String> classLabels = new Vector<String>();
+		TreeMap<String, Long> classDistribution = new TreeMap<String, Long>();
+
+		for(int i = 0; i < shards.length; i++)
+		{
+			BaseFile shard = shards[i];
+
+			if(shard.getColumns() != first.getColumns() || !Arrays.equals(shard.getAttributeLabels(), first.getAttributeLabels()))
+			{
+				this.pfile.log("Shard "+shard.getPath()+" does not have the same header as "+first.getPath()+"\n");
+				return false;
+			}
+
+			lines += shard.getLineCount();
+			rows += shard.getRows();
+
+			// The distribution of each shard is ordered by its sorted class labels.
+			String[] labels = shard.getClassLabels();
+			String[] sorted = labels.clone();
+			Arrays.sort(sorted);
+			long[] dist = shard.getClassDistribution();
+
+			for(int j = 0; j < labels.length; j++)
+				if(!classLabels.contains(labels[j]))
+					classLabels.add(labels[j]);
+
+			for(int j = 0; j < sorted.length; j++)
+			{
+				Long count = classDistribution.get(sorted[j]);
+				classDistribution.put(sorted[j], (count == null ? 0 : count) + dist[j]);
+			}
+		}
+
+		long[] classDist = new long[classDistribution.size()];
+
+		int i = 0;
+		for(Map.Entry<String,Long> pairs : classDistribution.entrySet())
+		{
+			classDist[i] = pairs.getValue();
+			i++;
+		}
+
+		this.pfile.setClassIndex(first.getClassIndex());
+		this.pfile.setLineCount(lines);
+		this.pfile.setRows(rows);
+		this.pfile.setRelation(first.getRelation());
+		this.pfile.setAttributeCount(first.getAttributeCount());
+		this.pfile.setColumns(first.getColumns());
+		this.pfile.setAttributeLabels(first.getAttributeLabels());
+		this.pfile.setClassLabels(VariableCast.convertStringListToArray(classLabels));
+		this.pfile.setClassDistribution(classDist);
+
+		return true;
+	}
+
+	/**
+	 * Writes the meta data for the set, by joining the meta data of the shards, with the
+	 * positive rows of each shard offset by the rows in the shards before it. If any shard
+	 * has no meta data, any meta data left for the set by an earlier load is removed, as
+	 * it no longer describes the shards.
+	 * @param shards the pre-processed shards.
+	 * @param required if true it is an error for a shard to have no meta data.
+	 * @return true if the meta data was written, or was not required, else false.
+	 */
+	private boolean writeMetaData(BaseFile[] shards,boolean required)
+	{
+		MetaData[] metas = new MetaData[shards.length];
+
+		if(this.pfile.getClassLabels().length != 2)
+		{
+			new File(getMetaDataPath()).delete();
+
+			if(required)
+				this.pfile.log("Meta data can only be created for files with two classes.\n");
+
+			return !required;
+		}
+
+		for(int i = 0; i < shards.length; i++)
+		{
+			if(new File(editorOf(shards[i]).getMetaDataPath()).exists())
+				metas[i] = editorOf(shards[i]).getMetaData();
+
+			if(metas[i] == null)
+			{
+				new File(getMetaDataPath()).delete();
+
+				if(required)
+					this.pfile.log("Could not obtain meta data for shard "+shards[i].getPath()+"\n");
+
+				return !required;
+			}
+		}
+
+		LongBitSet positives = new LongBitSet(this.pfile.getRows());
+		long offset = 0;
+
+		for(int i = 0; i < shards.length; i++)
+		{
+			positives.or(metas[i].getPositives(), offset);
+			offset += shards[i].getRows();
+		}
+
+		return new MetaData(offset, positives, this.pfile.getClassDistribution()).write(getMetaDataPath());
+	}
+
+	/**
+	 * @param shard a shard.
+	 * @return the editor of the shard.
+	 */
+	private static BaseEditor editorOf(BaseFile shard)
+	{
+		return (BaseEditor)shard.editor;
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#exists()
+	 */
+	@Override
+	protected boolean exists()
+	{
+		BaseFile[] shards = this.set.getShards();
+
+		for(int i = 0; i < shards.length; i++)
+			if(!new File(shards[i].getPath()).exists())
+				return false;
+
+		return shards.length > 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#openRows()
+	 */
+	@Override
+	protected RowReader openRows() throws IOException
+	{
+		BaseFile[] shards = this.set.getShards();
+		String[] paths = new String[shards.length];
+
+		for(int i = 0; i < shards.length; i++)
+			paths[i] = shards[i].getPath();
+
+		return new RowReader(new ShardInputStream(paths, PREFETCH_SHARDS), this.pfile.getClassIndex());
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#getARFFHeader(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public String getARFFHeader(String title, String rel, String description)
+	{
+		// The shards share a header, so the first shard describes them all.
+		return editorOf(this.set.getShards()[0]).getARFFHeader(title, rel, description);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#writeARFFHeader(java.lang.String, java.lang.String, java.lang.String, java.lang.String, int[])
+	 */
+	@Override
+	public boolean writeARFFHeader(String destination, String title, String rel,String description, int[] featureIndexes)
+	{
+		return editorOf(this.set.getShards()[0]).writeARFFHeader(destination, title, rel, description, featureIndexes);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseEditor#shuffle(java.lang.String, long)
+	 */
+	@Override
+	public boolean shuffle(String pth,long memoryBudget)
+	{
+		this.pfile.log("A set of shards cannot be shuffled as one file, shuffle each shard instead.\n");
+		return false;
+	}
+}
@@ -0,0 +1,523 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	ShardedFile.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import cs.man.ac.uk.io.Reader;
+
+/**
+ * The class ShardedFile represents a data set split across many CSV or ARFF files, or
+ * shards, that share the same header, and samples them as if they were one file. The
+ * shards are either every CSV and ARFF file in a directory, or the files matching a
+ * glob such as /data/candidates/day-*.arff, and are ordered by name. Rows are numbered
+ * across the shards in that order, so row 1 of the second shard follows the last row
+ * of the first.
+ *
+ * <p>Each shard is pre-processed separately, in parallel, and keeps its own cache and
+ * meta data, so adding a shard to the set only requires the new shard to be read. The
+ * files belonging to the set as a whole, such as the combined meta data, are written
+ * next to the shards using the name returned by {@link #getSetPath(String)}.</p>
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class ShardedFile extends BaseFile
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to the path of a set of shards, see {@link #getSetPath(String)}.
+	 */
+	public static final String EXTENSION = ".shards";
+
+	/**
+	 * The directory or glob the shards were found with.
+	 */
+	private final String source;
+
+	/**
+	 * The shards, in the order their rows are numbered.
+	 */
+	private final BaseFile[] shards;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param source the directory containing the shards, or a glob matching them.
+	 * @param classIndex the class index, non-zero indexing.
+	 * @param logPath the absolute path to a file to write log statements to.
+	 * @param v verbose logging flag.
+	 */
+	public ShardedFile(String source,int classIndex,String logPath,boolean v)
+	{
+		super(getSetPath(source), classIndex, logPath,v);
+		this.source = source;
+
+		String[] paths = findShards(source);
+		this.shards = new BaseFile[paths.length];
+
+		for(int i = 0; i < paths.length; i++)
+		{
+			if(Reader.getExtension(paths[i]).toLowerCase().contains(".csv"))
+				shards[i] = new CSV(paths[i], classIndex, logPath, v);
+			else
+				shards[i] = new ARFF(paths[i], classIndex, logPath, v);
+
+			((BaseEditor)shards[i].editor).shard = true;
+		}
+
+		editor = new ShardedEditor(this);
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Determines if a path refers to a set of shards rather than a single file.
+	 * @param path the path to test.
+	 * @return true if the path is a directory, or its last component is a glob, else false.
+	 */
+	public static boolean isSharded(String path)
+	{
+		File f = new File(path);
+		return f.isDirectory() || f.getName().matches(".*[*?\\[{].*");
+	}
+
+	/**
+	 * Finds the shards belonging to a set. For a directory these are the CSV and ARFF
+	 * files it contains, compressed or not, and for a glob the CSV and ARFF files in the
+	 * parent directory whose names match the glob.
+	 * @param source the directory containing the shards, or a glob matching them.
+	 * @return the paths to the shards, ordered by name.
+	 */
+	public static String[] findShards(String source)
+	{
+		File f = new File(source);
+		File directory = f;
+		PathMatcher matcher = null;
+
+		if(!f.isDirectory())
+		{
+			directory = f.getAbsoluteFile().getParentFile();
+			matcher = FileSystems.getDefault().getPathMatcher("glob:"+f.getName());
+		}
+
+		File[] files = directory == null ? null : directory.listFiles();
+
+		if(files == null)
+			return new String[0];
+
+		ArrayList<String> shards = new ArrayList<String>();
+
+		for(int i = 0; i < files.length; i++)
+		{
+			String name = files[i].getName();
+			String extension = Reader.getExtension(name).toLowerCase();
+
+			if(!files[i].isFile() | !(extension.equals(".csv") | extension.equals(".arff") |
+					extension.equals(".csv"+Reader.COMPRESSED_EXTENSION) | extension.equals(".arff"+Reader.COMPRESSED_EXTENSION)))
+				continue;
+
+			if(matcher == null || matcher.matches(Paths.get(name)))
+				shards.add(files[i].getPath());
+		}
+
+		Collections.sort(shards);
+		return shards.toArray(new String[shards.size()]);
+	}
+
+	/**
+	 * Builds the path the files belonging to a set of shards as a whole are named after,
+	 * i.e. for the directory /data/candidates this is /data/candidates/candidates.shards,
+	 * and for the glob /data/day-*.arff it is /data/day-_.arff.shards. No file is written
+	 * at this path, its extension is replaced to name the meta data and fold assignment
+	 * belonging to the set.
+	 * @param source the directory containing the shards, or a glob matching them.
+	 * @return the path the set is named after.
+	 */
+	public static String getSetPath(String source)
+	{
+		File f = new File(source);
+
+		if(f.isDirectory())
+			return new File(f, f.getName() + EXTENSION).getPath();
+		else
+			return new File(f.getParentFile(), f.getName().replaceAll("[*?\\[\\]{}]", "_") + EXTENSION).getPath();
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleToCSV(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleToCSV(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleToARFF(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleToARFF(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleToInstances(int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleToInstances(int negTrainSamples, int posTrainSamples,
+			double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			SampledInstances result = editor.sampleToInstances(negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result != null)
+				return new Object[]{true,"SUCCESS",result};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#createFolds(int)
+	 */
+	@Override
+	public Object[] createFolds(int folds)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.createFolds(folds);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleFoldsToCSV(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToCSV(String trainSetPath, String testSetPath)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleFoldsToCSV(trainSetPath, testSetPath);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleFoldsToARFF(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public Object[] sampleFoldsToARFF(String trainSetPath, String testSetPath)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleFoldsToARFF(trainSetPath, testSetPath);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleFoldToInstances(int)
+	 */
+	@Override
+	public Object[] sampleFoldToInstances(int fold)
+	{
+		if(preprocessed)
+		{
+			SampledInstances result = editor.sampleFoldToInstances(fold);
+
+			if(result != null)
+				return new Object[]{true,"SUCCESS",result};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleStreamToCSV(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToCSV(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleStreamToCSV(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleStreamToARFF(java.lang.String, java.lang.String, int, int, double, double, double)
+	 */
+	@Override
+	public Object[] sampleStreamToARFF(String trainSetPath, String testSetPath, int negTrainSamples,
+			int posTrainSamples, double trainSetBalance, double testSetBalance, double labelling)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleStreamToARFF(trainSetPath, testSetPath, negTrainSamples, posTrainSamples, trainSetBalance, testSetBalance, labelling);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleReplicatesToCSV(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToCSV(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleReplicatesToCSV(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples, trainSetBalances, testSetBalances, labellings);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#sampleReplicatesToARFF(java.lang.String, java.lang.String, int, int, int, double[], double[], double[])
+	 */
+	@Override
+	public Object[] sampleReplicatesToARFF(String trainSetPath, String testSetPath, int replicates, int negTrainSamples,
+			int posTrainSamples, double[] trainSetBalances, double[] testSetBalances, double[] labellings)
+	{
+		if(preprocessed)
+		{
+			boolean result = editor.sampleReplicatesToARFF(trainSetPath, testSetPath, replicates, negTrainSamples, posTrainSamples, trainSetBalances, testSetBalances, labellings);
+
+			if(result)
+				return new Object[]{true,"SUCCESS"};
+			else
+				return new Object[]{false,"FAIL"};
+		}
+		else
+			return new Object[]{false,"Preprocessing not complete"};
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#preprocess()
+	 */
+	@Override
+	public boolean preprocess()
+	{
+		return preprocess(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#preprocess(boolean)
+	 */
+	@Override
+	public boolean preprocess(boolean createMetaData)
+	{
+		if(this.editor.preprocess(createMetaData))
+		{
+			log("Shards loaded correctly\n");
+			log("Shards    :\t"+this.shards.length+"\n");
+			log("Line count:\t"+this.lineCount +"\n");
+			log("Patterns  :\t"+this.rows+"\n");
+			log("Relation  :\t"+this.relation+"\n");
+			log("Attributes:\t"+this.attributeCount+"\n");
+			log("Attribute labels:\n");
+			log(this.attributeLabels);
+			log("Class labels:\n");
+			log(this.classLabels);
+			log("Class distribution:\n");
+			log(this.classDistribution);
+
+			this.preprocessed=true;
+			return this.preprocessed;
+		}
+		else
+		{
+			log("Sharded editor did not complete preprocessing.");
+			return false;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#createMetaData()
+	 */
+	@Override
+	public boolean createMetaData()
+	{ 
+		if(preprocessed)
+		{
+			if(this.classLabels.length==2)// Binary case
+				return editor.createMetaDataBinary();
+			else 
+			{
+				// Multi class;
+				return false;
+			}
+		}
+		else
+			return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#shuffleDataset()
+	 */
+	@Override
+	public boolean shuffleDataset()
+	{ 
+		if(preprocessed)
+			return editor.shuffle();
+		else
+			return false;
+	}
+	
+
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#shuffleDataset(java.lang.String)
+	 */
+	@Override
+	public boolean shuffleDataset(String pth)
+	{ 
+		if(preprocessed)
+			return editor.shuffle(pth);
+		else
+			return false;
+	}
+	
+	/* (non-Javadoc)
+	 * @see cs.man.ac.uk.sample.BaseFile#shuffleDataset(java.lang.String, long)
+	 */
+	@Override
+	public boolean shuffleDataset(String pth,long memoryBudget)
+	{ 
+		if(preprocessed)
+			return editor.shuffle(pth, memoryBudget);
+		else
+			return false;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the directory or glob the shards were found with.
+	 */
+	public String getSource(){ return this.source; }
+
+	/**
+	 * @return the shards, in the order their rows are numbered.
+	 */
+	public BaseFile[] getShards(){ return this.shards; }
+}
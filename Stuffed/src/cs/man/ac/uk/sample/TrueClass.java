@@ -0,0 +1,370 @@
+/**
+ *
+ * This file is part of Stuffed.
+ *
+ * Stuffed is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Stuffed is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Stuffed.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * File name: 	TrueClass.java
+ * Package: cs.man.ac.uk.sample
+ * Created:	Oct 18, 2026
+ * Author:	agent
+ *
+ * Contact:	agent@local
+ */
+package cs.man.ac.uk.sample;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import cs.man.ac.uk.common.LongBitSet;
+
+/**
+ * The class TrueClass records which instances in a test set are truly positive, whether
+ * or not they were written out labelled, so that predictions on unlabelled instances can
+ * still be evaluated. Bit i-1 is set if the instance at position i of the test set
+ * (starting from 1) is positive, so looking up an instance takes constant time and the
+ * positives take one bit per test instance. The sampler writes the positions of the
+ * positives one per line to a text file, test.trueClass.csv, and the same information
+ * to a binary file, test.trueClass.meta, made up of big-endian values:
+ *
+ * <ol>
+ * <li>the magic number 0x53545443 ("STTC").</li>
+ * <li>the format version.</li>
+ * <li>the number of positions, i.e. the test set size, as a 64 bit integer.</li>
+ * <li>the number of positives, as a 64 bit integer.</li>
+ * <li>the number of 64 bit words w, as a 64 bit integer, followed by the w words.</li>
+ * </ol>
+ *
+ * The binary file is read without parsing any text, see {@link #load(String)}.
+ *
+ * @author agent
+ *
+ * @version 1.0, 10/18/26
+ */
+public class TrueClass
+{
+	//*****************************************
+	//*****************************************
+	//              Variables
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * The extension given to binary true class files, this replaces the test set file extension.
+	 */
+	public static final String EXTENSION = ".trueClass.meta";
+
+	/**
+	 * The extension given to text true class files, this replaces the test set file extension.
+	 */
+	public static final String TEXT_EXTENSION = ".trueClass.csv";
+
+	/**
+	 * The magic number at the start of a binary true class file ("STTC").
+	 */
+	private static final int MAGIC = 0x53545443;
+
+	/**
+	 * The version of the binary true class format.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * The number of words read or written at a time.
+	 */
+	private static final int BLOCK_WORDS = 64 * 1024;
+
+	/**
+	 * The number of positions in the test set.
+	 */
+	private long size;
+
+	/**
+	 * The positives, bit i-1 is set if position i is positive.
+	 */
+	private LongBitSet positives;
+
+	//*****************************************
+	//*****************************************
+	//             Constructor
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * Primary constructor.
+	 * @param size the number of positions in the test set.
+	 * @param positives the positives, bit i-1 is set if position i is positive.
+	 */
+	public TrueClass(long size,LongBitSet positives)
+	{
+		this.size = size;
+		this.positives = positives;
+	}
+
+	/**
+	 * Creates a record of the positives in a test set from their positions.
+	 * @param size the number of positions in the test set.
+	 * @param positions the 1-based positions of the positives.
+	 * @return the true class record.
+	 */
+	public static TrueClass fromPositions(long size,int[] positions)
+	{
+		LongBitSet positives = new LongBitSet(size);
+
+		for(int i = 0; i < positions.length; i++)
+			positives.set(positions[i] - 1);
+
+		return new TrueClass(size, positives);
+	}
+
+	//*****************************************
+	//*****************************************
+	//              Methods
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @param position the position of an instance in the test set, starting from 1.
+	 * @return true if the instance at the position is positive, else false.
+	 */
+	public boolean isPositive(long position){ return position > 0 && positives.get(position - 1); }
+
+	/**
+	 * Writes this record to a binary file, overwriting any existing file.
+	 * @param path the path to the file to write.
+	 * @return true if written successfully, else false.
+	 */
+	public boolean write(String path)
+	{
+		long words = (size + 63) >>> 6;
+
+		RandomAccessFile file = null;
+
+		try
+		{
+			file = new RandomAccessFile(path, "rw");
+
+			try
+			{
+				FileChannel channel = file.getChannel();
+				channel.truncate(0);
+
+				ByteBuffer buffer = ByteBuffer.allocate(BLOCK_WORDS * 8);
+				buffer.putInt(MAGIC).putInt(VERSION);
+				buffer.putLong(size).putLong(positives.cardinality());
+				buffer.putLong(words);
+				buffer.flip();
+
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+
+				for(long w = 0; w < words; )
+				{
+					buffer.clear();
+
+					for(int i = 0; i < BLOCK_WORDS && w < words; i++, w++)
+						buffer.putLong(positives.getWord(w));
+
+					buffer.flip();
+
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+				}
+
+				return true;
+			}
+			finally{file.close();}
+		}
+		catch (IOException e) {return false;}
+	}
+
+	/**
+	 * Reads a binary true class file.
+	 * @param path the path to the file to read.
+	 * @return the true class record, or null if the file does not exist or is not valid.
+	 */
+	public static TrueClass read(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return null;
+
+		FileInputStream in = null;
+
+		try
+		{
+			in = new FileInputStream(f);
+
+			try
+			{
+				FileChannel channel = in.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(BLOCK_WORDS * 8);
+
+				while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+				buffer.flip();
+
+				if(buffer.remaining() < 32 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+					return null;
+
+				long size = buffer.getLong();
+				long cardinality = buffer.getLong();
+				long length = buffer.getLong();
+
+				if(size < 0 || length < 0 || length * 8 != channel.size() - buffer.position())
+					return null;
+
+				LongBitSet positives = new LongBitSet(size);
+
+				for(long w = 0; w < length; w++)
+				{
+					if(!buffer.hasRemaining())
+					{
+						buffer.compact();
+						while(buffer.hasRemaining() && channel.read(buffer) >= 0);
+						buffer.flip();
+					}
+
+					positives.setWord(w, buffer.getLong());
+				}
+
+				if(positives.cardinality() != cardinality || (length > 0 && positives.nextSetBit(size) >= 0))
+					return null;
+
+				return new TrueClass(size, positives);
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	/**
+	 * Reads a text true class file, holding the 1-based position of one positive per line.
+	 * The positions are parsed straight from the bytes, so no string is created per line.
+	 * As the file does not record the test set size, the size is taken to be the last
+	 * position found. Reading stops at the first line that is not a position.
+	 * @param path the path to the file to read.
+	 * @return the true class record, or null if the file does not exist or can't be read.
+	 */
+	public static TrueClass readText(String path)
+	{
+		File f = new File(path);
+
+		if(!f.exists())
+			return null;
+
+		InputStream in = null;
+
+		try
+		{
+			in = new BufferedInputStream(new FileInputStream(f), 64 * 1024);
+
+			try
+			{
+				LongBitSet positives = new LongBitSet();
+				long size = 0;
+				long position = 0;
+				boolean digits = false;
+				int b;
+
+				while((b = in.read()) != -1)
+				{
+					if(b >= '0' && b <= '9')
+					{
+						position = position * 10 + (b - '0');
+						digits = true;
+					}
+					else if(b == '\n' || b == '\r')
+					{
+						if(digits && position > 0)
+						{
+							positives.set(position - 1);
+							size = Math.max(size, position);
+						}
+
+						position = 0;
+						digits = false;
+					}
+					else if(b != ' ' && b != '\t')
+						break;
+				}
+
+				if(b == -1 && digits && position > 0)
+				{
+					positives.set(position - 1);
+					size = Math.max(size, position);
+				}
+
+				return new TrueClass(size, positives);
+			}
+			finally{in.close();}
+		}
+		catch (IOException e) {return null;}
+	}
+
+	/**
+	 * Loads the true class record for a test set. If the path is to a text true class file,
+	 * and the binary file written alongside it is at least as recent, the binary file is
+	 * read instead, so the text need not be parsed.
+	 * @param path the path to a text or binary true class file.
+	 * @return the true class record, empty if neither file exists or can be read.
+	 */
+	public static TrueClass load(String path)
+	{
+		TrueClass trueClass = null;
+
+		if(path.endsWith(TEXT_EXTENSION))
+		{
+			File text = new File(path);
+			File binary = new File(path.substring(0, path.length() - TEXT_EXTENSION.length()) + EXTENSION);
+
+			if(binary.exists() && (!text.exists() || binary.lastModified() >= text.lastModified()))
+				trueClass = read(binary.getPath());
+
+			if(trueClass == null)
+				trueClass = readText(path);
+		}
+		else
+			trueClass = read(path);
+
+		return trueClass == null ? new TrueClass(0, new LongBitSet()) : trueClass;
+	}
+
+	//*****************************************
+	//*****************************************
+	//           Getter & Setters
+	//*****************************************
+	//*****************************************
+
+	/**
+	 * @return the number of positions, i.e. the test set size.
+	 */
+	public long getSize(){ return this.size; }
+
+	/**
+	 * @return the number of positives.
+	 */
+	public long getPositiveCount(){ return this.positives.cardinality(); }
+
+	/**
+	 * @return the positives, bit i-1 is set if position i is positive.
+	 */
+	public LongBitSet getPositives(){ return this.positives; }
+}